@@ -0,0 +1,99 @@
+package benchmark;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import dao.FachadaAsincrona;
+import generador.ConfiguracionGenerador;
+import generador.GeneradorDatos;
+import org.openjdk.jmh.annotations.*;
+import persistencia.BaseDatos;
+import persistencia.ProveedorEntityManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MariaDB embebida cargada con init.sql e ampliada co GeneradorDatos ata o número de préstamos indicado.
+ * Arráncase unha vez por cada valor de {@code prestamos}.
+ */
+@State(Scope.Benchmark)
+public class BaseDatosBenchmark {
+
+    private static final int TAM_POOL = 16;
+
+    @Param({"1000", "100000", "1000000"})
+    public int prestamos;
+
+    public int usuarios;
+    public int libros;
+    public int ejemplares;
+
+    private DB db;
+    private BaseDatos baseDatos;
+    private FachadaAsincrona fachada;
+
+    @Setup(Level.Trial)
+    public void arrancar() throws Exception {
+        DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+        config.setPort(0);
+        config.addArg("--user=root");
+        db = DB.newEmbeddedDB(config.build());
+        db.start();
+        db.source("init.sql", "root", "", null);
+
+        String url = config.getURL("biblioteca");
+        try (Connection con = DriverManager.getConnection(url, "root", "")) {
+            escalar(con);
+        }
+
+        Map<String, Object> propiedades = new HashMap<>();
+        propiedades.put("hibernate.show_sql", "false");
+        propiedades.put("hibernate.format_sql", "false");
+        baseDatos = new BaseDatos(url, "root", "", TAM_POOL, propiedades);
+        fachada = new FachadaAsincrona(baseDatos.getProveedor(), TAM_POOL);
+    }
+
+    @TearDown(Level.Trial)
+    public void parar() throws Exception {
+        if (fachada != null) {
+            fachada.close();
+        }
+        if (baseDatos != null) {
+            baseDatos.close();
+        }
+        if (db != null) {
+            db.stop();
+        }
+    }
+
+    public ProveedorEntityManager getProveedor() {
+        return baseDatos.getProveedor();
+    }
+
+    /** Compartida por todos os fíos do benchmark: o límite de chamadas en curso é o do pool. */
+    public FachadaAsincrona getFachada() {
+        return fachada;
+    }
+
+    public String dni(int usuario) {
+        return usuario <= 3 ? "12345678A" : GeneradorDatos.dni(usuario);
+    }
+
+    private void escalar(Connection con) throws SQLException {
+        ConfiguracionGenerador config = ConfiguracionGenerador.paraPrestamos(prestamos);
+        new GeneradorDatos(config).generar(con);
+        usuarios = 3 + config.getUsuarios();
+        libros = 10 + config.getLibros();
+        // O número de exemplares por libro é aleatorio: lese da táboa
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MAX(id) FROM ejemplar")) {
+            rs.next();
+            ejemplares = rs.getInt(1);
+        }
+    }
+}
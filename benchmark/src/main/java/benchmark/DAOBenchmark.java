@@ -0,0 +1,193 @@
+package benchmark;
+
+import criteria.CursorPrestamo;
+import criteria.PrestamoCriteria;
+import dao.*;
+import modelo.Ejemplar;
+import modelo.Libro;
+import modelo.Prestamo;
+import modelo.Usuario;
+import org.openjdk.jmh.annotations.*;
+import persistencia.ProveedorEntityManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Camiños quentes dos DAO. Cada operación empeza cun contexto de persistencia baleiro
+ * para que {@code buscarPorId} chegue á base de datos e non á caché de primeiro nivel.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DAOBenchmark {
+
+    @State(Scope.Thread)
+    public static class Sesion {
+        ProveedorEntityManager proveedor;
+        UsuarioDAO usuarioDAO;
+        LibroDAO libroDAO;
+        PrestamoDAO prestamoDAO;
+        EjemplarDAO ejemplarDAO;
+        PrestamoCriteria criteria;
+        PrestamoCriteria criteriaMostrador;
+        PrestamoCriteria criteriaListado;
+
+        @Setup(Level.Trial)
+        public void abrir(BaseDatosBenchmark bd) {
+            proveedor = bd.getProveedor();
+            usuarioDAO = new UsuarioDAOHib(proveedor);
+            libroDAO = new LibroDAOHib(proveedor);
+            prestamoDAO = new PrestamoDAOHib(proveedor);
+            ejemplarDAO = new EjemplarDAOHib(proveedor);
+
+            criteria = new PrestamoCriteria();
+            criteria.setEstadoPrestamo(Prestamo.EstadoPrestamo.ACTIVO);
+            criteria.setIniFechaInicio(LocalDate.of(2021, 3, 1));
+            criteria.setFinFechaInicio(LocalDate.of(2021, 3, 10));
+
+            // Pantalla de busca do mostrador: préstamos dun usuario, os máis recentes primeiro
+            criteriaMostrador = new PrestamoCriteria();
+            criteriaMostrador.setOrden(PrestamoCriteria.Orden.FECHA_INICIO);
+            criteriaMostrador.setDescendente(true);
+            criteriaMostrador.setLimite(20);
+
+            // Listado de 500 préstamos devoltos para percorrer con usuario e exemplar
+            criteriaListado = new PrestamoCriteria();
+            criteriaListado.setEstadoPrestamo(Prestamo.EstadoPrestamo.DEVUELTO);
+            criteriaListado.setOrden(PrestamoCriteria.Orden.FECHA_INICIO);
+            criteriaListado.setDescendente(true);
+            criteriaListado.setLimite(500);
+        }
+    }
+
+    private static int aleatorio(int max) {
+        return 1 + ThreadLocalRandom.current().nextInt(max);
+    }
+
+    @Benchmark
+    public Object getPrestamosCriteria(Sesion s) {
+        return s.prestamoDAO.getPrestamosCriteria(s.criteria);
+    }
+
+    @Benchmark
+    public Object getPrestamosCriteriaMostrador(BaseDatosBenchmark bd, Sesion s) {
+        s.criteriaMostrador.setIdUsuario(aleatorio(bd.usuarios));
+        return s.prestamoDAO.getPrestamosCriteria(s.criteriaMostrador);
+    }
+
+    /** Listado con usuario e exemplar cargados nunha soa consulta, como o percorre App. */
+    @Benchmark
+    public Object getPrestamosCriteriaCompleto(Sesion s) {
+        List<Prestamo> lista = s.prestamoDAO.getPrestamosCriteria(s.criteriaListado, PlanCargaPrestamo.COMPLETO);
+        int total = 0;
+        for (Prestamo p : lista) {
+            total += p.getUsuario().getNombre().length() + p.getEjemplar().getCodigo().length();
+        }
+        return total;
+    }
+
+    /** O mesmo listado como proxección a ResumenPrestamo, sen entidades no contexto. */
+    @Benchmark
+    public Object getResumenPrestamos(Sesion s) {
+        return s.prestamoDAO.getResumenPrestamos(s.criteriaListado);
+    }
+
+    /** Páxina de 50 préstamos en calquera punto da táboa: co cursor non depende da profundidade. */
+    @Benchmark
+    public Object recuperarPaginaProfunda(BaseDatosBenchmark bd, Sesion s) {
+        CursorPrestamo despuesDe = CursorPrestamo.porId(aleatorio(bd.prestamos));
+        return s.prestamoDAO.recuperarPagina(50, despuesDe, PlanCargaPrestamo.SOLO_PRESTAMO);
+    }
+
+    /** Pantalla do mostrador consulta a consulta: usuario, os seus préstamos, un libro e un exemplar. */
+    @Benchmark
+    public Object pantallaSecuencial(BaseDatosBenchmark bd, Sesion s) {
+        int usuario = aleatorio(bd.usuarios);
+        PrestamoCriteria c = criteriaPantalla(usuario);
+        return List.of(
+                s.usuarioDAO.findByDni(bd.dni(usuario)),
+                s.prestamoDAO.getPrestamosCriteria(c, PlanCargaPrestamo.COMPLETO),
+                s.libroDAO.buscarPorId(aleatorio(bd.libros)),
+                s.ejemplarDAO.buscarPorId(aleatorio(bd.ejemplares)));
+    }
+
+    /** A mesma pantalla coa FachadaAsincrona: as catro consultas van á vez. */
+    @Benchmark
+    public Object pantallaAsincrona(BaseDatosBenchmark bd) {
+        FachadaAsincrona fachada = bd.getFachada();
+        int usuario = aleatorio(bd.usuarios);
+        PrestamoCriteria c = criteriaPantalla(usuario);
+        CompletableFuture<Optional<Usuario>> u = fachada.usuario(dao -> dao.findByDni(bd.dni(usuario)));
+        CompletableFuture<List<Prestamo>> p = fachada.prestamo(dao -> dao.getPrestamosCriteria(c, PlanCargaPrestamo.COMPLETO));
+        CompletableFuture<Optional<Libro>> l = fachada.libro(dao -> dao.buscarPorId(aleatorio(bd.libros)));
+        CompletableFuture<Optional<Ejemplar>> e = fachada.ejemplar(dao -> dao.buscarPorId(aleatorio(bd.ejemplares)));
+        return List.of(u.join(), p.join(), l.join(), e.join());
+    }
+
+    private static PrestamoCriteria criteriaPantalla(int usuario) {
+        PrestamoCriteria c = new PrestamoCriteria();
+        c.setIdUsuario(usuario);
+        c.setOrden(PrestamoCriteria.Orden.FECHA_INICIO);
+        c.setDescendente(true);
+        c.setLimite(20);
+        return c;
+    }
+
+    @Benchmark
+    public Object findByDni(BaseDatosBenchmark bd, Sesion s) {
+        return s.usuarioDAO.findByDni(bd.dni(aleatorio(bd.usuarios)));
+    }
+
+    /** Lectura de 20 carnés dunha vez. */
+    @Benchmark
+    public Object findByDnis(BaseDatosBenchmark bd, Sesion s) {
+        List<String> dnis = new ArrayList<>(20);
+        for (int i = 0; i < 20; i++) {
+            dnis.add(bd.dni(aleatorio(bd.usuarios)));
+        }
+        return s.usuarioDAO.findByDnis(dnis);
+    }
+
+    @Benchmark
+    public Object favoritosPorUsario(Sesion s) {
+        return s.usuarioDAO.favoritosPorUsario();
+    }
+
+    @Benchmark
+    public Object topFavoritosContador(Sesion s) {
+        return s.usuarioDAO.topFavoritos(20, true);
+    }
+
+    @Benchmark
+    public Object topFavoritosCalculado(Sesion s) {
+        return s.usuarioDAO.topFavoritos(20, false);
+    }
+
+    @Benchmark
+    public Object buscarPrestamoPorId(BaseDatosBenchmark bd, Sesion s) {
+        return s.prestamoDAO.buscarPorId(aleatorio(bd.prestamos));
+    }
+
+    @Benchmark
+    public Object buscarUsuarioPorId(BaseDatosBenchmark bd, Sesion s) {
+        return s.usuarioDAO.buscarPorId(aleatorio(bd.usuarios));
+    }
+
+    @Benchmark
+    public Object buscarEjemplarPorId(BaseDatosBenchmark bd, Sesion s) {
+        return s.ejemplarDAO.buscarPorId(aleatorio(bd.ejemplares));
+    }
+
+    @Benchmark
+    public Object buscarLibroPorId(BaseDatosBenchmark bd, Sesion s) {
+        return s.libroDAO.buscarPorId(aleatorio(bd.libros));
+    }
+}
@@ -1,4 +1,6 @@
 
+-- Versión 1 do esquema. Os cambios posteriores (índices incluídos) son migracións
+-- en src/main/resources/db/migracion, que aplica persistencia.Migraciones ao arrancar.
 DROP DATABASE IF EXISTS biblioteca;
 
 -- Creación da base de datos
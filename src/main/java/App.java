@@ -1,9 +1,13 @@
 import criteria.PrestamoCriteria;
 import dao.*;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.Persistence;
+import dto.ValoracionAgregada;
+import indice.IndiceCatalogo;
+import metricas.MetricasDAO;
+import metricas.ServidorMetricas;
 import modelo.*;
 import org.slf4j.bridge.SLF4JBridgeHandler;
+import persistencia.BaseDatos;
+import persistencia.ProveedorEntityManager;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -18,27 +22,58 @@ public class App {
         SLF4JBridgeHandler.removeHandlersForRootLogger();
         SLF4JBridgeHandler.install();
 
-        try(EntityManager em = Persistence
-                .createEntityManagerFactory("biblioteca")
-                .createEntityManager()){
-            UsuarioDAO usuarioDAO = new UsuarioDAOHib(em);
-            AutorDAO autorDAO = new AutorDAOHib(em);
-            CategoriaDAO categoriaDAO = new CategoriaDAOHib(em);
-            LibroDAO libroDAO = new LibroDAOHib(em);
-            PrestamoDAO prestamoDAO = new PrestamoDAOHib(em);
-            EjemplarDAO ejemplarDAO = new EjemplarDAOHib(em);
+        try(BaseDatos baseDatos = BaseDatos.desdeEntorno()){
+            // Un EntityManager por fío: os DAO poden compartirse entre fíos
+            ProveedorEntityManager proveedor = baseDatos.getProveedor();
+            // Cada chamada aos DAO queda medida en baseDatos.getMetricasDAO()
+            MetricasDAO metricas = baseDatos.getMetricasDAO();
+            UsuarioDAO usuarioDAO = metricas.instrumentar(UsuarioDAO.class, new UsuarioDAOHib(proveedor));
+            AutorDAO autorDAO = metricas.instrumentar(AutorDAO.class, new AutorDAOHib(proveedor));
+            CategoriaDAO categoriaDAO = metricas.instrumentar(CategoriaDAO.class, new CategoriaDAOHib(proveedor));
+            LibroDAO libroDAO = metricas.instrumentar(LibroDAO.class, new LibroDAOHib(proveedor));
+            PrestamoDAO prestamoDAO = metricas.instrumentar(PrestamoDAO.class, new PrestamoDAOHib(proveedor));
+            EjemplarDAO ejemplarDAO = metricas.instrumentar(EjemplarDAO.class, new EjemplarDAOHib(proveedor));
+            ValoracionDAO valoracionDAO = metricas.instrumentar(ValoracionDAO.class, new ValoracionDAOHib(proveedor));
+
+            // METRICAS_PORTO=9464 serve as métricas en http://localhost:9464/metrics
+            String porto = System.getenv("METRICAS_PORTO");
+            ServidorMetricas servidorMetricas = porto == null ? null
+                    : new ServidorMetricas(Integer.parseInt(porto), List.of(baseDatos::informeMetricas));
 
             PrestamoCriteria prestamoCriteria = new PrestamoCriteria();
             prestamoCriteria.setEstadoPrestamo(Prestamo.EstadoPrestamo.ACTIVO);
             prestamoCriteria.setIniFechaInicio(LocalDate.of(2024, 1, 31));
             prestamoCriteria.setFinFechaInicio(LocalDate.of(2024, 2, 10));
 
+            // Usuario e exemplar cárganse na mesma consulta (sen N+1 ao percorrer a lista)
             List<Prestamo> listPrestamo = prestamoDAO.
-                    getPrestamosCriteria(prestamoCriteria);
+                    getPrestamosCriteria(prestamoCriteria, PlanCargaPrestamo.COMPLETO);
             for(Prestamo p : listPrestamo){
-                System.out.println(p);
+                System.out.println(p + " -> " + p.getUsuario().getNombre() + ", " + p.getEjemplar().getCodigo());
             }
 
+            // Dispoñibilidade dun libro en memoria, sen consultar a base de datos
+            if (baseDatos.getIndiceDisponibilidad() != null) {
+                System.out.println("Libro 1: " + baseDatos.getIndiceDisponibilidad().consultar(1));
+            }
+
+            // Busca no catálogo: o índice dá os ids por relevancia e o DAO as filas
+            if (baseDatos.getIndiceCatalogo() != null) {
+                List<Integer> ids = baseDatos.getIndiceCatalogo().buscar("codigo limpio", 10).stream()
+                        .map(IndiceCatalogo.Acerto::idLibro).toList();
+                libroDAO.getResumenLibros(ids).forEach(System.out::println);
+            }
+
+            // A quen lle gustou o libro 3 tamén lle gustaron...
+            if (baseDatos.getIndiceRecomendacions() != null) {
+                System.out.println("Libro 3: " + baseDatos.getIndiceRecomendacions().tamenGustaron(3, 5));
+            }
+
+            // Media e histograma das valoracións, xa agregados pola base de datos
+            ValoracionAgregada valoracion = valoracionDAO.valoracionLibro(1);
+            System.out.println("Libro 1: media " + valoracion.media() + ", " + valoracion.histograma());
+            valoracionDAO.valoracionesPorCategoria(1).forEach(System.out::println);
+
 
 //            List<Object[]> listObj = usuarioDAO.favoritosPorUsario();
 //            for(Object[] ob: listObj){
@@ -212,6 +247,10 @@ public class App {
 
 
             //System.out.println("Programa de prueba finalizado");
+            System.out.print(metricas.informe());
+            if (servidorMetricas != null) {
+                servidorMetricas.close();
+            }
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,21 @@
+package criteria;
+
+import java.time.LocalDate;
+
+/**
+ * Posición dende a que continúa unha páxina de préstamos (paxinación por clave, sen OFFSET):
+ * o último préstamo da páxina anterior. A data só se usa se a orde é por fechaInicio ou fechaFin.
+ */
+public record CursorPrestamo(LocalDate fecha, int id) {
+
+    public static CursorPrestamo porId(int id) {
+        return new CursorPrestamo(null, id);
+    }
+
+    public static CursorPrestamo porFecha(LocalDate fecha, int id) {
+        if (fecha == null) {
+            throw new IllegalArgumentException("O cursor por data necesita unha data");
+        }
+        return new CursorPrestamo(fecha, id);
+    }
+}
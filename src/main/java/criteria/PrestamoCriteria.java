@@ -4,10 +4,32 @@ import modelo.Prestamo;
 
 import java.time.LocalDate;
 
+/**
+ * Filtro, orde e límite para as consultas de préstamos. Os campos a null non filtran.
+ * Cada límite dos rangos de datas (ini = desde, fin = ata, incluídos) aplícase só: se falta un, o rango
+ * queda aberto por ese lado. Antes o rango de fechaInicio só filtraba se viñan os dous límites.
+ */
 public class PrestamoCriteria {
+
+    /** Columna pola que se ordena; sempre se desempata por id. */
+    public enum Orden {
+        ID, FECHA_INICIO, FECHA_FIN, FECHA_DEVOLUCION
+    }
+
     private Prestamo.EstadoPrestamo estadoPrestamo;
     private LocalDate iniFechaInicio;
     private LocalDate finFechaInicio;
+    private Integer idUsuario;
+    private Integer idEjemplar;
+    private Integer idLibro;
+    private LocalDate iniFechaFin;
+    private LocalDate finFechaFin;
+    private LocalDate iniFechaDevolucion;
+    private LocalDate finFechaDevolucion;
+    private Orden orden;
+    private boolean descendente;
+    private Integer limite;
+    private int desplazamiento;
 
     public Prestamo.EstadoPrestamo getEstadoPrestamo() {
         return estadoPrestamo;
@@ -33,11 +55,112 @@ public class PrestamoCriteria {
         this.iniFechaInicio = iniFechaInicio;
     }
 
+    public Integer getIdUsuario() {
+        return idUsuario;
+    }
+
+    public void setIdUsuario(Integer idUsuario) {
+        this.idUsuario = idUsuario;
+    }
+
+    public Integer getIdEjemplar() {
+        return idEjemplar;
+    }
+
+    public void setIdEjemplar(Integer idEjemplar) {
+        this.idEjemplar = idEjemplar;
+    }
+
+    public Integer getIdLibro() {
+        return idLibro;
+    }
+
+    public void setIdLibro(Integer idLibro) {
+        this.idLibro = idLibro;
+    }
+
+    public LocalDate getIniFechaFin() {
+        return iniFechaFin;
+    }
+
+    public void setIniFechaFin(LocalDate iniFechaFin) {
+        this.iniFechaFin = iniFechaFin;
+    }
+
+    public LocalDate getFinFechaFin() {
+        return finFechaFin;
+    }
+
+    public void setFinFechaFin(LocalDate finFechaFin) {
+        this.finFechaFin = finFechaFin;
+    }
+
+    public LocalDate getIniFechaDevolucion() {
+        return iniFechaDevolucion;
+    }
+
+    public void setIniFechaDevolucion(LocalDate iniFechaDevolucion) {
+        this.iniFechaDevolucion = iniFechaDevolucion;
+    }
+
+    public LocalDate getFinFechaDevolucion() {
+        return finFechaDevolucion;
+    }
+
+    public void setFinFechaDevolucion(LocalDate finFechaDevolucion) {
+        this.finFechaDevolucion = finFechaDevolucion;
+    }
+
+    public Orden getOrden() {
+        return orden;
+    }
+
+    /** Sen orden os resultados saen na orde que decida a base de datos. */
+    public void setOrden(Orden orden) {
+        this.orden = orden;
+    }
+
+    public boolean isDescendente() {
+        return descendente;
+    }
+
+    public void setDescendente(boolean descendente) {
+        this.descendente = descendente;
+    }
+
+    public Integer getLimite() {
+        return limite;
+    }
+
+    public void setLimite(Integer limite) {
+        this.limite = limite;
+    }
+
+    public int getDesplazamiento() {
+        return desplazamiento;
+    }
+
+    public void setDesplazamiento(int desplazamiento) {
+        this.desplazamiento = desplazamiento;
+    }
+
     public boolean isPresentEstadoPrestamo(){
         return this.estadoPrestamo!=null;
     }
 
-    public boolean isPresentFechaInicio(){
-        return this.iniFechaInicio!=null && this.finFechaInicio!=null;
+    public boolean isPresentUsuario(){
+        return this.idUsuario!=null;
+    }
+
+    public boolean isPresentEjemplar(){
+        return this.idEjemplar!=null;
+    }
+
+    public boolean isPresentLibro(){
+        return this.idLibro!=null;
+    }
+
+    public boolean isPresentLimite(){
+        return this.limite!=null;
     }
 }
@@ -2,11 +2,13 @@ package dao;
 
 import modelo.Autor;
 
+import java.util.Collection;
 import java.util.Optional;
 
 public interface AutorDAO {
 
     boolean crearAutor(Autor a);
+    boolean crearAutores(Collection<Autor> autores);
     Optional<Autor> buscarPorId(int id);
     Autor actualizarAutor(Autor a);
     boolean eliminarAutor(Autor a);
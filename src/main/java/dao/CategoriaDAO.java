@@ -2,11 +2,13 @@ package dao;
 
 import modelo.Categoria;
 
+import java.util.Collection;
 import java.util.Optional;
 
 public interface CategoriaDAO {
 
     boolean crearCategoria(Categoria c);
+    boolean crearCategorias(Collection<Categoria> categorias);
     Optional<Categoria> buscarPorId(int id);
     Categoria actualizarCategoria(Categoria c);
     boolean eliminarCategoria(Categoria c);
@@ -0,0 +1,286 @@
+package dao;
+
+import criteria.CursorPrestamo;
+import criteria.PrestamoCriteria;
+import dto.Pagina;
+import dto.ResumenPrestamo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import modelo.Prestamo;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Consultas de PrestamoCriteria. O JPQL depende só da "forma" do filtro (que campos veñen
+ * informados e a orde), non dos valores. Así cada forma constrúese unha vez e sempre co mesmo texto,
+ * e Hibernate reutiliza o plan da súa caché (hibernate.query.plan_cache_enabled) en vez de
+ * analizar unha consulta nova en cada chamada.
+ */
+class ConsultaPrestamoCriteria {
+
+    private static final int ESTADO = 1;
+    private static final int USUARIO = 1 << 1;
+    private static final int EJEMPLAR = 1 << 2;
+    private static final int LIBRO = 1 << 3;
+    private static final int INI_FECHA_INICIO = 1 << 4;
+    private static final int FIN_FECHA_INICIO = 1 << 5;
+    private static final int INI_FECHA_FIN = 1 << 6;
+    private static final int FIN_FECHA_FIN = 1 << 7;
+    private static final int INI_FECHA_DEVOLUCION = 1 << 8;
+    private static final int FIN_FECHA_DEVOLUCION = 1 << 9;
+    private static final int DESCENDENTE = 1 << 10;
+    private static final int CURSOR = 1 << 11;
+    // Os bits seguintes gardan o ordinal+1 de PrestamoCriteria.Orden (0 = sen orden)
+    private static final int DESPRAZAMENTO_ORDEN = 12;
+
+    /** Que devolve a consulta. Cada proxección ten a súa propia caché de JPQL por forma. */
+    private enum Proyeccion {
+        PRESTAMO("SELECT p FROM Prestamo p", "p.ejemplar"),
+        // LEFT JOIN aínda que as claves foráneas son NOT NULL: con INNER JOIN o optimizador de MariaDB
+        // pode empezar polo libro e ordenar despois todo o resultado; así sempre parte dos índices de prestamo
+        RESUMEN("SELECT new dto.ResumenPrestamo(p.id, p.fechaInicio, p.fechaFin, "
+                + "p.fechaDevolucion, p.estado, u.id, u.nombre, u.apellidos, e.codigo, l.titulo) "
+                + "FROM Prestamo p LEFT JOIN p.usuario u LEFT JOIN p.ejemplar e LEFT JOIN e.libro l", "e");
+
+        final String select;
+        // Camiño ao exemplar: se a consulta xa fai JOIN co exemplar úsase o seu alias
+        // para que o filtro por libro non engada outro JOIN
+        final String ejemplar;
+        final ConcurrentHashMap<Integer, String> jpqlPorForma = new ConcurrentHashMap<>();
+
+        Proyeccion(String select, String ejemplar) {
+            this.select = select;
+            this.ejemplar = ejemplar;
+        }
+    }
+
+    private ConsultaPrestamoCriteria() {
+    }
+
+    static TypedQuery<Prestamo> crear(EntityManager entityManager, PrestamoCriteria criteria) {
+        return crear(entityManager, criteria, Proyeccion.PRESTAMO, Prestamo.class);
+    }
+
+    static TypedQuery<ResumenPrestamo> crearResumen(EntityManager entityManager, PrestamoCriteria criteria) {
+        return crear(entityManager, criteria, Proyeccion.RESUMEN, ResumenPrestamo.class);
+    }
+
+    static TypedQuery<Prestamo> crearPagina(EntityManager entityManager, PrestamoCriteria criteria,
+                                            CursorPrestamo despuesDe, int tamPagina) {
+        return crearPagina(entityManager, criteria, despuesDe, tamPagina, Proyeccion.PRESTAMO, Prestamo.class);
+    }
+
+    static TypedQuery<ResumenPrestamo> crearResumenPagina(EntityManager entityManager, PrestamoCriteria criteria,
+                                                          CursorPrestamo despuesDe, int tamPagina) {
+        return crearPagina(entityManager, criteria, despuesDe, tamPagina, Proyeccion.RESUMEN, ResumenPrestamo.class);
+    }
+
+    /**
+     * Corta o resultado dunha consulta de crearPagina (que pide unha fila de máis)
+     * e calcula o cursor da seguinte páxina a partir da última fila.
+     */
+    static <T> Pagina<T> paginar(List<T> filas, int tamPagina, PrestamoCriteria criteria,
+                                 Function<T, Integer> id, Function<T, LocalDate> fechaInicio,
+                                 Function<T, LocalDate> fechaFin) {
+        if (filas.size() <= tamPagina) {
+            return new Pagina<>(filas, null);
+        }
+        List<T> elementos = filas.subList(0, tamPagina);
+        T ultima = elementos.get(tamPagina - 1);
+        CursorPrestamo siguiente = switch (ordenPagina(criteria)) {
+            case FECHA_INICIO -> CursorPrestamo.porFecha(fechaInicio.apply(ultima), id.apply(ultima));
+            case FECHA_FIN -> CursorPrestamo.porFecha(fechaFin.apply(ultima), id.apply(ultima));
+            default -> CursorPrestamo.porId(id.apply(ultima));
+        };
+        return new Pagina<>(elementos, siguiente);
+    }
+
+    private static <T> TypedQuery<T> crear(EntityManager entityManager, PrestamoCriteria criteria,
+                                           Proyeccion proyeccion, Class<T> tipo) {
+        int forma = forma(criteria, criteria.getOrden());
+        TypedQuery<T> query = crearConsulta(entityManager, criteria, forma, proyeccion, tipo);
+        // LIMIT/OFFSET van como parámetros JDBC, non cambian o texto da consulta
+        if (criteria.isPresentLimite()) {
+            query.setMaxResults(criteria.getLimite());
+        }
+        if (criteria.getDesplazamiento() > 0) {
+            query.setFirstResult(criteria.getDesplazamiento());
+        }
+        return query;
+    }
+
+    /**
+     * Paxinación por clave: en vez de OFFSET, "WHERE (orde, id) despois do cursor". A base de datos
+     * entra directamente no índice na posición do cursor, así que a páxina 10.000 custa o mesmo ca a primeira.
+     * Ignóranse o límite e o desprazamento do criteria; pídese unha fila de máis para saber se hai outra páxina.
+     */
+    private static <T> TypedQuery<T> crearPagina(EntityManager entityManager, PrestamoCriteria criteria,
+                                                 CursorPrestamo despuesDe, int tamPagina,
+                                                 Proyeccion proyeccion, Class<T> tipo) {
+        if (tamPagina <= 0) {
+            throw new IllegalArgumentException("O tamaño de páxina ten que ser positivo: " + tamPagina);
+        }
+        PrestamoCriteria.Orden orden = ordenPagina(criteria);
+        int forma = forma(criteria, orden);
+        if (despuesDe != null) {
+            if (orden != PrestamoCriteria.Orden.ID && despuesDe.fecha() == null) {
+                throw new IllegalArgumentException("A orde " + orden + " necesita un cursor con data");
+            }
+            forma |= CURSOR;
+        }
+        TypedQuery<T> query = crearConsulta(entityManager, criteria, forma, proyeccion, tipo);
+        if (despuesDe != null) {
+            query.setParameter("cursorId", despuesDe.id());
+            if (orden != PrestamoCriteria.Orden.ID) {
+                query.setParameter("cursorFecha", despuesDe.fecha());
+            }
+        }
+        query.setMaxResults(tamPagina + 1);
+        return query;
+    }
+
+    /** Sen orde, as páxinas van por id. fechaDevolucion pode ser NULL e non vale como clave. */
+    private static PrestamoCriteria.Orden ordenPagina(PrestamoCriteria criteria) {
+        PrestamoCriteria.Orden orden = criteria.getOrden() == null ? PrestamoCriteria.Orden.ID : criteria.getOrden();
+        if (orden == PrestamoCriteria.Orden.FECHA_DEVOLUCION) {
+            throw new IllegalArgumentException("Non se pode paxinar por fechaDevolucion: admite NULL");
+        }
+        return orden;
+    }
+
+    private static <T> TypedQuery<T> crearConsulta(EntityManager entityManager, PrestamoCriteria criteria, int forma,
+                                                   Proyeccion proyeccion, Class<T> tipo) {
+        String jpql = proyeccion.jpqlPorForma.computeIfAbsent(forma, f -> construirJpql(proyeccion, f));
+        TypedQuery<T> query = entityManager.createQuery(jpql, tipo);
+        if ((forma & ESTADO) != 0) {
+            query.setParameter("estadoPrestamo", criteria.getEstadoPrestamo());
+        }
+        if ((forma & USUARIO) != 0) {
+            query.setParameter("idUsuario", criteria.getIdUsuario());
+        }
+        if ((forma & EJEMPLAR) != 0) {
+            query.setParameter("idEjemplar", criteria.getIdEjemplar());
+        }
+        if ((forma & LIBRO) != 0) {
+            query.setParameter("idLibro", criteria.getIdLibro());
+        }
+        if ((forma & INI_FECHA_INICIO) != 0) {
+            query.setParameter("iniFechaInicio", criteria.getIniFechaInicio());
+        }
+        if ((forma & FIN_FECHA_INICIO) != 0) {
+            query.setParameter("finFechaInicio", criteria.getFinFechaInicio());
+        }
+        if ((forma & INI_FECHA_FIN) != 0) {
+            query.setParameter("iniFechaFin", criteria.getIniFechaFin());
+        }
+        if ((forma & FIN_FECHA_FIN) != 0) {
+            query.setParameter("finFechaFin", criteria.getFinFechaFin());
+        }
+        if ((forma & INI_FECHA_DEVOLUCION) != 0) {
+            query.setParameter("iniFechaDevolucion", criteria.getIniFechaDevolucion());
+        }
+        if ((forma & FIN_FECHA_DEVOLUCION) != 0) {
+            query.setParameter("finFechaDevolucion", criteria.getFinFechaDevolucion());
+        }
+        return query;
+    }
+
+    static int forma(PrestamoCriteria criteria, PrestamoCriteria.Orden orden) {
+        int forma = 0;
+        if (criteria.isPresentEstadoPrestamo()) forma |= ESTADO;
+        if (criteria.isPresentUsuario()) forma |= USUARIO;
+        if (criteria.isPresentEjemplar()) forma |= EJEMPLAR;
+        if (criteria.isPresentLibro()) forma |= LIBRO;
+        if (criteria.getIniFechaInicio() != null) forma |= INI_FECHA_INICIO;
+        if (criteria.getFinFechaInicio() != null) forma |= FIN_FECHA_INICIO;
+        if (criteria.getIniFechaFin() != null) forma |= INI_FECHA_FIN;
+        if (criteria.getFinFechaFin() != null) forma |= FIN_FECHA_FIN;
+        if (criteria.getIniFechaDevolucion() != null) forma |= INI_FECHA_DEVOLUCION;
+        if (criteria.getFinFechaDevolucion() != null) forma |= FIN_FECHA_DEVOLUCION;
+        if (criteria.isDescendente()) forma |= DESCENDENTE;
+        if (orden != null) forma |= (orden.ordinal() + 1) << DESPRAZAMENTO_ORDEN;
+        return forma;
+    }
+
+    private static String construirJpql(Proyeccion proyeccion, int forma) {
+        StringBuilder jpql = new StringBuilder(proyeccion.select);
+        String union = " WHERE ";
+        if ((forma & ESTADO) != 0) {
+            jpql.append(union).append("p.estado = :estadoPrestamo");
+            union = " AND ";
+        }
+        if ((forma & USUARIO) != 0) {
+            jpql.append(union).append("p.usuario.id = :idUsuario");
+            union = " AND ";
+        }
+        if ((forma & EJEMPLAR) != 0) {
+            jpql.append(union).append("p.ejemplar.id = :idEjemplar");
+            union = " AND ";
+        }
+        if ((forma & LIBRO) != 0) {
+            jpql.append(union).append(proyeccion.ejemplar).append(".libro.id = :idLibro");
+            union = " AND ";
+        }
+        if ((forma & INI_FECHA_INICIO) != 0) {
+            jpql.append(union).append("p.fechaInicio >= :iniFechaInicio");
+            union = " AND ";
+        }
+        if ((forma & FIN_FECHA_INICIO) != 0) {
+            jpql.append(union).append("p.fechaInicio <= :finFechaInicio");
+            union = " AND ";
+        }
+        if ((forma & INI_FECHA_FIN) != 0) {
+            jpql.append(union).append("p.fechaFin >= :iniFechaFin");
+            union = " AND ";
+        }
+        if ((forma & FIN_FECHA_FIN) != 0) {
+            jpql.append(union).append("p.fechaFin <= :finFechaFin");
+            union = " AND ";
+        }
+        if ((forma & INI_FECHA_DEVOLUCION) != 0) {
+            jpql.append(union).append("p.fechaDevolucion >= :iniFechaDevolucion");
+            union = " AND ";
+        }
+        if ((forma & FIN_FECHA_DEVOLUCION) != 0) {
+            jpql.append(union).append("p.fechaDevolucion <= :finFechaDevolucion");
+            union = " AND ";
+        }
+        int orden = forma >>> DESPRAZAMENTO_ORDEN;
+        if (orden == 0) {
+            return jpql.toString();
+        }
+        boolean descendente = (forma & DESCENDENTE) != 0;
+        String columna = columna(PrestamoCriteria.Orden.values()[orden - 1]);
+        if ((forma & CURSOR) != 0) {
+            String despues = descendente ? " < " : " > ";
+            if (columna == null) {
+                jpql.append(union).append("p.id").append(despues).append(":cursorId");
+            } else {
+                // A primeira condición é redundante pero deixa ao optimizador un rango simple sobre o índice
+                jpql.append(union).append(columna).append(descendente ? " <= " : " >= ").append(":cursorFecha")
+                        .append(" AND (").append(columna).append(despues).append(":cursorFecha")
+                        .append(" OR p.id").append(despues).append(":cursorId)");
+            }
+        }
+        String direccion = descendente ? " DESC" : " ASC";
+        jpql.append(" ORDER BY ");
+        if (columna != null) {
+            jpql.append(columna).append(direccion).append(", ");
+        }
+        // Desempate por id para que LIMIT/OFFSET e o cursor dean páxinas estables
+        jpql.append("p.id").append(direccion);
+        return jpql.toString();
+    }
+
+    private static String columna(PrestamoCriteria.Orden orden) {
+        return switch (orden) {
+            case FECHA_INICIO -> "p.fechaInicio";
+            case FECHA_FIN -> "p.fechaFin";
+            case FECHA_DEVOLUCION -> "p.fechaDevolucion";
+            case ID -> null;
+        };
+    }
+}
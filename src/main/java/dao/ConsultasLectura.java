@@ -0,0 +1,22 @@
+package dao;
+
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+
+/**
+ * Consultas dos listados que só len. Sen flush automático antes de executalas
+ * (o EntityManager do fío pode ter cambios pendentes que non lles afectan) e,
+ * se devolven entidades, en modo só lectura: Hibernate non garda a copia para o dirty checking.
+ */
+class ConsultasLectura {
+
+    private ConsultasLectura() {
+    }
+
+    static <T> TypedQuery<T> soloLectura(TypedQuery<T> query) {
+        query.setFlushMode(FlushModeType.COMMIT);
+        query.setHint(HibernateHints.HINT_READ_ONLY, true);
+        return query;
+    }
+}
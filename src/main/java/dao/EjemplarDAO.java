@@ -2,11 +2,13 @@ package dao;
 
 import modelo.Ejemplar;
 
+import java.util.Collection;
 import java.util.Optional;
 
 public interface EjemplarDAO {
 
     boolean crearEjemplar(Ejemplar e);
+    boolean crearEjemplares(Collection<Ejemplar> ejemplares);
     Optional<Ejemplar> buscarPorId(int id);
     Ejemplar actualizarEjemplar(Ejemplar e);
     boolean eliminarEjemplar(Ejemplar e);
@@ -0,0 +1,92 @@
+package dao;
+
+import persistencia.ProveedorEntityManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Versión asíncrona dos DAO para as pantallas que fan varias consultas independentes:
+ * cada chamada vai nun fío virtual co seu propio EntityManager (enUnidadDeTrabajo) e
+ * devolve un CompletableFuture, así as consultas dunha pantalla solápanse en vez de sumarse.
+ * Como moito hai tantas chamadas na base de datos como conexións no pool; o resto esperan
+ * no semáforo (barato nun fío virtual) e non no timeout de HikariCP.
+ * O EntityManager péchase ao rematar a chamada: as entidades devoltas están desligadas,
+ * así que hai que pedir as asociacións que se vaian usar (PlanCargaPrestamo) ou usar DTOs.
+ */
+public class FachadaAsincrona implements AutoCloseable {
+
+    private final ProveedorEntityManager proveedor;
+    private final UsuarioDAO usuarioDAO;
+    private final PrestamoDAO prestamoDAO;
+    private final LibroDAO libroDAO;
+    private final EjemplarDAO ejemplarDAO;
+    private final Semaphore enCurso;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public FachadaAsincrona(ProveedorEntityManager proveedor, int maxEnCurso) {
+        this(proveedor, new UsuarioDAOHib(proveedor), new PrestamoDAOHib(proveedor),
+                new LibroDAOHib(proveedor), new EjemplarDAOHib(proveedor), maxEnCurso);
+    }
+
+    /**
+     * @param maxEnCurso chamadas simultáneas na base de datos; normalmente o tamaño do pool (BaseDatos.getTamPool)
+     */
+    public FachadaAsincrona(ProveedorEntityManager proveedor, UsuarioDAO usuarioDAO, PrestamoDAO prestamoDAO,
+                            LibroDAO libroDAO, EjemplarDAO ejemplarDAO, int maxEnCurso) {
+        if (maxEnCurso < 1) {
+            throw new IllegalArgumentException("maxEnCurso debe ser positivo: " + maxEnCurso);
+        }
+        this.proveedor = proveedor;
+        this.usuarioDAO = usuarioDAO;
+        this.prestamoDAO = prestamoDAO;
+        this.libroDAO = libroDAO;
+        this.ejemplarDAO = ejemplarDAO;
+        this.enCurso = new Semaphore(maxEnCurso);
+    }
+
+    /** Por exemplo: fachada.usuario(dao -> dao.findByDni(dni)). */
+    public <R> CompletableFuture<R> usuario(Function<UsuarioDAO, R> consulta) {
+        return executar(() -> consulta.apply(usuarioDAO));
+    }
+
+    public <R> CompletableFuture<R> prestamo(Function<PrestamoDAO, R> consulta) {
+        return executar(() -> consulta.apply(prestamoDAO));
+    }
+
+    public <R> CompletableFuture<R> libro(Function<LibroDAO, R> consulta) {
+        return executar(() -> consulta.apply(libroDAO));
+    }
+
+    public <R> CompletableFuture<R> ejemplar(Function<EjemplarDAO, R> consulta) {
+        return executar(() -> consulta.apply(ejemplarDAO));
+    }
+
+    /** Calquera traballo con DAO nunha unidade de traballo propia (p.ex. dúas consultas dependentes). */
+    public <R> CompletableFuture<R> executar(Supplier<R> trabajo) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                enCurso.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return proveedor.enUnidadDeTrabajo(trabajo);
+            } finally {
+                enCurso.release();
+            }
+        }, executor);
+    }
+
+    /** Non acepta chamadas novas e espera polas que están en marcha. */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
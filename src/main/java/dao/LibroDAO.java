@@ -1,15 +1,21 @@
 package dao;
 
+import dto.ResumenLibro;
 import modelo.Libro;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface LibroDAO {
 
     boolean crearLibro(Libro l);
+    boolean crearLibros(Collection<Libro> libros);
     Optional<Libro> buscarPorId(int id);
     Libro actualizarLibro(Libro l);
     boolean eliminarLibro(Libro l);
+    List<ResumenLibro> getResumenLibros(int limite, int desplazamiento);
+    List<ResumenLibro> getResumenLibros(List<Integer> ids);
 
 
 }
@@ -1,76 +1,129 @@
 package dao;
 
-import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.TypedQuery;
+import dto.ResumenLibro;
 import modelo.Libro;
+import persistencia.ProveedorEntityManager;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 public class LibroDAOHib implements LibroDAO {
 
-    private EntityManager entityManager;
-    public LibroDAOHib(EntityManager entityManager) {
-        this.entityManager = entityManager;
+    private final ProveedorEntityManager proveedor;
+    public LibroDAOHib(ProveedorEntityManager proveedor) {
+        this.proveedor = proveedor;
     }
 
     @Override
     public boolean crearLibro(Libro l) {
-        EntityTransaction tran = entityManager.getTransaction();
-        try{
-            tran.begin();
-            entityManager.persist(l);
-            tran.commit();
-            return true;
-        } catch(Exception e){
-            if(tran.isActive()){
-                tran.rollback();
-                return false;
+        return proveedor.conEntityManager(entityManager -> {
+            EntityTransaction tran = entityManager.getTransaction();
+            try{
+                tran.begin();
+                entityManager.persist(l);
+                tran.commit();
+                return true;
+            } catch(Exception e){
+                if(tran.isActive()){
+                    tran.rollback();
+                    return false;
+                }
+                throw new RuntimeException("Error al crear libro" + e);
             }
-            throw new RuntimeException("Error al crear libro" + e);
-        }
+        });
+    }
+
+    @Override
+    public boolean crearLibros(Collection<Libro> libros) {
+        return proveedor.conEntityManager(entityManager ->
+                OperacionesLote.persistir(entityManager, libros, "Error al crear libros"));
     }
 
     @Override
     public Optional<Libro> buscarPorId(int id) {
-        Libro l = entityManager.find(Libro.class, id);
-        return Optional.ofNullable(l);
+        return proveedor.conEntityManager(entityManager -> {
+            Libro l = entityManager.find(Libro.class, id);
+            return Optional.ofNullable(l);
+        });
     }
 
     @Override
     public Libro actualizarLibro(Libro l) {
-        EntityTransaction tran = entityManager.getTransaction();
-        try {
-            tran.begin();
-            Libro libroActualizado = entityManager.merge(l);
-            tran.commit();
-            return libroActualizado;
-        } catch(Exception e){
-            if(tran.isActive()){
-                tran.rollback();
-                return l;
+        return proveedor.conEntityManager(entityManager -> {
+            EntityTransaction tran = entityManager.getTransaction();
+            try {
+                tran.begin();
+                Libro libroActualizado = entityManager.merge(l);
+                tran.commit();
+                return libroActualizado;
+            } catch(Exception e){
+                if(tran.isActive()){
+                    tran.rollback();
+                    return l;
+                }
+                throw new RuntimeException("Error al actualizar libro" + e);
             }
-            throw new RuntimeException("Error al actualizar libro" + e);
-        }
+        });
     }
 
     @Override
     public boolean eliminarLibro(Libro l) {
-        EntityTransaction tran = entityManager.getTransaction();
-        try {
-            tran.begin();
-            Libro libroEnc = entityManager.find(Libro.class, l.getId());
-            if(libroEnc != null){
-                entityManager.remove(libroEnc);
-                tran.commit();
-                return true;
-            }
-            return false;
-        } catch (Exception e){
-            if(tran.isActive()){
-                tran.rollback();
+        return proveedor.conEntityManager(entityManager -> {
+            EntityTransaction tran = entityManager.getTransaction();
+            try {
+                tran.begin();
+                Libro libroEnc = entityManager.find(Libro.class, l.getId());
+                if(libroEnc != null){
+                    entityManager.remove(libroEnc);
+                    tran.commit();
+                    return true;
+                }
                 return false;
+            } catch (Exception e){
+                if(tran.isActive()){
+                    tran.rollback();
+                    return false;
+                }
+                throw new RuntimeException("Error al eliminar libro" + e);
             }
-            throw new RuntimeException("Error al eliminar libro" + e);
+        });
+    }
+
+    /** Páxina do catálogo ordenada por título. Autor e categoría poden faltar (LEFT JOIN). */
+    @Override
+    public List<ResumenLibro> getResumenLibros(int limite, int desplazamiento) {
+        return proveedor.conEntityManager(entityManager -> {
+            String jpql = "SELECT new dto.ResumenLibro(l.id, l.isbn, l.titulo, l.editorial, a.nombre, c.nombre) "
+                    + "FROM Libro l LEFT JOIN l.autor a LEFT JOIN l.categoria c ORDER BY l.titulo, l.id";
+            TypedQuery<ResumenLibro> query = entityManager.createQuery(jpql, ResumenLibro.class);
+            query.setFirstResult(desplazamiento);
+            query.setMaxResults(limite);
+            return ConsultasLectura.soloLectura(query).getResultList();
+        });
+    }
+
+    /** Os libros dos ids na mesma orde (p.ex. a dos resultados de IndiceCatalogo.buscar); os que xa non existen fáltanlle. */
+    @Override
+    public List<ResumenLibro> getResumenLibros(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
         }
+        return proveedor.conEntityManager(entityManager -> {
+            String jpql = "SELECT new dto.ResumenLibro(l.id, l.isbn, l.titulo, l.editorial, a.nombre, c.nombre) "
+                    + "FROM Libro l LEFT JOIN l.autor a LEFT JOIN l.categoria c WHERE l.id IN :ids";
+            TypedQuery<ResumenLibro> query = entityManager.createQuery(jpql, ResumenLibro.class);
+            query.setParameter("ids", ids);
+            Map<Integer, ResumenLibro> porId = new HashMap<>();
+            for (ResumenLibro resumen : ConsultasLectura.soloLectura(query).getResultList()) {
+                porId.put(resumen.id(), resumen);
+            }
+            return ids.stream().map(porId::get).filter(Objects::nonNull).toList();
+        });
     }
 }
@@ -0,0 +1,42 @@
+package dao;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+
+import java.util.Collection;
+
+/**
+ * Alta de coleccións nunha soa transacción. Cada TAM_LOTE entidades faise flush e clear:
+ * os INSERT sáen en lotes JDBC e o contexto de persistencia non medra sen límite.
+ * Se algo falla desfaise o lote enteiro e lánzase RuntimeException coa causa orixinal.
+ */
+class OperacionesLote {
+
+    // O mesmo valor que hibernate.jdbc.batch_size e que o allocationSize das secuencias
+    static final int TAM_LOTE = 50;
+
+    private OperacionesLote() {
+    }
+
+    static <T> boolean persistir(EntityManager entityManager, Collection<T> entidades, String mensajeError) {
+        EntityTransaction tran = entityManager.getTransaction();
+        try {
+            tran.begin();
+            int i = 0;
+            for (T entidad : entidades) {
+                entityManager.persist(entidad);
+                if (++i % TAM_LOTE == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            tran.commit();
+            return true;
+        } catch (Exception e) {
+            if (tran.isActive()) {
+                tran.rollback();
+            }
+            throw new RuntimeException(mensajeError, e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package dao;
+
+import modelo.Prestamo;
+
+/**
+ * Que asociacións de Prestamo se cargan xunto coa consulta dos listados de PrestamoDAO.
+ * Cada plan é un @NamedEntityGraph de Prestamo que se aplica como "fetchgraph", así que
+ * o listado resólvese nunha soa consulta con JOIN en vez dun SELECT por préstamo.
+ */
+public enum PlanCargaPrestamo {
+    /** Só o préstamo; usuario e exemplar quedan como proxies LAZY. */
+    SOLO_PRESTAMO(null),
+    /** Préstamo e usuario. */
+    CON_USUARIO(Prestamo.GRAFO_USUARIO),
+    /** Préstamo, exemplar e libro do exemplar. */
+    CON_EJEMPLAR(Prestamo.GRAFO_EJEMPLAR),
+    /** Préstamo, usuario, exemplar e libro do exemplar. */
+    COMPLETO(Prestamo.GRAFO_COMPLETO);
+
+    private final String grafo;
+
+    PlanCargaPrestamo(String grafo) {
+        this.grafo = grafo;
+    }
+
+    /** Nome do @NamedEntityGraph, ou null se non hai que cargar nada máis. */
+    public String getGrafo() {
+        return grafo;
+    }
+}
@@ -1,18 +1,36 @@
 package dao;
 
+import criteria.CursorPrestamo;
 import criteria.PrestamoCriteria;
+import dto.Pagina;
+import dto.ResumenPrestamo;
 import modelo.Prestamo;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface PrestamoDAO {
 
     boolean crearPrestamo(Prestamo p);
+    boolean crearPrestamos(Collection<Prestamo> prestamos);
     Optional<Prestamo> buscarPorId(int id);
     Prestamo actualizarPrestamo(Prestamo p);
     boolean eliminarPrestamo(Prestamo p);
     public List<Prestamo> recuperarTodos();
+    public List<Prestamo> recuperarTodos(PlanCargaPrestamo plan);
     public List<Prestamo> getPrestamoEstado(Prestamo.EstadoPrestamo estadoPrestamo);
+    public List<Prestamo> getPrestamoEstado(Prestamo.EstadoPrestamo estadoPrestamo, PlanCargaPrestamo plan);
     public List<Prestamo> getPrestamosCriteria(PrestamoCriteria criteria);
+    public List<Prestamo> getPrestamosCriteria(PrestamoCriteria criteria, PlanCargaPrestamo plan);
+    public List<ResumenPrestamo> getResumenPrestamos(PrestamoCriteria criteria);
+
+    // Paxinación por clave: despuesDe é o cursor da páxina anterior (null para a primeira)
+    public Pagina<Prestamo> recuperarPagina(int tamPagina, CursorPrestamo despuesDe, PlanCargaPrestamo plan);
+    public Pagina<Prestamo> getPrestamoEstadoPagina(Prestamo.EstadoPrestamo estadoPrestamo, int tamPagina,
+                                                    CursorPrestamo despuesDe, PlanCargaPrestamo plan);
+    public Pagina<Prestamo> getPrestamosCriteriaPagina(PrestamoCriteria criteria, int tamPagina,
+                                                       CursorPrestamo despuesDe, PlanCargaPrestamo plan);
+    public Pagina<ResumenPrestamo> getResumenPrestamosPagina(PrestamoCriteria criteria, int tamPagina,
+                                                             CursorPrestamo despuesDe);
 }
@@ -1,114 +1,192 @@
 package dao;
 
+import criteria.CursorPrestamo;
 import criteria.PrestamoCriteria;
+import dto.Pagina;
+import dto.ResumenPrestamo;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
 import jakarta.persistence.TypedQuery;
 import modelo.Prestamo;
+import persistencia.ProveedorEntityManager;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public class PrestamoDAOHib implements PrestamoDAO {
 
-    private EntityManager entityManager;
+    private final ProveedorEntityManager proveedor;
 
-    public PrestamoDAOHib(EntityManager entityManager) {
-        this.entityManager = entityManager;
+    public PrestamoDAOHib(ProveedorEntityManager proveedor) {
+        this.proveedor = proveedor;
     }
 
     @Override
     public boolean crearPrestamo(Prestamo p) {
-        EntityTransaction tran = entityManager.getTransaction();
-        try {
-            tran.begin();
-            entityManager.persist(p);
-            tran.commit();
-            return true;
-        } catch (Exception e) {
-            if (tran.isActive()) {
-                tran.rollback();
-                return false;
+        return proveedor.conEntityManager(entityManager -> {
+            EntityTransaction tran = entityManager.getTransaction();
+            try {
+                tran.begin();
+                entityManager.persist(p);
+                tran.commit();
+                return true;
+            } catch (Exception e) {
+                if (tran.isActive()) {
+                    tran.rollback();
+                    return false;
+                }
+                throw new RuntimeException("Error al crear prestamo: " + e);
             }
-            throw new RuntimeException("Error al crear prestamo: " + e);
-        }
+        });
+    }
+
+    @Override
+    public boolean crearPrestamos(Collection<Prestamo> prestamos) {
+        return proveedor.conEntityManager(entityManager ->
+                OperacionesLote.persistir(entityManager, prestamos, "Error al crear prestamos"));
     }
 
     @Override
     public Optional<Prestamo> buscarPorId(int id) {
-        Prestamo p = entityManager.find(Prestamo.class, id);
-        return Optional.ofNullable(p);
+        return proveedor.conEntityManager(entityManager -> {
+            Prestamo p = entityManager.find(Prestamo.class, id);
+            return Optional.ofNullable(p);
+        });
     }
 
     @Override
     public Prestamo actualizarPrestamo(Prestamo p) {
-        EntityTransaction tran = entityManager.getTransaction();
-        try {
-            tran.begin();
-            Prestamo prestamoActualizado = entityManager.merge(p);
-            tran.commit();
-            return prestamoActualizado;
-        } catch (Exception e) {
-            if (tran.isActive()) {
-                tran.rollback();
-                return p;
+        return proveedor.conEntityManager(entityManager -> {
+            EntityTransaction tran = entityManager.getTransaction();
+            try {
+                tran.begin();
+                Prestamo prestamoActualizado = entityManager.merge(p);
+                tran.commit();
+                return prestamoActualizado;
+            } catch (Exception e) {
+                if (tran.isActive()) {
+                    tran.rollback();
+                    return p;
+                }
+                throw new RuntimeException("Error al actualizar prestamo: " + e);
             }
-            throw new RuntimeException("Error al actualizar prestamo: " + e);
-        }
+        });
     }
 
     @Override
     public boolean eliminarPrestamo(Prestamo p) {
-        EntityTransaction tran = entityManager.getTransaction();
-        try {
-            tran.begin();
-            Prestamo prestamoEnc = entityManager.find(Prestamo.class, p.getId());
-            if (prestamoEnc != null) {
-                entityManager.remove(prestamoEnc);
-                tran.commit();
-                return true;
-            }
-            return false;
-        } catch (Exception e) {
-            if (tran.isActive()) {
-                tran.rollback();
+        return proveedor.conEntityManager(entityManager -> {
+            EntityTransaction tran = entityManager.getTransaction();
+            try {
+                tran.begin();
+                Prestamo prestamoEnc = entityManager.find(Prestamo.class, p.getId());
+                if (prestamoEnc != null) {
+                    entityManager.remove(prestamoEnc);
+                    tran.commit();
+                    return true;
+                }
                 return false;
+            } catch (Exception e) {
+                if (tran.isActive()) {
+                    tran.rollback();
+                    return false;
+                }
+                throw new RuntimeException("Error al eliminar prestamo: " + e);
             }
-            throw new RuntimeException("Error al eliminar prestamo: " + e);
-        }
+        });
     }
 
     public List<Prestamo> recuperarTodos(){
-        String jpql = "SELECT p FROM Prestamo p";
-        TypedQuery<Prestamo> query = entityManager.
-                createQuery(jpql, Prestamo.class);
-        return query.getResultList();
+        return recuperarTodos(PlanCargaPrestamo.SOLO_PRESTAMO);
+    }
+
+    public List<Prestamo> recuperarTodos(PlanCargaPrestamo plan){
+        return proveedor.conEntityManager(entityManager -> {
+            String jpql = "SELECT p FROM Prestamo p";
+            TypedQuery<Prestamo> query = entityManager.
+                    createQuery(jpql, Prestamo.class);
+            aplicarPlan(entityManager, query, plan);
+            return query.getResultList();
+        });
     }
 
     public List<Prestamo> getPrestamoEstado(Prestamo.EstadoPrestamo estadoPrestamo){
-        String jpql= "SELECT p FROM Prestamo p WHERE " + "p.estado =:estadoPrestamo";
-        TypedQuery<Prestamo> query = entityManager.
-                createQuery(jpql, Prestamo.class);
-        query.setParameter("estadoPrestamo", estadoPrestamo);
-        return query.getResultList();
+        return getPrestamoEstado(estadoPrestamo, PlanCargaPrestamo.SOLO_PRESTAMO);
+    }
+
+    public List<Prestamo> getPrestamoEstado(Prestamo.EstadoPrestamo estadoPrestamo, PlanCargaPrestamo plan){
+        return proveedor.conEntityManager(entityManager -> {
+            String jpql= "SELECT p FROM Prestamo p WHERE " + "p.estado =:estadoPrestamo";
+            TypedQuery<Prestamo> query = entityManager.
+                    createQuery(jpql, Prestamo.class);
+            query.setParameter("estadoPrestamo", estadoPrestamo);
+            aplicarPlan(entityManager, query, plan);
+            return query.getResultList();
+        });
     }
 
     public List<Prestamo> getPrestamosCriteria(PrestamoCriteria criteria){
-        String jpql = "SELECT p FROM Prestamo p WHERE 1=1";
-        if (criteria.isPresentEstadoPrestamo()){
-            jpql+= " AND p.estado = :estadoPrestamo";
-        }
-        if (criteria.isPresentFechaInicio()){
-            jpql+= " AND p.fechaInicio BETWEEN :fechaInicio AND :fechaFin";
-        }
-        TypedQuery<Prestamo> query = entityManager.createQuery(jpql, Prestamo.class);
-        if (criteria.isPresentEstadoPrestamo()){
-            query.setParameter("estadoPrestamo", criteria.getEstadoPrestamo());
-        }
-        if (criteria.isPresentFechaInicio()){
-            query.setParameter("fechaInicio", criteria.getIniFechaInicio());
-            query.setParameter("fechaFin", criteria.getFinFechaInicio());
+        return getPrestamosCriteria(criteria, PlanCargaPrestamo.SOLO_PRESTAMO);
+    }
+
+    public List<Prestamo> getPrestamosCriteria(PrestamoCriteria criteria, PlanCargaPrestamo plan){
+        return proveedor.conEntityManager(entityManager -> {
+            TypedQuery<Prestamo> query = ConsultaPrestamoCriteria.crear(entityManager, criteria);
+            aplicarPlan(entityManager, query, plan);
+            return query.getResultList();
+        });
+    }
+
+    /** Listado sen entidades: unha fila por préstamo con usuario, exemplar e libro nunha soa consulta. */
+    public List<ResumenPrestamo> getResumenPrestamos(PrestamoCriteria criteria){
+        return proveedor.conEntityManager(entityManager -> {
+            TypedQuery<ResumenPrestamo> query = ConsultaPrestamoCriteria.crearResumen(entityManager, criteria);
+            return ConsultasLectura.soloLectura(query).getResultList();
+        });
+    }
+
+    /** Todos os préstamos por id, de tamPagina en tamPagina. */
+    public Pagina<Prestamo> recuperarPagina(int tamPagina, CursorPrestamo despuesDe, PlanCargaPrestamo plan){
+        PrestamoCriteria criteria = new PrestamoCriteria();
+        criteria.setOrden(PrestamoCriteria.Orden.ID);
+        return getPrestamosCriteriaPagina(criteria, tamPagina, despuesDe, plan);
+    }
+
+    /** Os préstamos dun estado por fechaInicio e id, que é a orde do índice (estado, fecha_inicio). */
+    public Pagina<Prestamo> getPrestamoEstadoPagina(Prestamo.EstadoPrestamo estadoPrestamo, int tamPagina,
+                                                    CursorPrestamo despuesDe, PlanCargaPrestamo plan){
+        PrestamoCriteria criteria = new PrestamoCriteria();
+        criteria.setEstadoPrestamo(estadoPrestamo);
+        criteria.setOrden(PrestamoCriteria.Orden.FECHA_INICIO);
+        return getPrestamosCriteriaPagina(criteria, tamPagina, despuesDe, plan);
+    }
+
+    /** Páxina na orde do criteria (por id se non ten); o cursor ten que vir da mesma orde. */
+    public Pagina<Prestamo> getPrestamosCriteriaPagina(PrestamoCriteria criteria, int tamPagina,
+                                                       CursorPrestamo despuesDe, PlanCargaPrestamo plan){
+        return proveedor.conEntityManager(entityManager -> {
+            TypedQuery<Prestamo> query = ConsultaPrestamoCriteria.crearPagina(entityManager, criteria, despuesDe, tamPagina);
+            aplicarPlan(entityManager, query, plan);
+            return ConsultaPrestamoCriteria.paginar(query.getResultList(), tamPagina, criteria,
+                    Prestamo::getId, Prestamo::getFechaInicio, Prestamo::getFechaFin);
+        });
+    }
+
+    public Pagina<ResumenPrestamo> getResumenPrestamosPagina(PrestamoCriteria criteria, int tamPagina,
+                                                             CursorPrestamo despuesDe){
+        return proveedor.conEntityManager(entityManager -> {
+            TypedQuery<ResumenPrestamo> query =
+                    ConsultaPrestamoCriteria.crearResumenPagina(entityManager, criteria, despuesDe, tamPagina);
+            return ConsultaPrestamoCriteria.paginar(ConsultasLectura.soloLectura(query).getResultList(), tamPagina, criteria,
+                    ResumenPrestamo::id, ResumenPrestamo::fechaInicio, ResumenPrestamo::fechaFin);
+        });
+    }
+
+    /** O grafo vai como "fetchgraph": as asociacións do grafo cárganse no mesmo SELECT, o resto segue LAZY. */
+    private static void aplicarPlan(EntityManager entityManager, TypedQuery<Prestamo> query, PlanCargaPrestamo plan) {
+        if (plan.getGrafo() != null) {
+            query.setHint("jakarta.persistence.fetchgraph", entityManager.getEntityGraph(plan.getGrafo()));
         }
-        return query.getResultList();
     }
 }
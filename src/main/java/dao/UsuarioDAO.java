@@ -1,16 +1,24 @@
 package dao;
 
+import dto.FavoritosUsuario;
 import modelo.Usuario;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface UsuarioDAO {
 
     boolean crearUsuario(Usuario u);
+    boolean crearUsuarios(Collection<Usuario> usuarios);
     Optional<Usuario> buscarPorId(int id);
     Usuario actualizarUsuario(Usuario u);
     boolean eliminarUsuario(Usuario u);
     public Optional<Usuario> findByDni(String dniParametro);
+    public Map<String, Usuario> findByDnis(Collection<String> dnis);
+    public Optional<Usuario> findByEmail(String email);
     public List<Object[]> favoritosPorUsario();
+    public List<FavoritosUsuario> favoritosPorUsuario(int tamPagina, int despuesDeId);
+    public List<FavoritosUsuario> topFavoritos(int n, boolean usarContador);
 }
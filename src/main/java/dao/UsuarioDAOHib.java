@@ -1,93 +1,193 @@
 package dao;
 
-import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
 import jakarta.persistence.TypedQuery;
+import dto.FavoritosUsuario;
 import modelo.Usuario;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import persistencia.ProveedorEntityManager;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class UsuarioDAOHib implements UsuarioDAO{
 
-    private EntityManager entityManager;
-    public UsuarioDAOHib(EntityManager entityManager) {
-        this.entityManager = entityManager;
+    private final ProveedorEntityManager proveedor;
+    public UsuarioDAOHib(ProveedorEntityManager proveedor) {
+        this.proveedor = proveedor;
     }
 
     @Override
     public boolean crearUsuario(Usuario u) {
-        EntityTransaction tran = entityManager.getTransaction();
-        try {
-            tran.begin();
-            entityManager.persist(u);
-            tran.commit();
-            return true;
-        }catch (Exception e) {
-            if (tran.isActive()) {
-                tran.rollback();
-                return false;
+        return proveedor.conEntityManager(entityManager -> {
+            EntityTransaction tran = entityManager.getTransaction();
+            try {
+                tran.begin();
+                entityManager.persist(u);
+                tran.commit();
+                return true;
+            }catch (Exception e) {
+                if (tran.isActive()) {
+                    tran.rollback();
+                    return false;
+                }
+                throw new RuntimeException("Error al crear usuario" + e);
             }
-            throw new RuntimeException("Error al crear usuario" + e);
-        }
+        });
+    }
+
+    @Override
+    public boolean crearUsuarios(Collection<Usuario> usuarios) {
+        return proveedor.conEntityManager(entityManager ->
+                OperacionesLote.persistir(entityManager, usuarios, "Error al crear usuarios"));
     }
 
     @Override
     public Optional<Usuario> buscarPorId(int id) {
-        Usuario u = entityManager.find(Usuario.class, id);
-        return Optional.ofNullable(u);
+        return proveedor.conEntityManager(entityManager -> {
+            Usuario u = entityManager.find(Usuario.class, id);
+            return Optional.ofNullable(u);
+        });
     }
 
     @Override
     public Usuario actualizarUsuario(Usuario u) {
-        EntityTransaction tran = entityManager.getTransaction();
-        try {
-            tran.begin();
-            Usuario usuarioActualizado = entityManager.merge(u);
-            tran.commit();
-            return usuarioActualizado;
-        }catch (Exception e) {
-            if (tran.isActive()) {
-                tran.rollback();
-                return u;
+        return proveedor.conEntityManager(entityManager -> {
+            EntityTransaction tran = entityManager.getTransaction();
+            try {
+                tran.begin();
+                Usuario usuarioActualizado = entityManager.merge(u);
+                tran.commit();
+                return usuarioActualizado;
+            }catch (Exception e) {
+                if (tran.isActive()) {
+                    tran.rollback();
+                    return u;
+                }
+                throw new RuntimeException("Error al modificar usuario" + e);
             }
-            throw new RuntimeException("Error al modificar usuario" + e);
-        }
+        });
     }
 
     @Override
     public boolean eliminarUsuario(Usuario u) {
-        EntityTransaction tran = entityManager.getTransaction();
-        try {
-            tran.begin();
-            Usuario usuarioEnc = entityManager.find(Usuario.class, u.getId());
-            if(usuarioEnc != null){
-                entityManager.remove(usuarioEnc);
-                tran.commit();
-                return true;
-            }
-            return false;
-        }catch (Exception e) {
-            if (tran.isActive()) {
-                tran.rollback();
+        return proveedor.conEntityManager(entityManager -> {
+            EntityTransaction tran = entityManager.getTransaction();
+            try {
+                tran.begin();
+                Usuario usuarioEnc = entityManager.find(Usuario.class, u.getId());
+                if(usuarioEnc != null){
+                    entityManager.remove(usuarioEnc);
+                    tran.commit();
+                    return true;
+                }
                 return false;
+            }catch (Exception e) {
+                if (tran.isActive()) {
+                    tran.rollback();
+                    return false;
+                }
+                throw new RuntimeException("Error al borrar usuario" + e);
             }
-            throw new RuntimeException("Error al borrar usuario" + e);
-        }
+        });
     }
 
+    /**
+     * Busca pola clave natural: Hibernate resolve DNI -> id na caché usuario-dni e o usuario na rexión usuario,
+     * así que un DNI repetido non vai á base de datos.
+     */
     public Optional<Usuario> findByDni(String dniPar){
-        String jpql = "SELECT u FROM Usuario u WHERE u.dni = :dniPar";
-        TypedQuery<Usuario> query = entityManager.createQuery(jpql, Usuario.class);
-        query.setParameter("dniPar", dniPar);
-        Usuario usr = query.getSingleResult();
-        Optional<Usuario> optUsr = Optional.of(query.getSingleResult());
-        return optUsr;
+        return proveedor.conEntityManager(entityManager -> entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(Usuario.class)
+                .loadOptional(dniPar));
+    }
+
+    /** Varios DNI dunha vez (lectura de carnés en lote): os que non están na caché resólvense nunha consulta IN. */
+    public Map<String, Usuario> findByDnis(Collection<String> dnis){
+        return proveedor.conEntityManager(entityManager -> {
+            List<Usuario> usuarios = entityManager.unwrap(Session.class)
+                    .byMultipleNaturalId(Usuario.class)
+                    .enableOrderedReturn(false)
+                    .multiLoad(List.copyOf(dnis));
+            Map<String, Usuario> porDni = new HashMap<>();
+            for (Usuario u : usuarios) {
+                // Sen orde non hai posicións: os DNI que non existen simplemente non aparecen
+                if (u != null) {
+                    porDni.put(u.getDni(), u);
+                }
+            }
+            return porDni;
+        });
+    }
+
+    /**
+     * O email non pode ser outra clave natural (Hibernate só admite unha por entidade): vai por unha consulta
+     * cacheada. Hibernate invalídaa cando cambia calquera fila de usuario, así que nunca devolve un email vello.
+     */
+    public Optional<Usuario> findByEmail(String email){
+        return proveedor.conEntityManager(entityManager -> {
+            String jpql = "SELECT u FROM Usuario u WHERE u.email = :email";
+            TypedQuery<Usuario> query = entityManager.createQuery(jpql, Usuario.class);
+            query.setParameter("email", email);
+            query.setHint(HibernateHints.HINT_CACHEABLE, true);
+            query.setHint(HibernateHints.HINT_CACHE_REGION, "usuario-email");
+            // getResultList e non getResultStream: as consultas en stream non pasan pola caché de consultas
+            List<Usuario> resultado = query.getResultList();
+            return resultado.isEmpty() ? Optional.empty() : Optional.of(resultado.get(0));
+        });
     }
 
     public List<Object[]> favoritosPorUsario(){
-        String jpql = "SELECT u, count(l) FROM Usuario u LEFT JOIN u.librosFavoritos l GROUP BY u";
-        TypedQuery<Object[]> query =  entityManager.createQuery(jpql, Object[].class);
-        return query.getResultList();
+        return proveedor.conEntityManager(entityManager -> {
+            String jpql = "SELECT u, count(l) FROM Usuario u LEFT JOIN u.librosFavoritos l GROUP BY u";
+            TypedQuery<Object[]> query =  entityManager.createQuery(jpql, Object[].class);
+            return query.getResultList();
+        });
+    }
+
+    /**
+     * Informe de favoritos paxinado por id (despuesDeId = último id da páxina anterior, 0 para a primeira).
+     * Sen GROUP BY: SIZE() é unha subconsulta COUNT por usuario sobre a clave primaria de favoritos,
+     * así que cada páxina custa o mesmo sen importar o tamaño da táboa.
+     */
+    public List<FavoritosUsuario> favoritosPorUsuario(int tamPagina, int despuesDeId){
+        return proveedor.conEntityManager(entityManager -> {
+            String jpql = "SELECT new dto.FavoritosUsuario(u.id, u.nombre, u.apellidos, SIZE(u.librosFavoritos)) "
+                    + "FROM Usuario u WHERE u.id > :despuesDeId ORDER BY u.id";
+            TypedQuery<FavoritosUsuario> query = entityManager.createQuery(jpql, FavoritosUsuario.class);
+            query.setParameter("despuesDeId", despuesDeId);
+            query.setMaxResults(tamPagina);
+            return ConsultasLectura.soloLectura(query).getResultList();
+        });
+    }
+
+    /**
+     * Os n usuarios con máis favoritos. Co contador usuario.num_favoritos é unha lectura do índice
+     * (num_favoritos, id) de n filas; sen el agrúpase favoritos só por usuario_id e despois únense os nomes.
+     * LEFT JOIN para que as n filas agrupadas guíen a unión; con JOIN MariaDB percorre usuario enteiro.
+     */
+    public List<FavoritosUsuario> topFavoritos(int n, boolean usarContador){
+        return proveedor.conEntityManager(entityManager -> {
+            String jpql;
+            if (usarContador) {
+                jpql = "SELECT new dto.FavoritosUsuario(u.id, u.nombre, u.apellidos, u.numFavoritos) "
+                        + "FROM Usuario u WHERE u.numFavoritos > 0 ORDER BY u.numFavoritos DESC, u.id DESC";
+            } else {
+                jpql = "SELECT new dto.FavoritosUsuario(u.id, u.nombre, u.apellidos, c.total) "
+                        + "FROM (SELECT f.id AS idUsuario, COUNT(*) AS total FROM Usuario f JOIN f.librosFavoritos "
+                        + "GROUP BY f.id ORDER BY COUNT(*) DESC, f.id DESC LIMIT :n) c "
+                        + "LEFT JOIN Usuario u ON u.id = c.idUsuario ORDER BY c.total DESC, u.id DESC";
+            }
+            TypedQuery<FavoritosUsuario> query = entityManager.createQuery(jpql, FavoritosUsuario.class);
+            if (!usarContador) {
+                query.setParameter("n", n);
+            }
+            query.setMaxResults(n);
+            return ConsultasLectura.soloLectura(query).getResultList();
+        });
     }
 }
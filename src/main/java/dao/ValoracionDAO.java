@@ -0,0 +1,16 @@
+package dao;
+
+import dto.ValoracionAgregada;
+import modelo.LibroCategoria;
+
+import java.util.List;
+
+public interface ValoracionDAO {
+
+    LibroCategoria valorar(LibroCategoria valoracion);
+    boolean eliminarValoracion(LibroCategoria valoracion);
+    ValoracionAgregada valoracionLibro(int idLibro);
+    ValoracionAgregada valoracionLibro(int idLibro, int idCategoria);
+    List<ValoracionAgregada> valoracionesPorCategoria(int idLibro);
+
+}
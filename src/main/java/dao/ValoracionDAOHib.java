@@ -0,0 +1,130 @@
+package dao;
+
+import dto.ValoracionAgregada;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.Query;
+import modelo.LibroCategoria;
+import modelo.LibroCategoriaId;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import persistencia.ProveedorEntityManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Valoracións (LibroCategoria) e os seus agregados. As táboas valoracion_libro e valoracion_libro_categoria
+ * (migración V5) mantéñenas os triggers de libro_categoria na mesma transacción ca cada valoración:
+ * ler a media ou o histograma dun libro é unha busca pola clave primaria, sen agrupar as súas valoracións.
+ */
+public class ValoracionDAOHib implements ValoracionDAO {
+
+    private static final String SELECCIONAR = "SELECT libro_id, %s AS categoria_id, num_valoraciones, "
+            + "suma_puntuaciones, p0, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10 FROM %s WHERE libro_id = :libro";
+    private static final String POR_LIBRO = SELECCIONAR.formatted("NULL", "valoracion_libro");
+    private static final String POR_LIBRO_CATEGORIA = SELECCIONAR.formatted("categoria_id", "valoracion_libro_categoria")
+            + " AND categoria_id = :categoria";
+    private static final String CATEGORIAS_LIBRO = SELECCIONAR.formatted("categoria_id", "valoracion_libro_categoria")
+            + " ORDER BY categoria_id";
+
+    private final ProveedorEntityManager proveedor;
+
+    public ValoracionDAOHib(ProveedorEntityManager proveedor) {
+        this.proveedor = proveedor;
+    }
+
+    /** Crea a valoración ou cambia a súa puntuación (a clave é usuario, libro e categoría). */
+    @Override
+    public LibroCategoria valorar(LibroCategoria valoracion) {
+        return proveedor.conEntityManager(entityManager -> {
+            EntityTransaction tran = entityManager.getTransaction();
+            try {
+                tran.begin();
+                LibroCategoria gardada = entityManager.merge(valoracion);
+                tran.commit();
+                return gardada;
+            } catch (Exception e) {
+                if (tran.isActive()) {
+                    tran.rollback();
+                    return valoracion;
+                }
+                throw new RuntimeException("Error al guardar valoración" + e);
+            }
+        });
+    }
+
+    @Override
+    public boolean eliminarValoracion(LibroCategoria valoracion) {
+        return proveedor.conEntityManager(entityManager -> {
+            EntityTransaction tran = entityManager.getTransaction();
+            try {
+                tran.begin();
+                LibroCategoria encontrada = entityManager.find(LibroCategoria.class,
+                        new LibroCategoriaId(valoracion.getUsuarioId(), valoracion.getLibroId(), valoracion.getCategoriaId()));
+                if (encontrada != null) {
+                    entityManager.remove(encontrada);
+                    tran.commit();
+                    return true;
+                }
+                tran.commit();
+                return false;
+            } catch (Exception e) {
+                if (tran.isActive()) {
+                    tran.rollback();
+                    return false;
+                }
+                throw new RuntimeException("Error al eliminar valoración" + e);
+            }
+        });
+    }
+
+    /** Valoracións do libro en todas as categorías. */
+    @Override
+    public ValoracionAgregada valoracionLibro(int idLibro) {
+        List<ValoracionAgregada> filas = proveedor.conEntityManager(entityManager ->
+                ler(entityManager.createNativeQuery(POR_LIBRO)
+                        .setParameter("libro", idLibro)));
+        return filas.isEmpty() ? ValoracionAgregada.sen(idLibro, null) : filas.get(0);
+    }
+
+    @Override
+    public ValoracionAgregada valoracionLibro(int idLibro, int idCategoria) {
+        List<ValoracionAgregada> filas = proveedor.conEntityManager(entityManager ->
+                ler(entityManager.createNativeQuery(POR_LIBRO_CATEGORIA)
+                        .setParameter("libro", idLibro)
+                        .setParameter("categoria", idCategoria)));
+        return filas.isEmpty() ? ValoracionAgregada.sen(idLibro, idCategoria) : filas.get(0);
+    }
+
+    /** Valoracións do libro en cada categoría na que foi valorado. */
+    @Override
+    public List<ValoracionAgregada> valoracionesPorCategoria(int idLibro) {
+        return proveedor.conEntityManager(entityManager ->
+                ler(entityManager.createNativeQuery(CATEGORIAS_LIBRO)
+                        .setParameter("libro", idLibro)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ValoracionAgregada> ler(Query consulta) {
+        // Os triggers escriben os agregados con cada LibroCategoria: as pendentes da sesión van antes á base
+        NativeQuery<Object[]> query = consulta.unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(LibroCategoria.class)
+                .addScalar("libro_id", StandardBasicTypes.INTEGER)
+                .addScalar("categoria_id", StandardBasicTypes.INTEGER)
+                .addScalar("num_valoraciones", StandardBasicTypes.INTEGER)
+                .addScalar("suma_puntuaciones", StandardBasicTypes.LONG);
+        for (int p = 0; p <= 10; p++) {
+            query.addScalar("p" + p, StandardBasicTypes.INTEGER);
+        }
+        List<ValoracionAgregada> resultado = new ArrayList<>();
+        for (Object[] fila : query.getResultList()) {
+            List<Integer> histograma = new ArrayList<>(11);
+            for (int p = 0; p <= 10; p++) {
+                histograma.add((Integer) fila[4 + p]);
+            }
+            resultado.add(new ValoracionAgregada((Integer) fila[0], (Integer) fila[1], (Integer) fila[2],
+                    (Long) fila[3], List.copyOf(histograma)));
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,20 @@
+package dto;
+
+/**
+ * Número de exemplares dun libro en cada estado.
+ */
+public record Disponibilidad(
+        int disponibles,
+        int prestados,
+        int mantenimiento) {
+
+    public static final Disponibilidad NINGUNA = new Disponibilidad(0, 0, 0);
+
+    public boolean hayDisponible() {
+        return disponibles > 0;
+    }
+
+    public int total() {
+        return disponibles + prestados + mantenimiento;
+    }
+}
@@ -0,0 +1,11 @@
+package dto;
+
+/**
+ * Fila do informe de favoritos: o usuario e cantos libros ten marcados como favoritos.
+ */
+public record FavoritosUsuario(
+        int idUsuario,
+        String nombre,
+        String apellidos,
+        long totalFavoritos) {
+}
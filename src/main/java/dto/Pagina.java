@@ -0,0 +1,16 @@
+package dto;
+
+import criteria.CursorPrestamo;
+
+import java.util.List;
+
+/**
+ * Unha páxina dun listado de préstamos. {@code siguiente} é o cursor para pedir a seguinte,
+ * ou null se esta é a última.
+ */
+public record Pagina<T>(List<T> elementos, CursorPrestamo siguiente) {
+
+    public boolean hayMas() {
+        return siguiente != null;
+    }
+}
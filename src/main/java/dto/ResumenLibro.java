@@ -0,0 +1,13 @@
+package dto;
+
+/**
+ * Fila do catálogo de libros co nome do autor e da categoría.
+ */
+public record ResumenLibro(
+        int id,
+        String isbn,
+        String titulo,
+        String editorial,
+        String autor,
+        String categoria) {
+}
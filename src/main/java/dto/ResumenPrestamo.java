@@ -0,0 +1,21 @@
+package dto;
+
+import modelo.Prestamo;
+
+import java.time.LocalDate;
+
+/**
+ * Fila do listado de préstamos: só os datos que se amosan, sen entidades xestionadas detrás.
+ */
+public record ResumenPrestamo(
+        int id,
+        LocalDate fechaInicio,
+        LocalDate fechaFin,
+        LocalDate fechaDevolucion,
+        Prestamo.EstadoPrestamo estado,
+        int idUsuario,
+        String nombreUsuario,
+        String apellidosUsuario,
+        String codigoEjemplar,
+        String tituloLibro) {
+}
@@ -0,0 +1,25 @@
+package dto;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Valoracións dun libro (idCategoria null) ou dun libro nunha categoría: cantas hai, a súa suma
+ * e cantas de cada puntuación (histograma.get(p) para p de 0 a 10).
+ */
+public record ValoracionAgregada(
+        int idLibro,
+        Integer idCategoria,
+        int numValoraciones,
+        long sumaPuntuaciones,
+        List<Integer> histograma) {
+
+    public static ValoracionAgregada sen(int idLibro, Integer idCategoria) {
+        return new ValoracionAgregada(idLibro, idCategoria, 0, 0, Collections.nCopies(11, 0));
+    }
+
+    /** Media das puntuacións, 0 se aínda non hai ningunha. */
+    public double media() {
+        return numValoraciones == 0 ? 0 : (double) sumaPuntuaciones / numValoraciones;
+    }
+}
@@ -0,0 +1,147 @@
+package generador;
+
+import java.time.LocalDate;
+
+public class ConfiguracionGenerador {
+
+    private int usuarios = 1000;
+    private int autores = 100;
+    private int categorias = 20;
+    private int libros = 2000;
+    private int mediaEjemplaresPorLibro = 3;
+    private int prestamos = 10000;
+    private int mediaFavoritosPorUsuario = 3;
+    private int mediaValoracionesPorUsuario = 2;
+
+    // Exponentes de Zipf: 0 = uniforme, ~1 = moi concentrado nos primeiros
+    private double sesgoLibros = 1.0;
+    private double sesgoUsuarios = 0.8;
+
+    private LocalDate hoy = LocalDate.now();
+    private int anosHistorico = 5;
+    private long semilla = 42;
+    private int tamLote = 5000;
+
+    /** Tamaños proporcionais a un número de préstamos, como nunha biblioteca real. */
+    public static ConfiguracionGenerador paraPrestamos(int prestamos) {
+        ConfiguracionGenerador c = new ConfiguracionGenerador();
+        c.setPrestamos(prestamos);
+        c.setUsuarios(Math.max(10, prestamos / 10));
+        c.setLibros(Math.max(20, prestamos / 20));
+        c.setAutores(Math.max(10, prestamos / 200));
+        c.setCategorias(Math.max(5, Math.min(200, prestamos / 5000)));
+        return c;
+    }
+
+    public int getUsuarios() {
+        return usuarios;
+    }
+
+    public void setUsuarios(int usuarios) {
+        this.usuarios = usuarios;
+    }
+
+    public int getAutores() {
+        return autores;
+    }
+
+    public void setAutores(int autores) {
+        this.autores = autores;
+    }
+
+    public int getCategorias() {
+        return categorias;
+    }
+
+    public void setCategorias(int categorias) {
+        this.categorias = categorias;
+    }
+
+    public int getLibros() {
+        return libros;
+    }
+
+    public void setLibros(int libros) {
+        this.libros = libros;
+    }
+
+    public int getMediaEjemplaresPorLibro() {
+        return mediaEjemplaresPorLibro;
+    }
+
+    public void setMediaEjemplaresPorLibro(int mediaEjemplaresPorLibro) {
+        this.mediaEjemplaresPorLibro = mediaEjemplaresPorLibro;
+    }
+
+    public int getPrestamos() {
+        return prestamos;
+    }
+
+    public void setPrestamos(int prestamos) {
+        this.prestamos = prestamos;
+    }
+
+    public int getMediaFavoritosPorUsuario() {
+        return mediaFavoritosPorUsuario;
+    }
+
+    public void setMediaFavoritosPorUsuario(int mediaFavoritosPorUsuario) {
+        this.mediaFavoritosPorUsuario = mediaFavoritosPorUsuario;
+    }
+
+    public int getMediaValoracionesPorUsuario() {
+        return mediaValoracionesPorUsuario;
+    }
+
+    public void setMediaValoracionesPorUsuario(int mediaValoracionesPorUsuario) {
+        this.mediaValoracionesPorUsuario = mediaValoracionesPorUsuario;
+    }
+
+    public double getSesgoLibros() {
+        return sesgoLibros;
+    }
+
+    public void setSesgoLibros(double sesgoLibros) {
+        this.sesgoLibros = sesgoLibros;
+    }
+
+    public double getSesgoUsuarios() {
+        return sesgoUsuarios;
+    }
+
+    public void setSesgoUsuarios(double sesgoUsuarios) {
+        this.sesgoUsuarios = sesgoUsuarios;
+    }
+
+    public LocalDate getHoy() {
+        return hoy;
+    }
+
+    public void setHoy(LocalDate hoy) {
+        this.hoy = hoy;
+    }
+
+    public int getAnosHistorico() {
+        return anosHistorico;
+    }
+
+    public void setAnosHistorico(int anosHistorico) {
+        this.anosHistorico = anosHistorico;
+    }
+
+    public long getSemilla() {
+        return semilla;
+    }
+
+    public void setSemilla(long semilla) {
+        this.semilla = semilla;
+    }
+
+    public int getTamLote() {
+        return tamLote;
+    }
+
+    public void setTamLote(int tamLote) {
+        this.tamLote = tamLote;
+    }
+}
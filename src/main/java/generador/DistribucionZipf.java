@@ -0,0 +1,37 @@
+package generador;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Distribución de Zipf sobre 1..n: o rango 1 é o máis frecuente.
+ * Con exponente 0 a distribución é uniforme.
+ */
+public class DistribucionZipf {
+
+    private final double[] acumulada;
+
+    public DistribucionZipf(int n, double exponente) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("O tamaño da distribución ten que ser positivo: " + n);
+        }
+        acumulada = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            total += 1.0 / Math.pow(i + 1, exponente);
+            acumulada[i] = total;
+        }
+        for (int i = 0; i < n; i++) {
+            acumulada[i] /= total;
+        }
+    }
+
+    /** Devolve un rango entre 1 e n. */
+    public int siguiente(Random random) {
+        int pos = Arrays.binarySearch(acumulada, random.nextDouble());
+        if (pos < 0) {
+            pos = -pos - 1;
+        }
+        return Math.min(pos, acumulada.length - 1) + 1;
+    }
+}
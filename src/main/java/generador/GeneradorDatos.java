@@ -0,0 +1,423 @@
+package generador;
+
+import java.sql.*;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Xera datos sintéticos con integridade referencial e cárgaos por lotes JDBC
+ * (o conector de MariaDB envía cada lote nun único paquete bulk).
+ * Os ids xéranse aquí, a continuación dos que xa existan, e ao final adiántanse as secuencias.
+ *
+ * Uso: java generador.GeneradorDatos --prestamos=1000000 [--usuarios=N --libros=N --sesgo-libros=1.0 ...]
+ * A conexión lese de DB_URL, DB_USER e DB_PASS, igual que no docker-compose.
+ */
+public class GeneradorDatos {
+
+    private static final String[] NOMBRES = {"Ana", "Carlos", "Laura", "Xoán", "María", "José", "Lucía", "Pablo",
+            "Uxía", "Manuel", "Carmen", "Antonio", "Sofía", "Brais", "Elena", "David", "Iria", "Javier", "Noa", "Andrés"};
+    private static final String[] APELLIDOS = {"García", "Martínez", "López", "Fernández", "Rodríguez", "Pérez",
+            "Díaz", "Sánchez", "Gómez", "Castro", "Otero", "Vázquez", "Rey", "Núñez", "Iglesias", "Muñoz", "Souto"};
+    private static final String[] NACIONALIDADES = {"España", "Estados Unidos", "Reino Unido", "Alemania",
+            "Francia", "Italia", "Portugal", "Argentina", "México"};
+    private static final String[] EDITORIALES = {"Addison-Wesley", "Prentice Hall", "OReilly Media", "Pearson",
+            "Anaya Multimedia", "Galaxia", "Xerais", "Ra-Ma", "Manning"};
+    private static final String[] INICIO_TITULO = {"Introducción a", "Manual de", "Fundamentos de", "Guía práctica de",
+            "Diseño de", "Arquitectura de", "Patrones de", "Programación en", "Código limpio en", "Aprende"};
+    private static final String[] TEMA_TITULO = {"Java", "bases de datos", "sistemas distribuidos", "Hibernate",
+            "algoritmos", "redes", "microservicios", "compiladores", "seguridad", "software ágil", "Python", "SQL"};
+    private static final String LETRAS_DNI = "TRWAGMYFPDXBNJZSQVHLCKE";
+
+    private final ConfiguracionGenerador config;
+    private final Random random;
+
+    private int baseUsuario;
+    private int baseAutor;
+    private int baseCategoria;
+    private int baseLibro;
+    private int baseEjemplar;
+    private int basePrestamo;
+
+    // Índices 0..n-1 dos elementos xerados
+    private int[] categoriaLibro;
+    private int[] primerEjemplar;
+    private int[] libroPorRango;
+    private int[] usuarioPorRango;
+    private BitSet ejemplarPrestado;
+
+    private final Map<String, Long> filas = new LinkedHashMap<>();
+
+    public GeneradorDatos(ConfiguracionGenerador config) {
+        this.config = config;
+        this.random = new Random(config.getSemilla());
+    }
+
+    /** Xera e carga todas as táboas. Devolve as filas inseridas por táboa. */
+    public Map<String, Long> generar(Connection con) throws SQLException {
+        boolean autoCommit = con.getAutoCommit();
+        try (Statement st = con.createStatement()) {
+            con.setAutoCommit(false);
+            st.execute("SET foreign_key_checks = 0");
+            st.execute("SET unique_checks = 0");
+            leerBases(st);
+
+            generarUsuarios(con);
+            generarAutores(con);
+            generarCategorias(con);
+            generarLibros(con);
+            generarPrestamos(con);
+            generarEjemplares(con);
+            generarFavoritos(con);
+            generarValoraciones(con);
+
+            st.execute("SET unique_checks = 1");
+            st.execute("SET foreign_key_checks = 1");
+            con.commit();
+            ajustarSecuencias(st);
+            st.execute("ANALYZE TABLE usuario, autor, categoria, libro, ejemplar, prestamo, favoritos, libro_categoria");
+        } catch (SQLException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+        return filas;
+    }
+
+    private void leerBases(Statement st) throws SQLException {
+        baseUsuario = maxId(st, "usuario");
+        baseAutor = maxId(st, "autor");
+        baseCategoria = maxId(st, "categoria");
+        baseLibro = maxId(st, "libro");
+        baseEjemplar = maxId(st, "ejemplar");
+        basePrestamo = maxId(st, "prestamo");
+    }
+
+    // Os ids xerados non saen das secuencias: adiántanse para que Hibernate non os repita.
+    // Cada valor da secuencia reserva os 50 ids anteriores (optimizador pooled).
+    // Nunha base aínda sen migrar non hai secuencias: a migración V2 xa as crea por riba do maior id.
+    private void ajustarSecuencias(Statement st) throws SQLException {
+        for (String tabla : new String[]{"usuario", "autor", "categoria", "libro", "ejemplar", "prestamo"}) {
+            if (!existeSecuencia(st, tabla + "_seq")) {
+                continue;
+            }
+            int max = maxId(st, tabla);
+            st.execute("SELECT SETVAL(" + tabla + "_seq, " + (max + 50) + ")");
+        }
+    }
+
+    private boolean existeSecuencia(Statement st, String secuencia) throws SQLException {
+        try (ResultSet rs = st.executeQuery("SELECT 1 FROM information_schema.tables WHERE table_schema = DATABASE() "
+                + "AND table_type = 'SEQUENCE' AND table_name = '" + secuencia + "'")) {
+            return rs.next();
+        }
+    }
+
+    private int maxId(Statement st, String tabla) throws SQLException {
+        try (ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + tabla)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private void generarUsuarios(Connection con) throws SQLException {
+        usuarioPorRango = permutacion(config.getUsuarios());
+        String sql = "INSERT INTO usuario (id, dni, nombre, apellidos, email, telefono, fecha_nacimiento, fecha_registro) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        try (Lote lote = new Lote(con, sql, "usuario")) {
+            PreparedStatement ps = lote.ps;
+            LocalDate hoy = config.getHoy();
+            for (int i = 0; i < config.getUsuarios(); i++) {
+                int id = baseUsuario + 1 + i;
+                String nombre = elegir(NOMBRES);
+                String apellidos = elegir(APELLIDOS) + " " + elegir(APELLIDOS);
+                ps.setInt(1, id);
+                ps.setString(2, dni(id));
+                ps.setString(3, nombre);
+                ps.setString(4, apellidos);
+                ps.setString(5, sinAcentos(nombre + "." + apellidos.replace(' ', '.')).toLowerCase() + "." + id + "@correo.example");
+                ps.setString(6, String.valueOf(600_000_000 + random.nextInt(100_000_000)));
+                ps.setObject(7, hoy.minusYears(16).minusDays(random.nextInt(60 * 365)));
+                ps.setObject(8, LocalDateTime.of(hoy.minusDays(random.nextInt(config.getAnosHistorico() * 365 + 1)),
+                        LocalTime.NOON));
+                lote.engadir();
+            }
+        }
+    }
+
+    private void generarAutores(Connection con) throws SQLException {
+        try (Lote lote = new Lote(con, "INSERT INTO autor (id, nombre, nacionalidad) VALUES (?, ?, ?)", "autor")) {
+            for (int i = 0; i < config.getAutores(); i++) {
+                lote.ps.setInt(1, baseAutor + 1 + i);
+                lote.ps.setString(2, elegir(NOMBRES) + " " + elegir(APELLIDOS));
+                lote.ps.setString(3, elegir(NACIONALIDADES));
+                lote.engadir();
+            }
+        }
+    }
+
+    private void generarCategorias(Connection con) throws SQLException {
+        try (Lote lote = new Lote(con, "INSERT INTO categoria (id, nombre, descripcion) VALUES (?, ?, ?)", "categoria")) {
+            for (int i = 0; i < config.getCategorias(); i++) {
+                int id = baseCategoria + 1 + i;
+                String tema = TEMA_TITULO[i % TEMA_TITULO.length];
+                lote.ps.setInt(1, id);
+                lote.ps.setString(2, "Categoría " + id);
+                lote.ps.setString(3, "Libros sobre " + tema);
+                lote.engadir();
+            }
+        }
+    }
+
+    private void generarLibros(Connection con) throws SQLException {
+        int libros = config.getLibros();
+        categoriaLibro = new int[libros];
+        primerEjemplar = new int[libros + 1];
+        libroPorRango = permutacion(libros);
+        String sql = "INSERT INTO libro (id, isbn, titulo, fecha_publicacion, paginas, editorial, autor_id, categoria_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        int ejemplares = 0;
+        try (Lote lote = new Lote(con, sql, "libro")) {
+            PreparedStatement ps = lote.ps;
+            for (int i = 0; i < libros; i++) {
+                int id = baseLibro + 1 + i;
+                categoriaLibro[i] = baseCategoria + 1 + random.nextInt(config.getCategorias());
+                primerEjemplar[i] = ejemplares;
+                ejemplares += 1 + random.nextInt(2 * config.getMediaEjemplaresPorLibro() - 1);
+                ps.setInt(1, id);
+                ps.setString(2, String.format("979-%010d", id));
+                ps.setString(3, elegir(INICIO_TITULO) + " " + elegir(TEMA_TITULO) + " " + (1 + random.nextInt(9)));
+                ps.setObject(4, LocalDate.of(1950, 1, 1).plusDays(random.nextInt(27_000)));
+                ps.setInt(5, 80 + random.nextInt(1100));
+                ps.setString(6, elegir(EDITORIALES));
+                ps.setInt(7, baseAutor + 1 + random.nextInt(config.getAutores()));
+                ps.setInt(8, categoriaLibro[i]);
+                lote.engadir();
+            }
+        }
+        primerEjemplar[libros] = ejemplares;
+        ejemplarPrestado = new BitSet(ejemplares);
+    }
+
+    // Os préstamos xéranse en orde cronolóxica, así os ids crecen coa data como en produción
+    private void generarPrestamos(Connection con) throws SQLException {
+        DistribucionZipf zipfLibros = new DistribucionZipf(config.getLibros(), config.getSesgoLibros());
+        DistribucionZipf zipfUsuarios = new DistribucionZipf(config.getUsuarios(), config.getSesgoUsuarios());
+        LocalDate hoy = config.getHoy();
+        int dias = config.getAnosHistorico() * 365;
+        int total = config.getPrestamos();
+        String sql = "INSERT INTO prestamo (id, fecha_inicio, fecha_fin, fecha_devolucion, estado, usuario_id, ejemplar_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (Lote lote = new Lote(con, sql, "prestamo")) {
+            PreparedStatement ps = lote.ps;
+            for (int i = 0; i < total; i++) {
+                int libro = libroPorRango[zipfLibros.siguiente(random) - 1];
+                int copias = primerEjemplar[libro + 1] - primerEjemplar[libro];
+                int ejemplar = primerEjemplar[libro] + random.nextInt(copias);
+                int usuario = usuarioPorRango[zipfUsuarios.siguiente(random) - 1];
+
+                LocalDate inicio = hoy.minusDays(dias - (long) i * dias / total);
+                LocalDate fin = inicio.plusDays(random.nextInt(4) == 0 ? 21 : 14);
+                LocalDate devolucion = null;
+                String estado;
+                boolean abierto = fin.isBefore(hoy) ? random.nextInt(50) == 0 : random.nextInt(10) < 7;
+                if (abierto && !ejemplarPrestado.get(ejemplar)) {
+                    ejemplarPrestado.set(ejemplar);
+                    estado = fin.isBefore(hoy) ? "RETRASADO" : "ACTIVO";
+                } else {
+                    estado = "DEVUELTO";
+                    devolucion = inicio.plusDays(random.nextInt(fin.isBefore(hoy) ? 25 : 1 + (int) (hoy.toEpochDay() - inicio.toEpochDay())));
+                    if (devolucion.isAfter(hoy)) {
+                        devolucion = hoy;
+                    }
+                }
+                ps.setInt(1, basePrestamo + 1 + i);
+                ps.setObject(2, inicio);
+                ps.setObject(3, fin);
+                ps.setObject(4, devolucion);
+                ps.setString(5, estado);
+                ps.setInt(6, baseUsuario + 1 + usuario);
+                ps.setInt(7, baseEjemplar + 1 + ejemplar);
+                lote.engadir();
+            }
+        }
+    }
+
+    private void generarEjemplares(Connection con) throws SQLException {
+        String sql = "INSERT INTO ejemplar (id, codigo, estado, ubicacion, libro_id) VALUES (?, ?, ?, ?, ?)";
+        try (Lote lote = new Lote(con, sql, "ejemplar")) {
+            PreparedStatement ps = lote.ps;
+            for (int libro = 0; libro < config.getLibros(); libro++) {
+                for (int e = primerEjemplar[libro]; e < primerEjemplar[libro + 1]; e++) {
+                    int id = baseEjemplar + 1 + e;
+                    String estado = ejemplarPrestado.get(e) ? "PRESTADO"
+                            : random.nextInt(50) == 0 ? "MANTENIMIENTO" : "DISPONIBLE";
+                    ps.setInt(1, id);
+                    ps.setString(2, String.format("EJ-%07d", id));
+                    ps.setString(3, estado);
+                    ps.setString(4, "Estantería " + (char) ('A' + libro % 26) + "-" + (1 + libro % 40));
+                    ps.setInt(5, baseLibro + 1 + libro);
+                    lote.engadir();
+                }
+            }
+        }
+    }
+
+    private void generarFavoritos(Connection con) throws SQLException {
+        DistribucionZipf zipfLibros = new DistribucionZipf(config.getLibros(), config.getSesgoLibros());
+        try (Lote lote = new Lote(con, "INSERT INTO favoritos (usuario_id, libro_id) VALUES (?, ?)", "favoritos")) {
+            for (int u = 0; u < config.getUsuarios(); u++) {
+                for (int libro : librosDistintos(zipfLibros, 2 * config.getMediaFavoritosPorUsuario() + 1)) {
+                    lote.ps.setInt(1, baseUsuario + 1 + u);
+                    lote.ps.setInt(2, baseLibro + 1 + libro);
+                    lote.engadir();
+                }
+            }
+        }
+    }
+
+    private void generarValoraciones(Connection con) throws SQLException {
+        DistribucionZipf zipfLibros = new DistribucionZipf(config.getLibros(), config.getSesgoLibros());
+        String sql = "INSERT INTO libro_categoria (usuario_id, libro_id, categoria_id, puntuacion) VALUES (?, ?, ?, ?)";
+        try (Lote lote = new Lote(con, sql, "libro_categoria")) {
+            for (int u = 0; u < config.getUsuarios(); u++) {
+                for (int libro : librosDistintos(zipfLibros, 2 * config.getMediaValoracionesPorUsuario() + 1)) {
+                    lote.ps.setInt(1, baseUsuario + 1 + u);
+                    lote.ps.setInt(2, baseLibro + 1 + libro);
+                    lote.ps.setInt(3, categoriaLibro[libro]);
+                    lote.ps.setInt(4, Math.max(0, Math.min(10, (int) Math.round(7 + 2 * random.nextGaussian()))));
+                    lote.engadir();
+                }
+            }
+        }
+    }
+
+    // Entre 0 e limite-1 libros distintos, elixidos segundo a popularidade
+    private int[] librosDistintos(DistribucionZipf zipf, int limite) {
+        int cantidad = Math.min(random.nextInt(limite), config.getLibros());
+        int[] elegidos = new int[cantidad];
+        int n = 0;
+        int intentos = 0;
+        while (n < cantidad && intentos++ < cantidad * 10) {
+            int libro = libroPorRango[zipf.siguiente(random) - 1];
+            boolean repetido = false;
+            for (int i = 0; i < n && !repetido; i++) {
+                repetido = elegidos[i] == libro;
+            }
+            if (!repetido) {
+                elegidos[n++] = libro;
+            }
+        }
+        return n == cantidad ? elegidos : Arrays.copyOf(elegidos, n);
+    }
+
+    /** DNI (con letra válida) que reciben os usuarios xerados. */
+    public static String dni(int idUsuario) {
+        int numero = 50_000_000 + idUsuario;
+        return numero + String.valueOf(LETRAS_DNI.charAt(numero % 23));
+    }
+
+    private int[] permutacion(int n) {
+        int[] p = new int[n];
+        for (int i = 0; i < n; i++) {
+            p[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = p[i];
+            p[i] = p[j];
+            p[j] = tmp;
+        }
+        return p;
+    }
+
+    private String elegir(String[] valores) {
+        return valores[random.nextInt(valores.length)];
+    }
+
+    private static String sinAcentos(String texto) {
+        return Normalizer.normalize(texto, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+    }
+
+    // PreparedStatement que executa e confirma cada tamLote filas
+    private class Lote implements AutoCloseable {
+        private final Connection con;
+        private final PreparedStatement ps;
+        private final String tabla;
+        private int pendientes;
+        private long total;
+
+        Lote(Connection con, String sql, String tabla) throws SQLException {
+            this.con = con;
+            this.ps = con.prepareStatement(sql);
+            this.tabla = tabla;
+        }
+
+        void engadir() throws SQLException {
+            ps.addBatch();
+            total++;
+            if (++pendientes == config.getTamLote()) {
+                volcar();
+            }
+        }
+
+        private void volcar() throws SQLException {
+            if (pendientes > 0) {
+                ps.executeBatch();
+                con.commit();
+                pendientes = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                volcar();
+            } finally {
+                ps.close();
+                filas.put(tabla, total);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws SQLException {
+        Map<String, String> opciones = new HashMap<>();
+        for (String arg : args) {
+            String[] partes = arg.replaceFirst("^--", "").split("=", 2);
+            opciones.put(partes[0], partes.length > 1 ? partes[1] : "");
+        }
+        ConfiguracionGenerador config = ConfiguracionGenerador.paraPrestamos(
+                Integer.parseInt(opciones.getOrDefault("prestamos", "10000")));
+        if (opciones.containsKey("usuarios")) config.setUsuarios(Integer.parseInt(opciones.get("usuarios")));
+        if (opciones.containsKey("autores")) config.setAutores(Integer.parseInt(opciones.get("autores")));
+        if (opciones.containsKey("categorias")) config.setCategorias(Integer.parseInt(opciones.get("categorias")));
+        if (opciones.containsKey("libros")) config.setLibros(Integer.parseInt(opciones.get("libros")));
+        if (opciones.containsKey("ejemplares")) config.setMediaEjemplaresPorLibro(Integer.parseInt(opciones.get("ejemplares")));
+        if (opciones.containsKey("favoritos")) config.setMediaFavoritosPorUsuario(Integer.parseInt(opciones.get("favoritos")));
+        if (opciones.containsKey("valoraciones")) config.setMediaValoracionesPorUsuario(Integer.parseInt(opciones.get("valoraciones")));
+        if (opciones.containsKey("sesgo-libros")) config.setSesgoLibros(Double.parseDouble(opciones.get("sesgo-libros")));
+        if (opciones.containsKey("sesgo-usuarios")) config.setSesgoUsuarios(Double.parseDouble(opciones.get("sesgo-usuarios")));
+        if (opciones.containsKey("semilla")) config.setSemilla(Long.parseLong(opciones.get("semilla")));
+        if (opciones.containsKey("lote")) config.setTamLote(Integer.parseInt(opciones.get("lote")));
+
+        String url = System.getenv().getOrDefault("DB_URL", "jdbc:mariadb://localhost:3306/biblioteca");
+        String usuario = System.getenv().getOrDefault("DB_USER", "testuser");
+        String contrasinal = System.getenv().getOrDefault("DB_PASS", "testpass");
+
+        long inicio = System.nanoTime();
+        Map<String, Long> filas;
+        try (Connection con = DriverManager.getConnection(url, usuario, contrasinal)) {
+            filas = new GeneradorDatos(config).generar(con);
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        long total = 0;
+        for (Map.Entry<String, Long> e : filas.entrySet()) {
+            System.out.printf("%-16s %,12d filas%n", e.getKey(), e.getValue());
+            total += e.getValue();
+        }
+        System.out.printf("Total %,d filas en %.1f s (%,.0f filas/s)%n", total, segundos, total / segundos);
+    }
+}
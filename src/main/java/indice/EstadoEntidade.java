@@ -0,0 +1,44 @@
+package indice;
+
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Lectura das propiedades no estado (Object[]) que Hibernate pasa aos listeners de eventos.
+ */
+final class EstadoEntidade {
+
+    private EstadoEntidade() {
+    }
+
+    static Object valor(EntityPersister persister, Object[] estado, String propiedade) {
+        String[] nomes = persister.getPropertyNames();
+        for (int i = 0; i < nomes.length; i++) {
+            if (nomes[i].equals(propiedade)) {
+                return estado[i];
+            }
+        }
+        throw new IllegalStateException(persister.getEntityName() + " non ten a propiedade " + propiedade);
+    }
+
+    /**
+     * Id da entidade asociada (ManyToOne) sen inicializala se é un proxy LAZY.
+     * getId só se chama se a asociación xa está cargada.
+     */
+    static <T> Integer idAsociada(EntityPersister persister, Object[] estado, String propiedade, ToIntFunction<T> getId) {
+        Object asociada = valor(persister, estado, propiedade);
+        if (asociada == null) {
+            return null;
+        }
+        LazyInitializer proxy = HibernateProxy.extractLazyInitializer(asociada);
+        if (proxy != null) {
+            return (Integer) proxy.getInternalIdentifier();
+        }
+        @SuppressWarnings("unchecked")
+        T entidade = (T) asociada;
+        return getId.applyAsInt(entidade);
+    }
+}
@@ -0,0 +1,386 @@
+package indice;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Busca de texto no catálogo: índice invertido en memoria sobre o título, ISBN e editorial de cada libro
+ * e os nomes do seu autor e categoría. Os termos normalízanse sen maiúsculas nin acentos (Normalizacion),
+ * así "codigo limpio" atopa "Código Limpio". Cada termo ten a lista ordenada dos libros que o conteñen
+ * (arrays de int, sen obxectos por entrada) co peso dos campos onde aparece.
+ * Unha busca devolve os libros que teñen todos os termos, ordenados pola suma de peso × idf (BM25 sen
+ * normalizar a lonxitude): un termo raro nun título puntúa máis que un común nunha editorial.
+ * Gárdanse tamén os campos con que se indexou cada libro: quitalo ou reindexalo cando cambia o nome do seu
+ * autor ou categoría non depende de volver ler a fila.
+ * Cárgase ao arrancar (BaseDatos) e mantéñeo ListenerCatalogo cos commits de Libro, Autor e Categoria.
+ */
+public class IndiceCatalogo {
+
+    /** Libro atopado e a súa puntuación: maior é máis relevante. */
+    public record Acerto(int idLibro, double puntuacion) {
+    }
+
+    /** Os campos dun libro que se indexan; os nomes de autor e categoría búscanse polo id. */
+    record CamposLibro(int id, String titulo, String isbn, String editorial, Integer idAutor, Integer idCategoria) {
+    }
+
+    private static final int PESO_ISBN = 4;
+    private static final int PESO_TITULO = 3;
+    private static final int PESO_AUTOR = 2;
+    private static final int PESO_CATEGORIA = 1;
+    private static final int PESO_EDITORIAL = 1;
+
+    private static final String LIBROS = "SELECT id, titulo, isbn, editorial, autor_id, categoria_id FROM libro";
+    private static final String AUTORES = "SELECT id, nombre FROM autor";
+    private static final String CATEGORIAS = "SELECT id, nombre FROM categoria";
+
+    // Peor acerto primeiro: cabeza do montículo cos N mellores. A igual puntuación gaña o id menor
+    private static final Comparator<Acerto> PEOR_PRIMEIRO = Comparator.comparingDouble(Acerto::puntuacion)
+            .thenComparing(Comparator.comparingInt(Acerto::idLibro).reversed());
+
+    private final DataSource dataSource;
+    private final ReentrantReadWriteLock bloqueo = new ReentrantReadWriteLock();
+    private final Map<String, Lista> listas = new HashMap<>();
+    private final Map<Integer, String> autores = new HashMap<>();
+    private final Map<Integer, String> categorias = new HashMap<>();
+    private final Map<Integer, CamposLibro> indexados = new HashMap<>();
+
+    private IndiceCatalogo(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /** Índice con todo o catálogo actual: tres consultas (autores, categorías e libros en orde de id). */
+    public static IndiceCatalogo cargar(DataSource dataSource) {
+        IndiceCatalogo indice = new IndiceCatalogo(dataSource);
+        try (Connection con = dataSource.getConnection()) {
+            lerNomes(con, AUTORES, indice.autores);
+            lerNomes(con, CATEGORIAS, indice.categorias);
+            // En orde de id cada lista medra só polo final
+            for (CamposLibro libro : lerLibros(con, LIBROS + " ORDER BY id")) {
+                indice.indexar(libro);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al cargar el índice del catálogo" + e);
+        }
+        return indice;
+    }
+
+    /**
+     * Os limite libros máis relevantes que conteñen todos os termos do texto.
+     * Baleiro se o texto non ten termos ou se algún non aparece en ningún libro.
+     */
+    public List<Acerto> buscar(String texto, int limite) {
+        List<String> consulta = Normalizacion.termos(texto).stream().distinct().toList();
+        if (consulta.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        PriorityQueue<Acerto> mellores = new PriorityQueue<>(PEOR_PRIMEIRO);
+        bloqueo.readLock().lock();
+        try {
+            Lista[] porTermo = new Lista[consulta.size()];
+            for (int i = 0; i < porTermo.length; i++) {
+                porTermo[i] = listas.get(consulta.get(i));
+                if (porTermo[i] == null) {
+                    return List.of();
+                }
+            }
+            // Percórrese a lista máis curta e búscase cada libro nas outras
+            Arrays.sort(porTermo, Comparator.comparingInt(l -> l.tamano));
+            int libros = indexados.size();
+            double[] idf = new double[porTermo.length];
+            for (int i = 0; i < idf.length; i++) {
+                idf[i] = Math.log(1 + (libros - porTermo[i].tamano + 0.5) / (porTermo[i].tamano + 0.5));
+            }
+            int[] posicions = new int[porTermo.length];
+            Lista primeira = porTermo[0];
+            candidatos:
+            for (int i = 0; i < primeira.tamano; i++) {
+                int libro = primeira.libros[i];
+                double puntuacion = idf[0] * primeira.pesos[i];
+                for (int j = 1; j < porTermo.length; j++) {
+                    Lista lista = porTermo[j];
+                    int p = lista.primeiroDesde(posicions[j], libro);
+                    posicions[j] = p;
+                    if (p == lista.tamano) {
+                        // Esta lista xa non ten libros maiores: ningún candidato seguinte pode estar en todas
+                        break candidatos;
+                    }
+                    if (lista.libros[p] != libro) {
+                        continue candidatos;
+                    }
+                    puntuacion += idf[j] * lista.pesos[p];
+                }
+                if (mellores.size() < limite) {
+                    mellores.add(new Acerto(libro, puntuacion));
+                } else if (puntuacion > mellores.peek().puntuacion()) {
+                    mellores.poll();
+                    mellores.add(new Acerto(libro, puntuacion));
+                }
+            }
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+        List<Acerto> resultado = new ArrayList<>(mellores);
+        resultado.sort(PEOR_PRIMEIRO.reversed());
+        return resultado;
+    }
+
+    /** Libros indexados. */
+    public int getLibros() {
+        bloqueo.readLock().lock();
+        try {
+            return indexados.size();
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    void indexar(CamposLibro libro) {
+        String autor = nomeSenIndexar(autores, "autor", libro.idAutor());
+        String categoria = nomeSenIndexar(categorias, "categoria", libro.idCategoria());
+        bloqueo.writeLock().lock();
+        try {
+            if (autor != null) {
+                autores.putIfAbsent(libro.idAutor(), autor);
+            }
+            if (categoria != null) {
+                categorias.putIfAbsent(libro.idCategoria(), categoria);
+            }
+            indexarSenBloquear(libro);
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /** Quita o libro cos campos con que se indexou. */
+    void eliminar(int idLibro) {
+        bloqueo.writeLock().lock();
+        try {
+            CamposLibro indexado = indexados.remove(idLibro);
+            if (indexado != null) {
+                quitarTermos(indexado);
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    void ponerAutor(int id, String nombre) {
+        renomear(autores, id, nombre, CamposLibro::idAutor);
+    }
+
+    void ponerCategoria(int id, String nombre) {
+        renomear(categorias, id, nombre, CamposLibro::idCategoria);
+    }
+
+    void quitarAutor(int id) {
+        bloqueo.writeLock().lock();
+        try {
+            autores.remove(id);
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    void quitarCategoria(int id) {
+        bloqueo.writeLock().lock();
+        try {
+            categorias.remove(id);
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Novo nome dun autor ou categoría: os seus libros reindéxanse co nome novo, a partir dos campos con que
+     * están indexados. Todo co bloqueo de escritura: un cambio do libro non pode quedar entre medias.
+     */
+    private void renomear(Map<Integer, String> nomes, int id, String nombre, Function<CamposLibro, Integer> campo) {
+        bloqueo.writeLock().lock();
+        try {
+            if (nombre.equals(nomes.get(id))) {
+                return;
+            }
+            List<CamposLibro> afectados = indexados.values().stream()
+                    .filter(libro -> Integer.valueOf(id).equals(campo.apply(libro)))
+                    .toList();
+            for (CamposLibro libro : afectados) {
+                quitarTermos(libro);
+            }
+            nomes.put(id, nombre);
+            for (CamposLibro libro : afectados) {
+                ponerTermos(libro);
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /** Co bloqueo de escritura collido e os nomes de autor e categoría xa no índice; substitúe o indexado antes. */
+    private void indexarSenBloquear(CamposLibro libro) {
+        CamposLibro anterior = indexados.put(libro.id(), libro);
+        if (anterior != null) {
+            quitarTermos(anterior);
+        }
+        ponerTermos(libro);
+    }
+
+    private void ponerTermos(CamposLibro libro) {
+        for (Map.Entry<String, Integer> termo : termosLibro(libro).entrySet()) {
+            listas.computeIfAbsent(termo.getKey(), t -> new Lista()).poner(libro.id(), termo.getValue());
+        }
+    }
+
+    private void quitarTermos(CamposLibro libro) {
+        for (String termo : termosLibro(libro).keySet()) {
+            quitarDaLista(termo, libro.id());
+        }
+    }
+
+    /**
+     * Nome dun autor ou categoría que aínda non está no índice (p.ex. creado na mesma transacción ca o libro);
+     * null se xa está. Lese antes de coller o bloqueo de escritura: as buscas non esperan por unha consulta.
+     */
+    private String nomeSenIndexar(Map<Integer, String> nomes, String taboa, Integer id) {
+        if (id == null) {
+            return null;
+        }
+        bloqueo.readLock().lock();
+        try {
+            if (nomes.containsKey(id)) {
+                return null;
+            }
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+        return lerNome(taboa, id);
+    }
+
+    private void quitarDaLista(String termo, int idLibro) {
+        Lista lista = listas.get(termo);
+        if (lista != null && lista.quitar(idLibro) && lista.tamano == 0) {
+            listas.remove(termo);
+        }
+    }
+
+    /** Termo → suma dos pesos dos campos onde aparece (un campo conta unha vez por termo). */
+    private Map<String, Integer> termosLibro(CamposLibro libro) {
+        Map<String, Integer> termos = new HashMap<>();
+        sumarCampo(termos, libro.titulo(), PESO_TITULO);
+        sumarCampo(termos, libro.isbn(), PESO_ISBN);
+        if (libro.isbn() != null) {
+            // O ISBN tamén enteiro, sen guións: "978-0132350884" → "9780132350884"
+            sumarCampo(termos, String.join("", Normalizacion.termos(libro.isbn())), PESO_ISBN);
+        }
+        sumarCampo(termos, libro.editorial(), PESO_EDITORIAL);
+        // Un nome que non está no índice non dá termos
+        if (libro.idAutor() != null) {
+            sumarCampo(termos, autores.get(libro.idAutor()), PESO_AUTOR);
+        }
+        if (libro.idCategoria() != null) {
+            sumarCampo(termos, categorias.get(libro.idCategoria()), PESO_CATEGORIA);
+        }
+        return termos;
+    }
+
+    private static void sumarCampo(Map<String, Integer> termos, String texto, int peso) {
+        for (String termo : Normalizacion.termos(texto).stream().distinct().toList()) {
+            termos.merge(termo, peso, (a, b) -> Math.min(Byte.MAX_VALUE, a + b));
+        }
+    }
+
+    private String lerNome(String taboa, int id) {
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement ps = con.prepareStatement("SELECT nombre FROM " + taboa + " WHERE id = ?")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al leer " + taboa + " " + id + e);
+        }
+    }
+
+    private static void lerNomes(Connection con, String sql, Map<Integer, String> nomes) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                nomes.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+    }
+
+    private static List<CamposLibro> lerLibros(Connection con, String sql) throws SQLException {
+        List<CamposLibro> libros = new ArrayList<>();
+        try (PreparedStatement ps = con.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                libros.add(new CamposLibro(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                        (Integer) rs.getObject(5), (Integer) rs.getObject(6)));
+            }
+        }
+        return libros;
+    }
+
+    /** Libros que conteñen un termo, ordenados por id, co peso do termo en cada un. */
+    private static final class Lista {
+
+        int[] libros = new int[4];
+        byte[] pesos = new byte[4];
+        int tamano;
+
+        void poner(int libro, int peso) {
+            int p = tamano > 0 && libros[tamano - 1] < libro ? tamano : Arrays.binarySearch(libros, 0, tamano, libro);
+            if (p >= 0 && p < tamano) {
+                pesos[p] = (byte) peso;
+                return;
+            }
+            int oco = p >= 0 ? p : -p - 1;
+            if (tamano == libros.length) {
+                libros = Arrays.copyOf(libros, tamano * 2);
+                pesos = Arrays.copyOf(pesos, tamano * 2);
+            }
+            System.arraycopy(libros, oco, libros, oco + 1, tamano - oco);
+            System.arraycopy(pesos, oco, pesos, oco + 1, tamano - oco);
+            libros[oco] = libro;
+            pesos[oco] = (byte) peso;
+            tamano++;
+        }
+
+        boolean quitar(int libro) {
+            int p = Arrays.binarySearch(libros, 0, tamano, libro);
+            if (p < 0) {
+                return false;
+            }
+            System.arraycopy(libros, p + 1, libros, p, tamano - p - 1);
+            System.arraycopy(pesos, p + 1, pesos, p, tamano - p - 1);
+            tamano--;
+            return true;
+        }
+
+        /** Primeira posición desde desde cun libro >= libro (tamano se non hai): saltos dobres e logo binaria. */
+        int primeiroDesde(int desde, int libro) {
+            int salto = 1;
+            int ata = desde;
+            while (ata < tamano && libros[ata] < libro) {
+                desde = ata + 1;
+                ata += salto;
+                salto <<= 1;
+            }
+            int p = Arrays.binarySearch(libros, desde, Math.min(ata + 1, tamano), libro);
+            return p >= 0 ? p : -p - 1;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package indice;
+
+import dto.Disponibilidad;
+import modelo.Ejemplar;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Exemplares dispoñibles, prestados e en mantemento de cada libro, en memoria.
+ * Cárgase cunha consulta agregada (polo índice idx_ejemplar_libro_estado) e despois mantéñeno
+ * ListenerDisponibilidad, tras cada commit que insire, cambia ou borra un Ejemplar, e as operacións
+ * en bloque de servicio.ServicioPrestamos. Responder "hai algún exemplar libre?" é unha busca nun
+ * mapa de int sen obxectos (dirección aberta con sondaxe lineal) e non toca a base de datos.
+ * As lecturas non bloquean (lectura optimista de StampedLock); as escrituras son unha por vez.
+ */
+public class IndiceDisponibilidad {
+
+    private static final String CONTAR = "SELECT libro_id, estado, COUNT(*) FROM ejemplar GROUP BY libro_id, estado";
+    private static final String CONTAR_LIBRO = "SELECT estado, COUNT(*) FROM ejemplar WHERE libro_id = ? GROUP BY estado";
+
+    // Os ids de libro empezan en 1: o 0 marca un oco baleiro
+    private static final int BALEIRO = 0;
+    private static final Ejemplar.EstadoEjemplar[] ESTADOS = Ejemplar.EstadoEjemplar.values();
+
+    private final DataSource dataSource;
+    private final StampedLock bloqueo = new StampedLock();
+    private int[] claves;
+    // ESTADOS.length contas por oco, na orde de EstadoEjemplar
+    private int[] contas;
+    private int libros;
+
+    private IndiceDisponibilidad(DataSource dataSource) {
+        this.dataSource = dataSource;
+        reservar(1024);
+    }
+
+    /** Índice cos exemplares que hai agora na base de datos. */
+    public static IndiceDisponibilidad cargar(DataSource dataSource) {
+        IndiceDisponibilidad indice = new IndiceDisponibilidad(dataSource);
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement ps = con.prepareStatement(CONTAR);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                indice.sumar(rs.getInt(1), Ejemplar.EstadoEjemplar.valueOf(rs.getString(2)), rs.getInt(3));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al cargar la disponibilidad de los libros" + e);
+        }
+        return indice;
+    }
+
+    public Disponibilidad consultar(int idLibro) {
+        long sello = bloqueo.tryOptimisticRead();
+        Disponibilidad resultado = ler(idLibro);
+        if (!bloqueo.validate(sello)) {
+            // Houbo unha escritura a medias: repítese esperando por ela
+            sello = bloqueo.readLock();
+            try {
+                resultado = ler(idLibro);
+            } finally {
+                bloqueo.unlockRead(sello);
+            }
+        }
+        return resultado;
+    }
+
+    public boolean hayDisponible(int idLibro) {
+        return consultar(idLibro).hayDisponible();
+    }
+
+    /** Libros con polo menos un exemplar rexistrado no índice. */
+    public int getLibros() {
+        long sello = bloqueo.readLock();
+        try {
+            return libros;
+        } finally {
+            bloqueo.unlockRead(sello);
+        }
+    }
+
+    /** Un exemplar do libro pasou de estadoAnterior a estadoNovo. */
+    public void mover(int idLibro, Ejemplar.EstadoEjemplar estadoAnterior, Ejemplar.EstadoEjemplar estadoNovo) {
+        if (estadoAnterior == estadoNovo) {
+            return;
+        }
+        long sello = bloqueo.writeLock();
+        try {
+            int oco = ocoPara(idLibro);
+            contas[oco * ESTADOS.length + estadoAnterior.ordinal()]--;
+            contas[oco * ESTADOS.length + estadoNovo.ordinal()]++;
+        } finally {
+            bloqueo.unlockWrite(sello);
+        }
+    }
+
+    /** delta exemplares novos (positivo) ou borrados (negativo) do libro no estado dado. */
+    public void sumar(int idLibro, Ejemplar.EstadoEjemplar estado, int delta) {
+        long sello = bloqueo.writeLock();
+        try {
+            // ocoPara pode substituír o array: primeiro o oco, despois contas
+            int oco = ocoPara(idLibro);
+            contas[oco * ESTADOS.length + estado.ordinal()] += delta;
+        } finally {
+            bloqueo.unlockWrite(sello);
+        }
+    }
+
+    /** Volve contar na base de datos os exemplares dun libro, cando non se sabe que cambiou. */
+    public void recontar(int idLibro) {
+        int[] novas = new int[ESTADOS.length];
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement ps = con.prepareStatement(CONTAR_LIBRO)) {
+            ps.setInt(1, idLibro);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    novas[Ejemplar.EstadoEjemplar.valueOf(rs.getString(1)).ordinal()] = rs.getInt(2);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al contar los ejemplares del libro " + idLibro + e);
+        }
+        long sello = bloqueo.writeLock();
+        try {
+            int oco = ocoPara(idLibro);
+            System.arraycopy(novas, 0, contas, oco * ESTADOS.length, ESTADOS.length);
+        } finally {
+            bloqueo.unlockWrite(sello);
+        }
+    }
+
+    /** Só le campos e arrays: vale tanto coa lectura optimista como co bloqueo de lectura. */
+    private Disponibilidad ler(int idLibro) {
+        int[] c = claves;
+        int[] n = contas;
+        if (idLibro == BALEIRO || c.length * ESTADOS.length != n.length) {
+            return Disponibilidad.NINGUNA;
+        }
+        int mascara = c.length - 1;
+        for (int oco = mesturar(idLibro) & mascara, voltas = 0; voltas < c.length; oco = (oco + 1) & mascara, voltas++) {
+            int clave = c[oco];
+            if (clave == idLibro) {
+                int base = oco * ESTADOS.length;
+                return new Disponibilidad(
+                        n[base + Ejemplar.EstadoEjemplar.DISPONIBLE.ordinal()],
+                        n[base + Ejemplar.EstadoEjemplar.PRESTADO.ordinal()],
+                        n[base + Ejemplar.EstadoEjemplar.MANTENIMIENTO.ordinal()]);
+            }
+            if (clave == BALEIRO) {
+                break;
+            }
+        }
+        return Disponibilidad.NINGUNA;
+    }
+
+    /** Oco do libro, creándoo se non existe. Só co bloqueo de escritura. */
+    private int ocoPara(int idLibro) {
+        if (idLibro == BALEIRO) {
+            throw new IllegalArgumentException("Id de libro non válido: " + idLibro);
+        }
+        int mascara = claves.length - 1;
+        int oco = mesturar(idLibro) & mascara;
+        while (claves[oco] != BALEIRO) {
+            if (claves[oco] == idLibro) {
+                return oco;
+            }
+            oco = (oco + 1) & mascara;
+        }
+        // Ocupación máxima 1/2 para que as sondaxes sexan curtas
+        if ((libros + 1) * 2 > claves.length) {
+            reservar(claves.length * 2);
+            return ocoPara(idLibro);
+        }
+        claves[oco] = idLibro;
+        libros++;
+        return oco;
+    }
+
+    private void reservar(int capacidade) {
+        int[] clavesVellas = claves;
+        int[] contasVellas = contas;
+        int[] novasClaves = new int[capacidade];
+        int[] novasContas = new int[capacidade * ESTADOS.length];
+        int mascara = capacidade - 1;
+        if (clavesVellas != null) {
+            for (int i = 0; i < clavesVellas.length; i++) {
+                if (clavesVellas[i] != BALEIRO) {
+                    int oco = mesturar(clavesVellas[i]) & mascara;
+                    while (novasClaves[oco] != BALEIRO) {
+                        oco = (oco + 1) & mascara;
+                    }
+                    novasClaves[oco] = clavesVellas[i];
+                    System.arraycopy(contasVellas, i * ESTADOS.length, novasContas, oco * ESTADOS.length, ESTADOS.length);
+                }
+            }
+        }
+        // Un lector optimista que colla un array vello e outro novo ve tamaños que non casan (e o validate falla)
+        contas = novasContas;
+        claves = novasClaves;
+    }
+
+    /** Os ids son consecutivos: mestúranse para que non caian todos en ocos seguidos. */
+    private static int mesturar(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
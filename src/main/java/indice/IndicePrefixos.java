@@ -0,0 +1,266 @@
+package indice;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Suxestións mentres se escribe: os títulos, ISBN e códigos de exemplar que empezan polo texto dado.
+ * Cada columna é un array ordenado (sen maiúsculas nin acentos; ISBN e códigos tamén sen guións) e a busca
+ * é binaria. Os textos van todos seguidos nun byte[] UTF-8 con dous int[] (inicio e id): uns 8 bytes por
+ * fila máis o propio texto, sen obxectos por fila, así que a memoria medra en proporción ao catálogo.
+ * Os cambios (ListenerPrefixos) van a un conxunto ordenado pequeno e a unha lista de ids borrados,
+ * que se mesturan co array cando pasan dun oitavo del.
+ */
+public class IndicePrefixos {
+
+    // Orde das columnas: pola clave e, a igual clave, polo id
+    private static final Comparator<Entrada> ORDE = Comparator.comparing(Entrada::clave).thenComparingInt(Entrada::id);
+
+    public enum Campo {
+        TITULO("SELECT id, titulo FROM libro", false),
+        ISBN("SELECT id, isbn FROM libro", true),
+        CODIGO("SELECT id, codigo FROM ejemplar", true);
+
+        private final String sql;
+        private final boolean soAlfanumericos;
+
+        Campo(String sql, boolean soAlfanumericos) {
+            this.sql = sql;
+            this.soAlfanumericos = soAlfanumericos;
+        }
+
+        /** Clave de orde e de busca: "978-0132350884" e "9780132350884" son a mesma. */
+        String clave(String texto) {
+            String plegado = Normalizacion.plegar(texto);
+            if (!soAlfanumericos) {
+                return plegado;
+            }
+            StringBuilder sb = new StringBuilder(plegado.length());
+            for (int i = 0; i < plegado.length(); i++) {
+                if (Character.isLetterOrDigit(plegado.charAt(i))) {
+                    sb.append(plegado.charAt(i));
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    /** Id do libro (TITULO, ISBN) ou do exemplar (CODIGO) e o texto tal como está gardado. */
+    public record Suxestion(int id, String texto) {
+    }
+
+    private final Map<Campo, Columna> columnas = new EnumMap<>(Campo.class);
+
+    private IndicePrefixos() {
+    }
+
+    /** Índice cos títulos, ISBN e códigos que hai agora na base de datos: unha consulta por columna. */
+    public static IndicePrefixos cargar(DataSource dataSource) {
+        IndicePrefixos indice = new IndicePrefixos();
+        try (Connection con = dataSource.getConnection()) {
+            for (Campo campo : Campo.values()) {
+                List<Entrada> filas = new ArrayList<>();
+                try (PreparedStatement ps = con.prepareStatement(campo.sql);
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String texto = rs.getString(2);
+                        if (texto != null) {
+                            filas.add(new Entrada(campo.clave(texto), rs.getInt(1), texto));
+                        }
+                    }
+                }
+                indice.columnas.put(campo, new Columna(campo, filas));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al cargar el índice de prefijos" + e);
+        }
+        return indice;
+    }
+
+    /** Ata limite valores do campo que empezan por prefixo, en orde alfabética. */
+    public List<Suxestion> suxerir(Campo campo, String prefixo, int limite) {
+        String clave = prefixo == null ? "" : campo.clave(prefixo);
+        if (clave.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        return columnas.get(campo).suxerir(clave, limite);
+    }
+
+    /** Novo valor do campo para o id (texto null: o id xa non ten valor). */
+    void poner(Campo campo, int id, String texto) {
+        columnas.get(campo).poner(id, texto);
+    }
+
+    void quitar(Campo campo, int id) {
+        columnas.get(campo).poner(id, null);
+    }
+
+    private record Entrada(String clave, int id, String texto) {
+    }
+
+    private static final class Columna {
+
+        // Cambios pendentes mínimos antes de mesturar, para que as columnas pequenas non se refagan a cada paso
+        private static final int MIN_PENDENTES = 1024;
+
+        private final Campo campo;
+        private final ReentrantReadWriteLock bloqueo = new ReentrantReadWriteLock();
+        // Fila i: texto en textos[inicios[i], inicios[i + 1]), id en ids[i]
+        private byte[] textos;
+        private int[] inicios;
+        private int[] ids;
+        private final TreeSet<Entrada> engadidas = new TreeSet<>(ORDE);
+        private final Map<Integer, Entrada> engadidasPorId = new HashMap<>();
+        // Ids con fila no array que xa non vale (borrada ou cambiada)
+        private final Set<Integer> borrados = new HashSet<>();
+
+        Columna(Campo campo, List<Entrada> filas) {
+            this.campo = campo;
+            filas.sort(ORDE);
+            empaquetar(filas.iterator(), filas.size());
+        }
+
+        List<Suxestion> suxerir(String prefixo, int limite) {
+            List<Suxestion> resultado = new ArrayList<>(Math.min(limite, 64));
+            bloqueo.readLock().lock();
+            try {
+                // Mestura das dúas secuencias ordenadas: o array (sen os borrados) e as engadidas
+                int i = primeiraDesde(prefixo);
+                Iterator<Entrada> novas = engadidas.tailSet(new Entrada(prefixo, Integer.MIN_VALUE, null)).iterator();
+                Entrada nova = seguinte(novas, prefixo);
+                Entrada vella = null;
+                while (resultado.size() < limite) {
+                    while (vella == null && i < ids.length) {
+                        if (!borrados.contains(ids[i])) {
+                            String texto = texto(i);
+                            String clave = campo.clave(texto);
+                            if (!clave.startsWith(prefixo)) {
+                                i = ids.length;
+                                break;
+                            }
+                            vella = new Entrada(clave, ids[i], texto);
+                        }
+                        i++;
+                    }
+                    if (vella == null && nova == null) {
+                        break;
+                    }
+                    if (nova == null || (vella != null && ORDE.compare(vella, nova) < 0)) {
+                        resultado.add(new Suxestion(vella.id(), vella.texto()));
+                        vella = null;
+                    } else {
+                        resultado.add(new Suxestion(nova.id(), nova.texto()));
+                        nova = seguinte(novas, prefixo);
+                    }
+                }
+            } finally {
+                bloqueo.readLock().unlock();
+            }
+            return resultado;
+        }
+
+        void poner(int id, String texto) {
+            bloqueo.writeLock().lock();
+            try {
+                Entrada anterior = engadidasPorId.remove(id);
+                if (anterior != null) {
+                    engadidas.remove(anterior);
+                }
+                // O id pode ter fila no array ou non: compróbase ao mesturar
+                borrados.add(id);
+                if (texto != null) {
+                    Entrada entrada = new Entrada(campo.clave(texto), id, texto);
+                    engadidas.add(entrada);
+                    engadidasPorId.put(id, entrada);
+                }
+                if (engadidas.size() + borrados.size() > Math.max(MIN_PENDENTES, ids.length / 8)) {
+                    mesturar();
+                }
+            } finally {
+                bloqueo.writeLock().unlock();
+            }
+        }
+
+        /** Primeira fila do array cunha clave >= prefixo. */
+        private int primeiraDesde(String prefixo) {
+            int baixo = 0;
+            int alto = ids.length;
+            while (baixo < alto) {
+                int medio = (baixo + alto) >>> 1;
+                if (campo.clave(texto(medio)).compareTo(prefixo) < 0) {
+                    baixo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return baixo;
+        }
+
+        private String texto(int fila) {
+            return new String(textos, inicios[fila], inicios[fila + 1] - inicios[fila], StandardCharsets.UTF_8);
+        }
+
+        /** Volve facer o array coas filas vivas e as engadidas. Só co bloqueo de escritura. */
+        private void mesturar() {
+            List<Entrada> vivas = new ArrayList<>(ids.length + engadidas.size());
+            for (int i = 0; i < ids.length; i++) {
+                if (!borrados.contains(ids[i])) {
+                    String texto = texto(i);
+                    vivas.add(new Entrada(campo.clave(texto), ids[i], texto));
+                }
+            }
+            vivas.addAll(engadidas);
+            vivas.sort(ORDE);
+            engadidas.clear();
+            engadidasPorId.clear();
+            borrados.clear();
+            empaquetar(vivas.iterator(), vivas.size());
+        }
+
+        private void empaquetar(Iterator<Entrada> filas, int tamano) {
+            byte[] novosTextos = new byte[Math.max(16, tamano * 16)];
+            int[] novosInicios = new int[tamano + 1];
+            int[] novosIds = new int[tamano];
+            int usados = 0;
+            for (int i = 0; i < tamano; i++) {
+                Entrada fila = filas.next();
+                byte[] texto = fila.texto().getBytes(StandardCharsets.UTF_8);
+                if (usados + texto.length > novosTextos.length) {
+                    novosTextos = Arrays.copyOf(novosTextos, Math.max(novosTextos.length * 2, usados + texto.length));
+                }
+                System.arraycopy(texto, 0, novosTextos, usados, texto.length);
+                novosInicios[i] = usados;
+                novosIds[i] = fila.id();
+                usados += texto.length;
+            }
+            novosInicios[tamano] = usados;
+            textos = Arrays.copyOf(novosTextos, usados);
+            inicios = novosInicios;
+            ids = novosIds;
+        }
+
+        private static Entrada seguinte(Iterator<Entrada> novas, String prefixo) {
+            if (!novas.hasNext()) {
+                return null;
+            }
+            Entrada nova = novas.next();
+            return nova.clave().startsWith(prefixo) ? nova : null;
+        }
+    }
+}
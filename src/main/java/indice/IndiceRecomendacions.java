@@ -0,0 +1,478 @@
+package indice;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * "Os lectores aos que lles gustou este libro tamén lles gustaron...": recomendación libro a libro.
+ * A un usuario gústalle un libro se o ten en favoritos ou o puntuou con {@value #PUNTUACION_MINIMA} ou máis
+ * nalgunha categoría (libro_categoria). A similitude entre dous libros é o coseno dos seus conxuntos de
+ * lectores: coincidencias / √(lectores de a × lectores de b). De cada libro gárdanse os {@value #VECINOS}
+ * máis similares, así que recomendar é copiar unha fila xa ordenada.
+ * Os gustos van en arrays de int por usuario e por libro (os ids son os índices) e os vecinos en
+ * arrays de int e float: nada de coleccións con Integer.
+ * reconstruir() volve ler todo e calcula os vecinos de todos os libros en paralelo. Entre reconstrucións,
+ * ListenerRecomendacions chama a recargarUsuario tras cada commit que toca os favoritos ou as puntuacións
+ * dun usuario: recalcúlanse as filas dos libros que cambiaron e o seu peso nas filas dos libros cos que
+ * comparten lectores. Se un peso baixa, o libro que debería entrar no seu sitio nunha fila chea non se
+ * coñece ata a seguinte reconstrución: programar() fai unha cada certo tempo.
+ */
+public class IndiceRecomendacions implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndiceRecomendacions.class);
+
+    // Puntuacións de 0 a 10 (CHECK de libro_categoria)
+    public static final int PUNTUACION_MINIMA = 7;
+    public static final int VECINOS = 20;
+
+    /** Libro recomendado e a súa similitude (0, 1] co libro consultado. */
+    public record Vecino(int idLibro, double similitude) {
+    }
+
+    private static final String GUSTOS = "SELECT usuario_id, libro_id FROM favoritos UNION "
+            + "SELECT usuario_id, libro_id FROM libro_categoria WHERE puntuacion >= " + PUNTUACION_MINIMA;
+    private static final String GUSTOS_USUARIO = "SELECT libro_id FROM favoritos WHERE usuario_id = ? UNION "
+            + "SELECT libro_id FROM libro_categoria WHERE usuario_id = ? AND puntuacion >= " + PUNTUACION_MINIMA;
+
+    private static final int[] NINGUN = new int[0];
+    private static final float[] SEN_PESOS = new float[0];
+
+    private final DataSource dataSource;
+    private final ReentrantReadWriteLock bloqueo = new ReentrantReadWriteLock();
+    // librosDe[usuario] e usuariosDe[libro], ordenados; NINGUN se non hai
+    private int[][] librosDe = new int[1][];
+    private int[][] usuariosDe = new int[1][];
+    // vecinos[libro] de maior a menor pesos[libro]
+    private int[][] vecinos = new int[1][];
+    private float[][] pesos = new float[1][];
+    // Contas de coincidencias das actualizacións (un fío por vez, co bloqueo de escritura)
+    private int[] coincidencias = new int[1];
+    // Usuarios cambiados mentres se reconstrúe: vólvense aplicar sobre o resultado
+    private Set<Integer> cambiadosNaReconstrucion;
+    // Aparte do monitor do índice, que reconstruir ten ocupado: close() espera pola reconstrución en marcha
+    private final Object bloqueoProgramador = new Object();
+    private ScheduledExecutorService programador;
+
+    private IndiceRecomendacions(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /** Índice cos favoritos e puntuacións que hai agora na base de datos. */
+    public static IndiceRecomendacions cargar(DataSource dataSource) {
+        IndiceRecomendacions indice = new IndiceRecomendacions(dataSource);
+        indice.reconstruir();
+        return indice;
+    }
+
+    /** Ata limite libros máis similares a idLibro, de máis a menos similar. */
+    public List<Vecino> tamenGustaron(int idLibro, int limite) {
+        bloqueo.readLock().lock();
+        try {
+            if (idLibro <= 0 || idLibro >= vecinos.length || vecinos[idLibro] == null) {
+                return List.of();
+            }
+            int[] fila = vecinos[idLibro];
+            float[] filaPesos = pesos[idLibro];
+            List<Vecino> resultado = new ArrayList<>(Math.min(limite, fila.length));
+            for (int i = 0; i < fila.length && i < limite; i++) {
+                resultado.add(new Vecino(fila[i], filaPesos[i]));
+            }
+            return resultado;
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Volve ler os gustos de todos os usuarios e calcula os vecinos de cada libro en paralelo.
+     * As consultas seguen respondendo co índice anterior ata o final.
+     */
+    public synchronized void reconstruir() {
+        bloqueo.writeLock().lock();
+        try {
+            cambiadosNaReconstrucion = new HashSet<>();
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+        Set<Integer> cambiados;
+        try {
+            Gustos gustos = lerGustos();
+            int[][] novosLibrosDe = gustos.librosDe();
+            int[][] novosUsuariosDe = gustos.usuariosDe();
+            int[][] novosVecinos = new int[novosUsuariosDe.length][];
+            float[][] novosPesos = new float[novosUsuariosDe.length][];
+            // Cada fío co seu array de contas, do tamaño do catálogo
+            ThreadLocal<int[]> contas = ThreadLocal.withInitial(() -> new int[novosUsuariosDe.length]);
+            IntStream.range(1, novosUsuariosDe.length).parallel().forEach(libro -> {
+                Fila fila = calcular(libro, novosLibrosDe, novosUsuariosDe, contas.get(), null);
+                novosVecinos[libro] = fila.libros();
+                novosPesos[libro] = fila.pesos();
+            });
+            bloqueo.writeLock().lock();
+            try {
+                librosDe = novosLibrosDe;
+                usuariosDe = novosUsuariosDe;
+                vecinos = novosVecinos;
+                pesos = novosPesos;
+                coincidencias = new int[novosUsuariosDe.length];
+            } finally {
+                bloqueo.writeLock().unlock();
+            }
+        } finally {
+            bloqueo.writeLock().lock();
+            try {
+                cambiados = cambiadosNaReconstrucion;
+                cambiadosNaReconstrucion = null;
+            } finally {
+                bloqueo.writeLock().unlock();
+            }
+        }
+        for (int idUsuario : cambiados) {
+            recargarUsuario(idUsuario);
+        }
+    }
+
+    /**
+     * Reconstrúe o índice cada periodo nun fío de fondo, a primeira vez despois dun periodo (cargar xa o
+     * deixa ao día). O tempo vai ao log (INFO); un erro rexístrase e non cancela as seguintes.
+     */
+    public void programar(Duration periodo) {
+        synchronized (bloqueoProgramador) {
+            if (programador != null) {
+                throw new IllegalStateException("A reconstrución xa está programada");
+            }
+            programador = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("reconstrucion-recomendacions").daemon().factory());
+            programador.scheduleWithFixedDelay(() -> {
+                try {
+                    long inicio = System.nanoTime();
+                    reconstruir();
+                    LOG.info("Índice de recomendacións reconstruído en " + (System.nanoTime() - inicio) / 1_000_000 + " ms");
+                } catch (RuntimeException e) {
+                    LOG.error("Reconstrución do índice de recomendacións fallida", e);
+                }
+            }, periodo.toMillis(), periodo.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Para a reconstrución programada, esperando pola que estea en marcha. */
+    @Override
+    public void close() {
+        synchronized (bloqueoProgramador) {
+            if (programador != null) {
+                programador.close();
+                programador = null;
+            }
+        }
+    }
+
+    /** Volve ler os gustos dun usuario e actualiza os libros que gañaron ou perderon ese lector. */
+    public void recargarUsuario(int idUsuario) {
+        int[] novos = lerGustosUsuario(idUsuario);
+        bloqueo.writeLock().lock();
+        try {
+            if (cambiadosNaReconstrucion != null) {
+                cambiadosNaReconstrucion.add(idUsuario);
+            }
+            reservar(idUsuario, novos.length == 0 ? 0 : novos[novos.length - 1]);
+            int[] vellos = filaOuNingun(librosDe, idUsuario);
+            int[] cambiados = diferenza(vellos, novos);
+            if (cambiados.length == 0) {
+                return;
+            }
+            librosDe[idUsuario] = novos;
+            for (int libro : cambiados) {
+                int[] lectores = filaOuNingun(usuariosDe, libro);
+                usuariosDe[libro] = Arrays.binarySearch(vellos, libro) >= 0
+                        ? sen(lectores, idUsuario) : con(lectores, idUsuario);
+            }
+            for (int libro : cambiados) {
+                // De paso corríxese a similitude con libro nas filas dos libros cos que comparte lectores
+                Fila fila = calcular(libro, librosDe, usuariosDe, coincidencias,
+                        (outro, comuns) -> axustar(outro, libro, comuns));
+                vecinos[libro] = fila.libros();
+                pesos[libro] = fila.pesos();
+            }
+            // Un libro quitado pode non compartir xa ningún lector cos que o usuario segue tendo
+            for (int quitado : cambiados) {
+                if (Arrays.binarySearch(novos, quitado) < 0) {
+                    for (int libro : novos) {
+                        axustar(libro, quitado, comuns(usuariosDe[libro], filaOuNingun(usuariosDe, quitado)));
+                    }
+                }
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Os VECINOS libros máis similares a libro. contas ten que vir a ceros e volve a ceros.
+     * @param aviso se non é null, recibe cada libro con lectores en común e cantos
+     */
+    private static Fila calcular(int libro, int[][] librosDe, int[][] usuariosDe, int[] contas, PorCoincidencia aviso) {
+        int[] lectores = filaOuNingun(usuariosDe, libro);
+        if (lectores.length == 0) {
+            return new Fila(NINGUN, SEN_PESOS);
+        }
+        int[] tocados = new int[16];
+        int numTocados = 0;
+        for (int usuario : lectores) {
+            for (int outro : filaOuNingun(librosDe, usuario)) {
+                if (outro != libro && contas[outro]++ == 0) {
+                    if (numTocados == tocados.length) {
+                        tocados = Arrays.copyOf(tocados, numTocados * 2);
+                    }
+                    tocados[numTocados++] = outro;
+                }
+            }
+        }
+        Fila fila = new Fila(new int[Math.min(VECINOS, numTocados)], new float[Math.min(VECINOS, numTocados)]);
+        int enFila = 0;
+        for (int i = 0; i < numTocados; i++) {
+            int outro = tocados[i];
+            float similitude = (float) (contas[outro] / Math.sqrt((double) lectores.length * usuariosDe[outro].length));
+            if (aviso != null) {
+                aviso.con(outro, contas[outro]);
+            }
+            contas[outro] = 0;
+            enFila = fila.poner(enFila, outro, similitude);
+        }
+        return fila;
+    }
+
+    /** Pon en vecinos[libro] a similitude con outro, que gañou ou perdeu lectores. */
+    private void axustar(int libro, int outro, int comuns) {
+        int[] fila = vecinos[libro] == null ? NINGUN : vecinos[libro];
+        float[] filaPesos = pesos[libro] == null ? SEN_PESOS : pesos[libro];
+        // Fila nova sen outro e, se aínda teñen lectores en común e cabe, con outro no seu sitio
+        int posicion = -1;
+        for (int i = 0; i < fila.length; i++) {
+            if (fila[i] == outro) {
+                posicion = i;
+            }
+        }
+        int[] sen = fila;
+        float[] senPesos = filaPesos;
+        if (posicion >= 0) {
+            sen = new int[fila.length - 1];
+            senPesos = new float[fila.length - 1];
+            System.arraycopy(fila, 0, sen, 0, posicion);
+            System.arraycopy(fila, posicion + 1, sen, posicion, sen.length - posicion);
+            System.arraycopy(filaPesos, 0, senPesos, 0, posicion);
+            System.arraycopy(filaPesos, posicion + 1, senPesos, posicion, senPesos.length - posicion);
+        }
+        if (comuns == 0) {
+            vecinos[libro] = sen;
+            pesos[libro] = senPesos;
+            return;
+        }
+        float similitude = (float) (comuns / Math.sqrt((double) usuariosDe[libro].length * usuariosDe[outro].length));
+        Fila nova = new Fila(Arrays.copyOf(sen, Math.min(VECINOS, sen.length + 1)),
+                Arrays.copyOf(senPesos, Math.min(VECINOS, sen.length + 1)));
+        int enFila = nova.poner(Math.min(sen.length, nova.libros().length), outro, similitude);
+        vecinos[libro] = Arrays.copyOf(nova.libros(), enFila);
+        pesos[libro] = Arrays.copyOf(nova.pesos(), enFila);
+    }
+
+    /** Fai sitio para o usuario e o libro dados. Só co bloqueo de escritura. */
+    private void reservar(int idUsuario, int idLibro) {
+        if (idUsuario >= librosDe.length) {
+            librosDe = Arrays.copyOf(librosDe, Math.max(idUsuario + 1, librosDe.length * 2));
+        }
+        if (idLibro >= usuariosDe.length) {
+            int tamano = Math.max(idLibro + 1, usuariosDe.length * 2);
+            usuariosDe = Arrays.copyOf(usuariosDe, tamano);
+            vecinos = Arrays.copyOf(vecinos, tamano);
+            pesos = Arrays.copyOf(pesos, tamano);
+            coincidencias = new int[tamano];
+        }
+    }
+
+    /** Os gustos de toda a base de datos, por usuario e por libro. */
+    private Gustos lerGustos() {
+        int[] usuarios = new int[1024];
+        int[] libros = new int[1024];
+        int pares = 0;
+        int maxUsuario = 0;
+        int maxLibro = 0;
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement ps = con.prepareStatement(GUSTOS);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                if (pares == usuarios.length) {
+                    usuarios = Arrays.copyOf(usuarios, pares * 2);
+                    libros = Arrays.copyOf(libros, pares * 2);
+                }
+                usuarios[pares] = rs.getInt(1);
+                libros[pares] = rs.getInt(2);
+                maxUsuario = Math.max(maxUsuario, usuarios[pares]);
+                maxLibro = Math.max(maxLibro, libros[pares]);
+                pares++;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al leer los favoritos y puntuaciones" + e);
+        }
+        return new Gustos(agrupar(usuarios, libros, pares, maxUsuario), agrupar(libros, usuarios, pares, maxLibro));
+    }
+
+    /** Fila por clave cos valores dos pares, ordenados (UNION xa quitou os repetidos). */
+    private static int[][] agrupar(int[] claves, int[] valores, int pares, int maxClave) {
+        int[] tamanos = new int[maxClave + 1];
+        for (int i = 0; i < pares; i++) {
+            tamanos[claves[i]]++;
+        }
+        int[][] filas = new int[maxClave + 1][];
+        for (int clave = 0; clave <= maxClave; clave++) {
+            filas[clave] = tamanos[clave] == 0 ? NINGUN : new int[tamanos[clave]];
+        }
+        Arrays.fill(tamanos, 0);
+        for (int i = 0; i < pares; i++) {
+            filas[claves[i]][tamanos[claves[i]]++] = valores[i];
+        }
+        IntStream.rangeClosed(0, maxClave).parallel().forEach(clave -> Arrays.sort(filas[clave]));
+        return filas;
+    }
+
+    private int[] lerGustosUsuario(int idUsuario) {
+        int[] libros = new int[16];
+        int tamano = 0;
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement ps = con.prepareStatement(GUSTOS_USUARIO)) {
+            ps.setInt(1, idUsuario);
+            ps.setInt(2, idUsuario);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (tamano == libros.length) {
+                        libros = Arrays.copyOf(libros, tamano * 2);
+                    }
+                    libros[tamano++] = rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al leer los favoritos y puntuaciones del usuario " + idUsuario + e);
+        }
+        libros = Arrays.copyOf(libros, tamano);
+        Arrays.sort(libros);
+        return libros;
+    }
+
+    /** Cantos valores teñen en común dous arrays ordenados. */
+    private static int comuns(int[] a, int[] b) {
+        int comuns = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                comuns++;
+                i++;
+                j++;
+            }
+        }
+        return comuns;
+    }
+
+    private static int[] filaOuNingun(int[][] filas, int id) {
+        return id < filas.length && filas[id] != null ? filas[id] : NINGUN;
+    }
+
+    /** Valores que están só nun dos dous arrays ordenados, ordenados. */
+    private static int[] diferenza(int[] a, int[] b) {
+        int[] resultado = new int[a.length + b.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                resultado[n++] = a[i++];
+            } else if (i == a.length || a[i] > b[j]) {
+                resultado[n++] = b[j++];
+            } else {
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    private static int[] con(int[] ordenados, int valor) {
+        int p = Arrays.binarySearch(ordenados, valor);
+        if (p >= 0) {
+            return ordenados;
+        }
+        int oco = -p - 1;
+        int[] resultado = new int[ordenados.length + 1];
+        System.arraycopy(ordenados, 0, resultado, 0, oco);
+        resultado[oco] = valor;
+        System.arraycopy(ordenados, oco, resultado, oco + 1, ordenados.length - oco);
+        return resultado;
+    }
+
+    private static int[] sen(int[] ordenados, int valor) {
+        int p = Arrays.binarySearch(ordenados, valor);
+        if (p < 0) {
+            return ordenados;
+        }
+        int[] resultado = new int[ordenados.length - 1];
+        System.arraycopy(ordenados, 0, resultado, 0, p);
+        System.arraycopy(ordenados, p + 1, resultado, p, resultado.length - p);
+        return resultado;
+    }
+
+    private record Gustos(int[][] librosDe, int[][] usuariosDe) {
+    }
+
+    private interface PorCoincidencia {
+        void con(int outro, int comuns);
+    }
+
+    /** Vecinos dun libro de maior a menor peso, con capacidade fixa. */
+    private record Fila(int[] libros, float[] pesos) {
+
+        /**
+         * Pon o libro no seu sitio se está entre os mellores (a igual peso, o id menor primeiro).
+         * @return cantos hai agora na fila
+         */
+        int poner(int enFila, int libro, float peso) {
+            int capacidade = libros.length;
+            if (capacidade == 0) {
+                return 0;
+            }
+            if (enFila == capacidade && !mellor(libro, peso, libros[enFila - 1], pesos[enFila - 1])) {
+                return enFila;
+            }
+            int i = Math.min(enFila, capacidade - 1);
+            while (i > 0 && mellor(libro, peso, libros[i - 1], pesos[i - 1])) {
+                libros[i] = libros[i - 1];
+                pesos[i] = pesos[i - 1];
+                i--;
+            }
+            libros[i] = libro;
+            pesos[i] = peso;
+            return Math.min(enFila + 1, capacidade);
+        }
+
+        private static boolean mellor(int libro, float peso, int outro, float pesoOutro) {
+            return peso > pesoOutro || (peso == pesoOutro && libro < outro);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package indice;
+
+import modelo.Autor;
+import modelo.Categoria;
+import modelo.Libro;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.Objects;
+
+/**
+ * Leva ao IndiceCatalogo os libros creados, cambiados ou borrados e os nomes novos de autores e
+ * categorías, só cando a transacción remata en commit.
+ */
+public class ListenerCatalogo extends ListenerPostCommit {
+
+    private final IndiceCatalogo indice;
+
+    public ListenerCatalogo(IndiceCatalogo indice) {
+        super(Libro.class, Autor.class, Categoria.class);
+        this.indice = indice;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        Object entidade = event.getEntity();
+        if (entidade instanceof Libro) {
+            indice.indexar(campos(event.getPersister(), (Integer) event.getId(), event.getState()));
+        } else if (entidade instanceof Autor autor) {
+            indice.ponerAutor(autor.getId(), nombre(event.getPersister(), event.getState()));
+        } else if (entidade instanceof Categoria categoria) {
+            indice.ponerCategoria(categoria.getId(), nombre(event.getPersister(), event.getState()));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        EntityPersister persister = event.getPersister();
+        Object entidade = event.getEntity();
+        if (entidade instanceof Libro) {
+            int id = (Integer) event.getId();
+            IndiceCatalogo.CamposLibro novo = campos(persister, id, event.getState());
+            // Sen estado anterior (entidade desligada actualizada sen ler antes a fila) reindéxase igual:
+            // o índice quita os termos cos campos que tiña indexados
+            if (event.getOldState() == null || !campos(persister, id, event.getOldState()).equals(novo)) {
+                indice.indexar(novo);
+            }
+        } else if (entidade instanceof Autor autor) {
+            indice.ponerAutor(autor.getId(), nombre(persister, event.getState()));
+        } else if (entidade instanceof Categoria categoria) {
+            indice.ponerCategoria(categoria.getId(), nombre(persister, event.getState()));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Object entidade = event.getEntity();
+        if (entidade instanceof Libro) {
+            indice.eliminar((Integer) event.getId());
+        } else if (entidade instanceof Autor autor) {
+            indice.quitarAutor(autor.getId());
+        } else if (entidade instanceof Categoria categoria) {
+            indice.quitarCategoria(categoria.getId());
+        }
+    }
+
+    private static IndiceCatalogo.CamposLibro campos(EntityPersister persister, int id, Object[] estado) {
+        return new IndiceCatalogo.CamposLibro(id,
+                (String) EstadoEntidade.valor(persister, estado, "titulo"),
+                (String) EstadoEntidade.valor(persister, estado, "isbn"),
+                (String) EstadoEntidade.valor(persister, estado, "editorial"),
+                EstadoEntidade.<Autor>idAsociada(persister, estado, "autor", Autor::getId),
+                EstadoEntidade.<Categoria>idAsociada(persister, estado, "categoria", Categoria::getId));
+    }
+
+    private static String nombre(EntityPersister persister, Object[] estado) {
+        return Objects.toString(EstadoEntidade.valor(persister, estado, "nombre"), "");
+    }
+}
@@ -0,0 +1,69 @@
+package indice;
+
+import modelo.Ejemplar;
+import modelo.Libro;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * Leva ao IndiceDisponibilidad os cambios de Ejemplar feitos con entidades (persist, merge, remove
+ * ou cambios nunha entidade xestionada), só cando a transacción remata en commit.
+ */
+public class ListenerDisponibilidad extends ListenerPostCommit {
+
+    private final IndiceDisponibilidad indice;
+
+    public ListenerDisponibilidad(IndiceDisponibilidad indice) {
+        super(Ejemplar.class);
+        this.indice = indice;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Ejemplar) {
+            Object[] estado = event.getState();
+            indice.sumar(idLibro(event.getPersister(), estado), estadoEjemplar(event.getPersister(), estado), 1);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Ejemplar)) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        Object[] novo = event.getState();
+        Object[] anterior = event.getOldState();
+        int libroNovo = idLibro(persister, novo);
+        if (anterior == null) {
+            // Entidade desligada actualizada sen ler antes a fila: non se sabe de que estado viña
+            indice.recontar(libroNovo);
+            return;
+        }
+        int libroAnterior = idLibro(persister, anterior);
+        if (libroAnterior == libroNovo) {
+            indice.mover(libroNovo, estadoEjemplar(persister, anterior), estadoEjemplar(persister, novo));
+        } else {
+            indice.sumar(libroAnterior, estadoEjemplar(persister, anterior), -1);
+            indice.sumar(libroNovo, estadoEjemplar(persister, novo), 1);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Ejemplar) {
+            Object[] estado = event.getDeletedState();
+            indice.sumar(idLibro(event.getPersister(), estado), estadoEjemplar(event.getPersister(), estado), -1);
+        }
+    }
+
+    private static Ejemplar.EstadoEjemplar estadoEjemplar(EntityPersister persister, Object[] estado) {
+        return (Ejemplar.EstadoEjemplar) EstadoEntidade.valor(persister, estado, "estado");
+    }
+
+    private static int idLibro(EntityPersister persister, Object[] estado) {
+        return EstadoEntidade.<Libro>idAsociada(persister, estado, "libro", Libro::getId);
+    }
+}
@@ -0,0 +1,62 @@
+package indice;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.Set;
+
+/**
+ * Base dos listeners que levan a un índice en memoria os cambios das entidades, só cando a transacción
+ * remata en commit. Hibernate avisa a todos os listeners post-commit de calquera entidade (as clases
+ * do constructor só evitan rexistrar a acción), así que cada evento ten que comprobar a clase antes de usalo.
+ */
+public abstract class ListenerPostCommit implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+
+    private final Set<Class<?>> clases;
+
+    protected ListenerPostCommit(Class<?>... clases) {
+        this.clases = Set.of(clases);
+    }
+
+    /** Engade o listener aos eventos post-commit da EntityManagerFactory. */
+    public void rexistrar(EntityManagerFactory entityManagerFactory) {
+        EventListenerRegistry rexistro = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        rexistro.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        rexistro.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        rexistro.appendListeners(EventType.POST_COMMIT_DELETE, this);
+        rexistrarOutros(rexistro);
+    }
+
+    /** Para os listeners que escoitan tamén outros eventos. */
+    protected void rexistrarOutros(EventListenerRegistry rexistro) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return clases.contains(persister.getMappedClass());
+    }
+
+    // Se o commit falla non hai nada que desfacer: o índice só cambia despois dun commit correcto
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+}
@@ -0,0 +1,62 @@
+package indice;
+
+import modelo.Ejemplar;
+import modelo.Libro;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.Objects;
+
+/**
+ * Leva ao IndicePrefixos os títulos e ISBN de Libro e os códigos de Ejemplar creados, cambiados ou borrados,
+ * só cando a transacción remata en commit.
+ */
+public class ListenerPrefixos extends ListenerPostCommit {
+
+    private final IndicePrefixos indice;
+
+    public ListenerPrefixos(IndicePrefixos indice) {
+        super(Libro.class, Ejemplar.class);
+        this.indice = indice;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        poner(event.getPersister(), event.getId(), null, event.getState());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        poner(event.getPersister(), event.getId(), event.getOldState(), event.getState());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Libro) {
+            indice.quitar(IndicePrefixos.Campo.TITULO, (Integer) event.getId());
+            indice.quitar(IndicePrefixos.Campo.ISBN, (Integer) event.getId());
+        } else if (event.getEntity() instanceof Ejemplar) {
+            indice.quitar(IndicePrefixos.Campo.CODIGO, (Integer) event.getId());
+        }
+    }
+
+    /** anterior null: inserción ou entidade desligada sen estado previo, ponse sempre. */
+    private void poner(EntityPersister persister, Object id, Object[] anterior, Object[] novo) {
+        if (persister.getMappedClass() == Libro.class) {
+            ponerSeCambia(IndicePrefixos.Campo.TITULO, persister, (Integer) id, "titulo", anterior, novo);
+            ponerSeCambia(IndicePrefixos.Campo.ISBN, persister, (Integer) id, "isbn", anterior, novo);
+        } else if (persister.getMappedClass() == Ejemplar.class) {
+            ponerSeCambia(IndicePrefixos.Campo.CODIGO, persister, (Integer) id, "codigo", anterior, novo);
+        }
+    }
+
+    private void ponerSeCambia(IndicePrefixos.Campo campo, EntityPersister persister, int id, String propiedade,
+                               Object[] anterior, Object[] novo) {
+        String texto = (String) EstadoEntidade.valor(persister, novo, propiedade);
+        if (anterior == null || !Objects.equals(EstadoEntidade.valor(persister, anterior, propiedade), texto)) {
+            indice.poner(campo, id, texto);
+        }
+    }
+}
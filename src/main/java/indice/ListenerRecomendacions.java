@@ -0,0 +1,90 @@
+package indice;
+
+import modelo.LibroCategoria;
+import modelo.Usuario;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+
+/**
+ * Avisa ao IndiceRecomendacions dos usuarios cuxos favoritos (Usuario.librosFavoritos) ou puntuacións
+ * (LibroCategoria) cambiaron, só cando a transacción remata en commit.
+ * As coleccións non teñen eventos post-commit: o cambio nos favoritos deixa un proceso para o final da transacción.
+ */
+public class ListenerRecomendacions extends ListenerPostCommit implements PostCollectionRecreateEventListener,
+        PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+
+    private static final String FAVORITOS = Usuario.class.getName() + ".librosFavoritos";
+
+    private final IndiceRecomendacions indice;
+
+    public ListenerRecomendacions(IndiceRecomendacions indice) {
+        super(LibroCategoria.class);
+        this.indice = indice;
+    }
+
+    @Override
+    protected void rexistrarOutros(EventListenerRegistry rexistro) {
+        rexistro.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+        rexistro.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+        rexistro.appendListeners(EventType.POST_COLLECTION_REMOVE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof LibroCategoria valoracion) {
+            indice.recargarUsuario(valoracion.getUsuarioId());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof LibroCategoria valoracion) {
+            indice.recargarUsuario(valoracion.getUsuarioId());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof LibroCategoria valoracion) {
+            indice.recargarUsuario(valoracion.getUsuarioId());
+        }
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        trasCommit(event);
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        trasCommit(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        trasCommit(event);
+    }
+
+    /** Os favoritos do usuario xa se escribiron: volven lerse se a transacción remata en commit. */
+    private void trasCommit(AbstractCollectionEvent event) {
+        if (!FAVORITOS.equals(event.getCollection().getRole()) || event.getAffectedOwnerIdOrNull() == null) {
+            return;
+        }
+        int idUsuario = (Integer) event.getAffectedOwnerIdOrNull();
+        event.getSession().getActionQueue().registerProcess((correcta, sesion) -> {
+            if (correcta) {
+                indice.recargarUsuario(idUsuario);
+            }
+        });
+    }
+}
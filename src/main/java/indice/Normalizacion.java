@@ -0,0 +1,60 @@
+package indice;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Termos de busca dun texto: en minúsculas, sen acentos nin diéreses ("Diseño" → "diseno",
+ * "Pingüino" → "pinguino") e partidos por todo o que non sexa letra ou díxito.
+ */
+final class Normalizacion {
+
+    // Palabras tan frecuentes nos títulos que non axudan a distinguir: nin se indexan nin se buscan
+    static final Set<String> BALEIRAS = Set.of("a", "al", "con", "de", "del", "e", "el", "en", "la", "las", "lo",
+            "los", "o", "para", "por", "u", "un", "una", "y");
+
+    private Normalizacion() {
+    }
+
+    /** Termos do texto na orde na que aparecen, repetidos incluídos e sen as palabras baleiras. */
+    static List<String> termos(String texto) {
+        List<String> termos = new ArrayList<>();
+        if (texto == null) {
+            return termos;
+        }
+        String plegado = plegar(texto);
+        int inicio = -1;
+        for (int i = 0; i <= plegado.length(); i++) {
+            boolean dentro = i < plegado.length() && Character.isLetterOrDigit(plegado.charAt(i));
+            if (dentro && inicio < 0) {
+                inicio = i;
+            } else if (!dentro && inicio >= 0) {
+                String termo = plegado.substring(inicio, i);
+                if (!BALEIRAS.contains(termo)) {
+                    termos.add(termo);
+                }
+                inicio = -1;
+            }
+        }
+        return termos;
+    }
+
+    /** Minúsculas e sen marcas diacríticas. Os textos só ASCII (a maioría) non pasan polo Normalizer. */
+    static String plegar(String texto) {
+        boolean ascii = true;
+        for (int i = 0; i < texto.length() && ascii; i++) {
+            ascii = texto.charAt(i) < 128;
+        }
+        String base = ascii ? texto : Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(base.length());
+        for (int i = 0; i < base.length(); i++) {
+            char c = base.charAt(i);
+            if (ascii || Character.getType(c) != Character.NON_SPACING_MARK) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+}
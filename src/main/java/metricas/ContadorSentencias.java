@@ -0,0 +1,70 @@
+package metricas;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * StatementInspector que garda o SQL que Hibernate envía desde o fío actual mentres hai un bloque aberto.
+ * Pensado para probas: comprobarMaximo(n, bloque) falla se o bloque emite máis de n sentencias,
+ * que é como se detecta un N+1 (un toString() ou un bucle que percorre asociacións LAZY).
+ * Rexístrase en persistence.xml con hibernate.session_factory.statement_inspector.
+ */
+public class ContadorSentencias implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Bloques abertos no fío; cada sentencia anótase en todos (os bloques poden aniñarse). */
+    private static final ThreadLocal<Deque<List<String>>> BLOQUES = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @Override
+    public String inspect(String sql) {
+        for (List<String> bloque : BLOQUES.get()) {
+            bloque.add(sql);
+        }
+        return sql;
+    }
+
+    /** Executa o bloque e devolve as sentencias SQL que emitiu, na orde en que se prepararon. */
+    public static List<String> capturar(Runnable bloque) {
+        List<String> sentencias = new ArrayList<>();
+        Deque<List<String>> abertos = BLOQUES.get();
+        abertos.push(sentencias);
+        try {
+            bloque.run();
+        } finally {
+            abertos.pop();
+        }
+        return sentencias;
+    }
+
+    /**
+     * Executa o bloque e falla con AssertionError se emitiu máis de maximo sentencias.
+     * A mensaxe leva as sentencias, así que se ve cal se repite.
+     */
+    public static <T> T comprobarMaximo(int maximo, Supplier<T> bloque) {
+        List<T> resultado = new ArrayList<>(1);
+        List<String> sentencias = capturar(() -> resultado.add(bloque.get()));
+        if (sentencias.size() > maximo) {
+            StringBuilder sb = new StringBuilder()
+                    .append("Esperábanse como moito ").append(maximo)
+                    .append(" sentencias e emitíronse ").append(sentencias.size()).append(':');
+            for (String sql : sentencias) {
+                sb.append("\n  ").append(sql);
+            }
+            throw new AssertionError(sb.toString());
+        }
+        return resultado.get(0);
+    }
+
+    public static void comprobarMaximo(int maximo, Runnable bloque) {
+        comprobarMaximo(maximo, () -> {
+            bloque.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package metricas;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Modo opcional que avisa (WARN con traza) cando unha unidade de traballo carga de forma LAZY
+ * a mesma entidade ou colección máis veces que o umbral: o síntoma dun N+1 en produción.
+ * Actívase coa propiedade {@value #PROPIEDADE_UMBRAL} (0 ou sen definir = desactivado).
+ * A unidade de traballo é a vida do EntityManager do fío (ProveedorEntityManager).
+ */
+public final class DetectorCargasLazy {
+
+    public static final String PROPIEDADE_UMBRAL = "biblioteca.cargas_lazy.umbral";
+
+    private static final Logger LOG = LoggerFactory.getLogger(DetectorCargasLazy.class);
+    private static final ThreadLocal<Map<String, Integer>> CARGAS = ThreadLocal.withInitial(HashMap::new);
+
+    private static volatile int umbral;
+
+    private DetectorCargasLazy() {
+    }
+
+    static void configurar(int novoUmbral) {
+        umbral = Math.max(0, novoUmbral);
+    }
+
+    public static boolean isActivo() {
+        return umbral > 0;
+    }
+
+    /** Comeza unha unidade de traballo no fío actual: as contas volven a cero. */
+    public static void iniciarUnidad() {
+        if (isActivo()) {
+            CARGAS.get().clear();
+        }
+    }
+
+    /** Remata a unidade de traballo do fío actual. */
+    public static void finalizarUnidad() {
+        CARGAS.remove();
+    }
+
+    /** tipo: nome da entidade (modelo.Usuario) ou rol da colección (modelo.Ejemplar.prestamos). */
+    static void cargaLazy(String tipo) {
+        int limite = umbral;
+        if (limite <= 0) {
+            return;
+        }
+        int veces = CARGAS.get().merge(tipo, 1, Integer::sum);
+        // Avísase unha soa vez por tipo e unidade de traballo
+        if (veces == limite + 1) {
+            LOG.warn("Posible N+1: " + tipo + " cargouse de forma LAZY máis de " + limite
+                    + " veces na mesma unidade de traballo", new Throwable("Carga LAZY de " + tipo));
+        }
+    }
+}
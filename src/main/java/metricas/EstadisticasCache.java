@@ -0,0 +1,84 @@
+package metricas;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Taxas de acerto da caché de segundo nivel por rexión (autor, categoria, usuario-email...),
+ * lidas das estatísticas de Hibernate (hibernate.generate_statistics = true).
+ * Inclúe as rexións de entidades, de claves naturais e de consultas; non a de timestamps.
+ */
+public class EstadisticasCache {
+
+    private final Statistics estadisticas;
+
+    public EstadisticasCache(EntityManagerFactory entityManagerFactory) {
+        this.estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /** Nomes das rexións de caché con estatísticas. */
+    public List<String> getRexions() {
+        return Arrays.stream(estadisticas.getSecondLevelCacheRegionNames())
+                .filter(rexion -> estadisticas.getCacheRegionStatistics(rexion) != null)
+                .sorted()
+                .toList();
+    }
+
+    public long getAciertos(String rexion) {
+        return estadisticas.getCacheRegionStatistics(rexion).getHitCount();
+    }
+
+    public long getFallos(String rexion) {
+        return estadisticas.getCacheRegionStatistics(rexion).getMissCount();
+    }
+
+    public long getEscrituras(String rexion) {
+        return estadisticas.getCacheRegionStatistics(rexion).getPutCount();
+    }
+
+    /** Entre 0 e 1; 0 se a rexión aínda non se consultou. */
+    public double getTaxaAcierto(String rexion) {
+        CacheRegionStatistics r = estadisticas.getCacheRegionStatistics(rexion);
+        long total = r.getHitCount() + r.getMissCount();
+        return total == 0 ? 0 : (double) r.getHitCount() / total;
+    }
+
+    /** Taxa de acerto sumando todas as rexións. */
+    public double getTaxaAciertoTotal() {
+        long aciertos = 0;
+        long total = 0;
+        for (String rexion : getRexions()) {
+            CacheRegionStatistics r = estadisticas.getCacheRegionStatistics(rexion);
+            aciertos += r.getHitCount();
+            total += r.getHitCount() + r.getMissCount();
+        }
+        return total == 0 ? 0 : (double) aciertos / total;
+    }
+
+    /** Formato de texto de Prometheus. */
+    public String informe() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# TYPE biblioteca_cache_aciertos_total counter\n");
+        for (String rexion : getRexions()) {
+            sb.append("biblioteca_cache_aciertos_total{rexion=\"").append(rexion).append("\"} ").append(getAciertos(rexion)).append('\n');
+        }
+        sb.append("# TYPE biblioteca_cache_fallos_total counter\n");
+        for (String rexion : getRexions()) {
+            sb.append("biblioteca_cache_fallos_total{rexion=\"").append(rexion).append("\"} ").append(getFallos(rexion)).append('\n');
+        }
+        sb.append("# TYPE biblioteca_cache_escrituras_total counter\n");
+        for (String rexion : getRexions()) {
+            sb.append("biblioteca_cache_escrituras_total{rexion=\"").append(rexion).append("\"} ").append(getEscrituras(rexion)).append('\n');
+        }
+        sb.append("# TYPE biblioteca_cache_taxa_acierto gauge\n");
+        for (String rexion : getRexions()) {
+            sb.append("biblioteca_cache_taxa_acierto{rexion=\"").append(rexion).append("\"} ").append(getTaxaAcierto(rexion)).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,77 @@
+package metricas;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+
+/**
+ * Estatísticas de Hibernate que ademais contan, para o fío actual, as sentencias preparadas
+ * e as entidades e coleccións cargadas. Como cada fío ten o seu EntityManager (ProveedorEntityManager),
+ * a diferenza entre dúas lecturas é o traballo feito entre elas polo fío: iso usa MetricasDAO por chamada.
+ * As cargas LAZY (fetch) pásanse tamén a DetectorCargasLazy.
+ * Rexístrase en persistence.xml con hibernate.stats.factory = metricas.FabricaEstadisticas.
+ */
+public class EstadisticasPorFio extends StatisticsImpl {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int SENTENCIAS = 0;
+    private static final int ENTIDADES = 1;
+    private static final int COLECCIONS = 2;
+
+    private static final ThreadLocal<long[]> CONTADORES = ThreadLocal.withInitial(() -> new long[3]);
+
+    public EstadisticasPorFio(SessionFactoryImplementor sessionFactory) {
+        super(sessionFactory);
+        Object umbral = sessionFactory.getServiceRegistry().requireService(ConfigurationService.class)
+                .getSettings().get(DetectorCargasLazy.PROPIEDADE_UMBRAL);
+        DetectorCargasLazy.configurar(umbral == null ? 0 : Integer.parseInt(umbral.toString()));
+    }
+
+    /** Sentencias JDBC preparadas por este fío desde que arrancou. */
+    public static long sentenciasFio() {
+        return CONTADORES.get()[SENTENCIAS];
+    }
+
+    /** Entidades lidas da base de datos (consulta ou carga LAZY) por este fío. Os acertos de caché non contan. */
+    public static long entidadesFio() {
+        return CONTADORES.get()[ENTIDADES];
+    }
+
+    /** Coleccións inicializadas desde a base de datos por este fío. */
+    public static long coleccionsFio() {
+        return CONTADORES.get()[COLECCIONS];
+    }
+
+    @Override
+    public void prepareStatement() {
+        super.prepareStatement();
+        CONTADORES.get()[SENTENCIAS]++;
+    }
+
+    @Override
+    public void loadEntity(String entityName) {
+        super.loadEntity(entityName);
+        CONTADORES.get()[ENTIDADES]++;
+    }
+
+    @Override
+    public void fetchEntity(String entityName) {
+        super.fetchEntity(entityName);
+        CONTADORES.get()[ENTIDADES]++;
+        DetectorCargasLazy.cargaLazy(entityName);
+    }
+
+    @Override
+    public void loadCollection(String role) {
+        super.loadCollection(role);
+        CONTADORES.get()[COLECCIONS]++;
+    }
+
+    @Override
+    public void fetchCollection(String role) {
+        super.fetchCollection(role);
+        CONTADORES.get()[COLECCIONS]++;
+        DetectorCargasLazy.cargaLazy(role);
+    }
+}
@@ -0,0 +1,14 @@
+package metricas;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.hibernate.stat.spi.StatisticsImplementor;
+
+/** Fai que Hibernate use EstadisticasPorFio (propiedade hibernate.stats.factory). */
+public class FabricaEstadisticas implements StatisticsFactory {
+
+    @Override
+    public StatisticsImplementor buildStatistics(SessionFactoryImplementor sessionFactory) {
+        return new EstadisticasPorFio(sessionFactory);
+    }
+}
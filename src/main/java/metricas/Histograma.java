@@ -0,0 +1,106 @@
+package metricas;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma log-lineal sen bloqueos: 8 cubos por cada potencia de 2, o que deixa
+ * os percentís cun erro relativo por debaixo do 12,5 %. A unidade decídea quen rexistra.
+ */
+public class Histograma {
+
+    private static final int SUBCUBOS_BITS = 3;
+    private static final int SUBCUBOS = 1 << SUBCUBOS_BITS;
+    private static final double[] CUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final AtomicLongArray cubos = new AtomicLongArray(64 * SUBCUBOS);
+    private final LongAdder cantidad = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final LongAccumulator maximo = new LongAccumulator(Long::max, 0);
+
+    public void registrar(long valor) {
+        if (valor < 0) {
+            valor = 0;
+        }
+        cubos.incrementAndGet(indice(valor));
+        cantidad.increment();
+        suma.add(valor);
+        maximo.accumulate(valor);
+    }
+
+    public long getCantidad() {
+        return cantidad.sum();
+    }
+
+    public long getSuma() {
+        return suma.sum();
+    }
+
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    public double getMedia() {
+        long n = getCantidad();
+        return n == 0 ? 0 : (double) getSuma() / n;
+    }
+
+    /** Valor por debaixo do que queda a fracción p (0..1) das mostras; devolve o límite superior do cubo. */
+    public long percentil(double p) {
+        long total = 0;
+        for (int i = 0; i < cubos.length(); i++) {
+            total += cubos.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = (long) Math.ceil(p * total);
+        long acumulado = 0;
+        for (int i = 0; i < cubos.length(); i++) {
+            acumulado += cubos.get(i);
+            if (acumulado >= objetivo) {
+                return Math.min(limiteSuperior(i), getMaximo());
+            }
+        }
+        return getMaximo();
+    }
+
+    /** Escribe o histograma como un summary de Prometheus. */
+    public void escribir(StringBuilder sb, String nombre, String etiquetas) {
+        String sep = etiquetas.isEmpty() ? "" : etiquetas + ",";
+        for (double q : CUANTILES) {
+            sb.append(nombre).append("{").append(sep).append("quantile=\"").append(q).append("\"} ")
+                    .append(percentil(q)).append('\n');
+        }
+        String llaves = etiquetas.isEmpty() ? "" : "{" + etiquetas + "}";
+        sb.append(nombre).append("_count").append(llaves).append(' ').append(getCantidad()).append('\n');
+        sb.append(nombre).append("_sum").append(llaves).append(' ').append(getSuma()).append('\n');
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "n=%d media=%.1f p50=%d p99=%d max=%d",
+                getCantidad(), getMedia(), percentil(0.5), percentil(0.99), getMaximo());
+    }
+
+    private static int indice(long valor) {
+        if (valor < SUBCUBOS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int sub = (int) (valor >>> (exponente - SUBCUBOS_BITS)) & (SUBCUBOS - 1);
+        return (exponente - SUBCUBOS_BITS + 1) * SUBCUBOS + sub;
+    }
+
+    private static long limiteSuperior(int indice) {
+        if (indice < SUBCUBOS) {
+            return indice;
+        }
+        int exponente = indice / SUBCUBOS + SUBCUBOS_BITS - 1;
+        long sub = indice % SUBCUBOS;
+        long base = 1L << exponente;
+        return base + ((sub + 1) << (exponente - SUBCUBOS_BITS)) - 1;
+    }
+}
@@ -0,0 +1,156 @@
+package metricas;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * Métricas por método DAO. instrumentar() envolve un DAO nun proxy da súa interface que mide
+ * cada chamada: latencia, erros (excepcións) e, con EstadisticasPorFio, as sentencias SQL e as
+ * entidades e coleccións que cargou Hibernate durante a chamada.
+ * Cada método publícase tamén como MXBean (biblioteca:type=DAO,dao=...,metodo=...).
+ */
+public class MetricasDAO implements AutoCloseable {
+
+    private final Map<String, MetricasMetodo> metodos = new ConcurrentSkipListMap<>();
+    private final List<ObjectName> rexistrados = new ArrayList<>();
+
+    /** Devolve un DAO que implementa interfaz e delega en dao, medindo cada chamada. */
+    public <T> T instrumentar(Class<T> interfaz, T dao) {
+        String nombreDao = interfaz.getSimpleName();
+        Map<Method, MetricasMetodo> porMetodo = new HashMap<>();
+        for (Method m : interfaz.getMethods()) {
+            porMetodo.put(m, metodo(nombreDao, firma(m)));
+        }
+        Object proxy = Proxy.newProxyInstance(interfaz.getClassLoader(), new Class<?>[]{interfaz}, (p, m, args) -> {
+            MetricasMetodo metricas = porMetodo.get(m);
+            if (metricas == null) {
+                // toString, equals, hashCode
+                return invocar(m, dao, args);
+            }
+            long sentencias = EstadisticasPorFio.sentenciasFio();
+            long entidades = EstadisticasPorFio.entidadesFio();
+            long coleccions = EstadisticasPorFio.coleccionsFio();
+            long inicio = System.nanoTime();
+            boolean erro = true;
+            try {
+                Object resultado = invocar(m, dao, args);
+                erro = false;
+                return resultado;
+            } finally {
+                metricas.registrar(System.nanoTime() - inicio,
+                        EstadisticasPorFio.sentenciasFio() - sentencias,
+                        EstadisticasPorFio.entidadesFio() - entidades,
+                        EstadisticasPorFio.coleccionsFio() - coleccions,
+                        erro);
+            }
+        });
+        return interfaz.cast(proxy);
+    }
+
+    public List<MetricasMetodo> getMetodos() {
+        return List.copyOf(metodos.values());
+    }
+
+    /** Formato de texto de Prometheus; só os métodos que xa se chamaron. */
+    public String informe() {
+        List<MetricasMetodo> usados = metodos.values().stream().filter(m -> m.getChamadas() > 0).toList();
+        StringBuilder sb = new StringBuilder();
+        sb.append("# TYPE biblioteca_dao_chamadas_total counter\n");
+        for (MetricasMetodo m : usados) {
+            sb.append("biblioteca_dao_chamadas_total{").append(etiquetas(m)).append("} ").append(m.getChamadas()).append('\n');
+        }
+        sb.append("# TYPE biblioteca_dao_erros_total counter\n");
+        for (MetricasMetodo m : usados) {
+            sb.append("biblioteca_dao_erros_total{").append(etiquetas(m)).append("} ").append(m.getErros()).append('\n');
+        }
+        sb.append("# TYPE biblioteca_dao_latencia_microsegundos summary\n");
+        for (MetricasMetodo m : usados) {
+            m.getLatenciaMicros().escribir(sb, "biblioteca_dao_latencia_microsegundos", etiquetas(m));
+        }
+        sb.append("# TYPE biblioteca_dao_sentencias summary\n");
+        for (MetricasMetodo m : usados) {
+            m.getSentencias().escribir(sb, "biblioteca_dao_sentencias", etiquetas(m));
+        }
+        sb.append("# TYPE biblioteca_dao_entidades summary\n");
+        for (MetricasMetodo m : usados) {
+            m.getEntidades().escribir(sb, "biblioteca_dao_entidades", etiquetas(m));
+        }
+        sb.append("# TYPE biblioteca_dao_coleccions summary\n");
+        for (MetricasMetodo m : usados) {
+            m.getColeccions().escribir(sb, "biblioteca_dao_coleccions", etiquetas(m));
+        }
+        return sb.toString();
+    }
+
+    /** Retira os MXBeans rexistrados. */
+    @Override
+    public synchronized void close() {
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName nome : rexistrados) {
+            try {
+                servidor.unregisterMBean(nome);
+            } catch (JMException e) {
+                // Xa non estaba rexistrado
+            }
+        }
+        rexistrados.clear();
+    }
+
+    private synchronized MetricasMetodo metodo(String dao, String firma) {
+        return metodos.computeIfAbsent(dao + "." + firma, clave -> {
+            MetricasMetodo m = new MetricasMetodo(dao, firma);
+            rexistrarJmx(m);
+            return m;
+        });
+    }
+
+    private void rexistrarJmx(MetricasMetodo m) {
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName nome = new ObjectName("biblioteca:type=DAO,dao=" + m.getDao()
+                    + ",metodo=" + ObjectName.quote(m.getMetodo()));
+            try {
+                servidor.registerMBean(m, nome);
+            } catch (InstanceAlreadyExistsException e) {
+                // Doutra BaseDatos aberta antes na mesma JVM: quedan as métricas da máis recente
+                servidor.unregisterMBean(nome);
+                servidor.registerMBean(m, nome);
+            }
+            rexistrados.add(nome);
+        } catch (JMException e) {
+            throw new RuntimeException("Error al registrar las métricas de " + m.getDao() + "." + m.getMetodo() + e);
+        }
+    }
+
+    private static String etiquetas(MetricasMetodo m) {
+        return "dao=\"" + m.getDao() + "\",metodo=\"" + m.getMetodo() + "\"";
+    }
+
+    /** getPrestamosCriteria(PrestamoCriteria,PlanCargaPrestamo): distingue as sobrecargas. */
+    private static String firma(Method m) {
+        return m.getName() + Arrays.stream(m.getParameterTypes())
+                .map(Class::getSimpleName)
+                .collect(Collectors.joining(",", "(", ")"));
+    }
+
+    private static Object invocar(Method m, Object destino, Object[] args) throws Throwable {
+        try {
+            return m.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package metricas;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Chamadas, erros, latencia e traballo de Hibernate (sentencias, entidades, coleccións) por chamada dun método DAO. */
+public class MetricasMetodo implements MetricasMetodoMXBean {
+
+    private final String dao;
+    private final String metodo;
+    private final LongAdder chamadas = new LongAdder();
+    private final LongAdder erros = new LongAdder();
+    private final Histograma latenciaMicros = new Histograma();
+    private final Histograma sentencias = new Histograma();
+    private final Histograma entidades = new Histograma();
+    private final Histograma coleccions = new Histograma();
+
+    MetricasMetodo(String dao, String metodo) {
+        this.dao = dao;
+        this.metodo = metodo;
+    }
+
+    void registrar(long nanos, long numSentencias, long numEntidades, long numColeccions, boolean erro) {
+        chamadas.increment();
+        if (erro) {
+            erros.increment();
+        }
+        latenciaMicros.registrar(nanos / 1000);
+        sentencias.registrar(numSentencias);
+        entidades.registrar(numEntidades);
+        coleccions.registrar(numColeccions);
+    }
+
+    @Override
+    public String getDao() {
+        return dao;
+    }
+
+    @Override
+    public String getMetodo() {
+        return metodo;
+    }
+
+    @Override
+    public long getChamadas() {
+        return chamadas.sum();
+    }
+
+    @Override
+    public long getErros() {
+        return erros.sum();
+    }
+
+    @Override
+    public double getLatenciaMediaMicros() {
+        return latenciaMicros.getMedia();
+    }
+
+    @Override
+    public long getLatenciaP50Micros() {
+        return latenciaMicros.percentil(0.5);
+    }
+
+    @Override
+    public long getLatenciaP99Micros() {
+        return latenciaMicros.percentil(0.99);
+    }
+
+    @Override
+    public long getLatenciaMaximaMicros() {
+        return latenciaMicros.getMaximo();
+    }
+
+    @Override
+    public double getSentenciasMedia() {
+        return sentencias.getMedia();
+    }
+
+    @Override
+    public long getSentenciasMaximo() {
+        return sentencias.getMaximo();
+    }
+
+    @Override
+    public double getEntidadesMedia() {
+        return entidades.getMedia();
+    }
+
+    @Override
+    public long getEntidadesMaximo() {
+        return entidades.getMaximo();
+    }
+
+    @Override
+    public double getColeccionsMedia() {
+        return coleccions.getMedia();
+    }
+
+    public Histograma getLatenciaMicros() {
+        return latenciaMicros;
+    }
+
+    public Histograma getSentencias() {
+        return sentencias;
+    }
+
+    public Histograma getEntidades() {
+        return entidades;
+    }
+
+    public Histograma getColeccions() {
+        return coleccions;
+    }
+}
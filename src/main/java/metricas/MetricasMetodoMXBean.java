@@ -0,0 +1,31 @@
+package metricas;
+
+/** Vista JMX das métricas dun método DAO (biblioteca:type=DAO,dao=...,metodo=...). */
+public interface MetricasMetodoMXBean {
+
+    String getDao();
+
+    String getMetodo();
+
+    long getChamadas();
+
+    long getErros();
+
+    double getLatenciaMediaMicros();
+
+    long getLatenciaP50Micros();
+
+    long getLatenciaP99Micros();
+
+    long getLatenciaMaximaMicros();
+
+    double getSentenciasMedia();
+
+    long getSentenciasMaximo();
+
+    double getEntidadesMedia();
+
+    long getEntidadesMaximo();
+
+    double getColeccionsMedia();
+}
@@ -0,0 +1,106 @@
+package metricas;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas do pool de conexións HikariCP: conexións activas, libres e fíos esperando,
+ * e histogramas do tempo de adquisición e de uso de cada conexión.
+ */
+public class MetricasPool implements MetricsTrackerFactory {
+
+    private final Histograma adquisicionMicros = new Histograma();
+    private final Histograma usoMillis = new Histograma();
+    private final Histograma creacionMillis = new Histograma();
+    private final LongAdder timeouts = new LongAdder();
+    private volatile PoolStats estadisticas;
+    private volatile String nombrePool = "";
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.nombrePool = poolName;
+        this.estadisticas = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                adquisicionMicros.registrar(elapsedAcquiredNanos / 1000);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usoMillis.registrar(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                creacionMillis.registrar(connectionCreatedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    public int getActivas() {
+        return estadisticas == null ? 0 : estadisticas.getActiveConnections();
+    }
+
+    public int getInactivas() {
+        return estadisticas == null ? 0 : estadisticas.getIdleConnections();
+    }
+
+    public int getEsperando() {
+        return estadisticas == null ? 0 : estadisticas.getPendingThreads();
+    }
+
+    public int getTotal() {
+        return estadisticas == null ? 0 : estadisticas.getTotalConnections();
+    }
+
+    public int getMaximo() {
+        return estadisticas == null ? 0 : estadisticas.getMaxConnections();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public Histograma getAdquisicionMicros() {
+        return adquisicionMicros;
+    }
+
+    public Histograma getUsoMillis() {
+        return usoMillis;
+    }
+
+    public Histograma getCreacionMillis() {
+        return creacionMillis;
+    }
+
+    /** Formato de texto de Prometheus. */
+    public String informe() {
+        StringBuilder sb = new StringBuilder();
+        String pool = "pool=\"" + nombrePool + "\"";
+        sb.append("# TYPE biblioteca_pool_conexiones gauge\n");
+        sb.append("biblioteca_pool_conexiones{").append(pool).append(",estado=\"activas\"} ").append(getActivas()).append('\n');
+        sb.append("biblioteca_pool_conexiones{").append(pool).append(",estado=\"inactivas\"} ").append(getInactivas()).append('\n');
+        sb.append("biblioteca_pool_conexiones{").append(pool).append(",estado=\"total\"} ").append(getTotal()).append('\n');
+        sb.append("biblioteca_pool_conexiones{").append(pool).append(",estado=\"maximo\"} ").append(getMaximo()).append('\n');
+        sb.append("# TYPE biblioteca_pool_fios_esperando gauge\n");
+        sb.append("biblioteca_pool_fios_esperando{").append(pool).append("} ").append(getEsperando()).append('\n');
+        sb.append("# TYPE biblioteca_pool_timeouts_total counter\n");
+        sb.append("biblioteca_pool_timeouts_total{").append(pool).append("} ").append(getTimeouts()).append('\n');
+        sb.append("# TYPE biblioteca_pool_adquisicion_microsegundos summary\n");
+        adquisicionMicros.escribir(sb, "biblioteca_pool_adquisicion_microsegundos", pool);
+        sb.append("# TYPE biblioteca_pool_uso_milisegundos summary\n");
+        usoMillis.escribir(sb, "biblioteca_pool_uso_milisegundos", pool);
+        sb.append("# TYPE biblioteca_pool_creacion_milisegundos summary\n");
+        creacionMillis.escribir(sb, "biblioteca_pool_creacion_milisegundos", pool);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package metricas;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Servidor HTTP mínimo (o do JDK) que serve en /metrics os informes en texto de Prometheus
+ * (MetricasDAO, MetricasPool, EstadisticasCache...) para que os lea un scraper.
+ */
+public class ServidorMetricas implements AutoCloseable {
+
+    private final HttpServer servidor;
+    private final List<Supplier<String>> informes;
+
+    /** Arranca o servidor; porto 0 escolle un libre (ver getPorto). */
+    public ServidorMetricas(int porto, List<Supplier<String>> informes) {
+        this.informes = List.copyOf(informes);
+        try {
+            servidor = HttpServer.create(new InetSocketAddress(porto), 0);
+        } catch (IOException e) {
+            throw new RuntimeException("Error al abrir el puerto de métricas " + porto + e);
+        }
+        servidor.createContext("/metrics", this::responder);
+        servidor.start();
+    }
+
+    public int getPorto() {
+        return servidor.getAddress().getPort();
+    }
+
+    private void responder(HttpExchange intercambio) throws IOException {
+        try (intercambio) {
+            if (!"GET".equals(intercambio.getRequestMethod())) {
+                intercambio.sendResponseHeaders(405, -1);
+                return;
+            }
+            StringBuilder sb = new StringBuilder();
+            for (Supplier<String> informe : informes) {
+                sb.append(informe.get());
+            }
+            byte[] corpo = sb.toString().getBytes(StandardCharsets.UTF_8);
+            intercambio.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            intercambio.sendResponseHeaders(200, corpo.length);
+            try (OutputStream saida = intercambio.getResponseBody()) {
+                saida.write(corpo);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+    }
+}
@@ -2,12 +2,16 @@ package modelo;
 
 import jakarta.persistence.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Entity
 @Table(name = "ejemplar")
 public class Ejemplar {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ejemplar_seq")
+    @SequenceGenerator(name = "ejemplar_seq", sequenceName = "ejemplar_seq", allocationSize = 50)
     @Column(name = "id")
     private int id;
 
@@ -21,12 +25,19 @@ public class Ejemplar {
     @Column (name = "ubicacion", length = 100)
     private String ubicacion;
 
-    @OneToOne(fetch = FetchType.LAZY)
+    // Bloqueo optimista: o UPDATE leva "AND version = ?" e falla se outro o cambiou antes
+    @Version
+    @Column (name = "version", nullable = false)
+    private int version;
+
+    // Un libro ten varios exemplares (Libro.ejemplares é o lado inverso)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn (name = "libro_id", nullable = false)
     private Libro libro;
 
-    @OneToOne(mappedBy = "ejemplar", cascade = CascadeType.ALL)
-    private Prestamo prestamo;
+    // Un exemplar préstase moitas veces ao longo do tempo
+    @OneToMany(mappedBy = "ejemplar", cascade = CascadeType.ALL)
+    private List<Prestamo> prestamos = new ArrayList<>();
 
     public enum EstadoEjemplar {DISPONIBLE, PRESTADO, MANTENIMIENTO}
 
@@ -74,6 +85,10 @@ public class Ejemplar {
         this.ubicacion = ubicacion;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
     public Libro getLibro() {
         return libro;
     }
@@ -82,12 +97,12 @@ public class Ejemplar {
         this.libro = libro;
     }
 
-    public Prestamo getPrestamo() {
-        return prestamo;
+    public List<Prestamo> getPrestamos() {
+        return prestamos;
     }
 
-    public void setPrestamo(Prestamo prestamo) {
-        this.prestamo = prestamo;
+    public void setPrestamos(List<Prestamo> prestamos) {
+        this.prestamos = prestamos;
     }
 
     @Override
@@ -97,8 +112,7 @@ public class Ejemplar {
                 ", codigo='" + codigo + '\'' +
                 ", estado=" + estado +
                 ", ubicacion='" + ubicacion + '\'' +
-                ", libro=" + libro +
-                ", prestamosID=" + this.prestamo.getId() +
+                ", libroId=" + (libro == null ? null : libro.getId()) +
                 '}';
     }
 }
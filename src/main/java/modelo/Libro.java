@@ -11,7 +11,8 @@ import java.util.List;
 public class Libro {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "libro_seq")
+    @SequenceGenerator(name = "libro_seq", sequenceName = "libro_seq", allocationSize = 50)
     private int id;
 
     @Column(name = "isbn", unique = true, nullable = false, length = 20)
@@ -40,6 +41,10 @@ public class Libro {
     @ManyToMany(mappedBy = "librosFavoritos")
     private List<Usuario> listaUsuariosFavoritos = new ArrayList<>();
 
+    // Para saber se hai algún exemplar dispoñible abonda indice.IndiceDisponibilidad, sen cargar esta lista
+    @OneToMany(mappedBy = "libro")
+    private List<Ejemplar> ejemplares = new ArrayList<>();
+
     public Libro() {
         this.listaUsuariosFavoritos = new ArrayList<>();
 
@@ -130,6 +135,10 @@ public class Libro {
         this.listaUsuariosFavoritos = usuariosFavoritos;
     }
 
+    public List<Ejemplar> getEjemplares() {
+        return ejemplares;
+    }
+
     public void addUsuario(Usuario usuario){
         this.listaUsuariosFavoritos.add(usuario);
     }
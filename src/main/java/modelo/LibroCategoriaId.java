@@ -7,6 +7,7 @@ import java.util.Objects;
 
 public class LibroCategoriaId implements Serializable {
 
+    @Column(name = "usuario_id")
     private int usuarioId;
     @Column(name = "libro_id")
     private int libroId;
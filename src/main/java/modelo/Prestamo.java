@@ -5,10 +5,26 @@ import java.time.LocalDate;
 
 @Entity
 @Table(name = "prestamo")
+@NamedEntityGraph(name = Prestamo.GRAFO_USUARIO,
+        attributeNodes = @NamedAttributeNode("usuario"))
+@NamedEntityGraph(name = Prestamo.GRAFO_EJEMPLAR,
+        attributeNodes = @NamedAttributeNode(value = "ejemplar", subgraph = "ejemplar"),
+        subgraphs = @NamedSubgraph(name = "ejemplar", attributeNodes = @NamedAttributeNode("libro")))
+@NamedEntityGraph(name = Prestamo.GRAFO_COMPLETO,
+        attributeNodes = {
+                @NamedAttributeNode("usuario"),
+                @NamedAttributeNode(value = "ejemplar", subgraph = "ejemplar")
+        },
+        subgraphs = @NamedSubgraph(name = "ejemplar", attributeNodes = @NamedAttributeNode("libro")))
 public class Prestamo {
 
+    public static final String GRAFO_USUARIO = "Prestamo.usuario";
+    public static final String GRAFO_EJEMPLAR = "Prestamo.ejemplar";
+    public static final String GRAFO_COMPLETO = "Prestamo.completo";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "prestamo_seq")
+    @SequenceGenerator(name = "prestamo_seq", sequenceName = "prestamo_seq", allocationSize = 50)
     private int id;
 
     @Column(name = "fecha_inicio", nullable = false)
@@ -28,7 +44,7 @@ public class Prestamo {
     @JoinColumn(name = "usuario_id", nullable = false)
     private Usuario usuario;
 
-    @OneToOne(fetch = FetchType.LAZY)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "ejemplar_id", nullable = false)
     private Ejemplar ejemplar;
 
@@ -115,8 +131,8 @@ public class Prestamo {
                 ", fechaFin=" + fechaFin +
                 ", fechaDevolucion=" + fechaDevolucion +
                 ", estado=" + estado +
-                ", usuarioId=" + this.usuario +
-                ", ejemplarId=" + this.ejemplar +
+                ", usuarioId=" + (usuario == null ? null : usuario.getId()) +
+                ", ejemplarId=" + (ejemplar == null ? null : ejemplar.getId()) +
                 '}';
     }
 }
@@ -1,6 +1,10 @@
 package modelo;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -9,12 +13,18 @@ import java.util.List;
 
 @Entity
 @Table(name = "usuario")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "usuario")
+@NaturalIdCache(region = "usuario-dni")
 public class Usuario {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "usuario_seq")
+    @SequenceGenerator(name = "usuario_seq", sequenceName = "usuario_seq", allocationSize = 50)
     private int id;
 
+    // Clave natural: a resolución DNI -> id gárdase na rexión usuario-dni
+    @NaturalId(mutable = true)
     @Column(name = "dni", unique = true, nullable = false, length = 20)
     private String dni;
 
@@ -36,19 +46,23 @@ public class Usuario {
     @Column(name = "fecha_registro")
     private LocalDateTime fecha_registro;
 
+    // Mantido pola base de datos (triggers de favoritos) e só para as consultas (UsuarioDAOHib.topFavoritos).
+    // Sen getter: a copia da entidade (caché de segundo nivel e EntityManager) non se entera dos triggers
+    @Column(name = "num_favoritos", insertable = false, updatable = false)
+    private int numFavoritos;
+
     @OneToMany(mappedBy = "usuario", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Prestamo> prestamos = new ArrayList<>();
 
+    @OneToMany(mappedBy = "usuario", cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<LibroCategoria> valoracionesLibros = new ArrayList<>();
+
     @ManyToMany
     @JoinTable(
             name = "favoritos",
             joinColumns = @JoinColumn(name = "usuario_id"),
             inverseJoinColumns = @JoinColumn(name = "libro_id")
     )
-
-    @OneToMany(mappedBy = "usuario", cascade = CascadeType.ALL, orphanRemoval = true)
-    private List<LibroCategoria> valoracionesLibros = new ArrayList<>();
-
     private List<Libro> librosFavoritos;
 
     public Usuario() {
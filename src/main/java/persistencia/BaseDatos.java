@@ -0,0 +1,275 @@
+package persistencia;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import indice.IndiceCatalogo;
+import indice.IndiceDisponibilidad;
+import indice.IndicePrefixos;
+import indice.IndiceRecomendacions;
+import indice.ListenerCatalogo;
+import indice.ListenerDisponibilidad;
+import indice.ListenerPrefixos;
+import indice.ListenerRecomendacions;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import metricas.EstadisticasCache;
+import metricas.MetricasDAO;
+import metricas.MetricasPool;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Arranque da unidade de persistencia "biblioteca" sobre un pool HikariCP.
+ * O DataSource pásaselle a Hibernate (hibernate.connection.datasource), que deixa de usar o seu pool interno.
+ * Antes de crear a EntityManagerFactory aplícanse as migracións pendentes (ver Migraciones),
+ * agás coa propiedade {@value Migraciones#PROPIEDADE_MIGRAR} = "false".
+ * Con {@value ConsultasLentas#PROPIEDADE_UMBRAL_MS} maior que 0 as sentencias que pasen dese tempo
+ * escríbense no log (ConsultasLentas), co EXPLAIN se {@value ConsultasLentas#PROPIEDADE_EXPLAIN} = "true".
+ * Os índices en memoria (dispoñibilidade de exemplares, busca no catálogo, suxestións por prefixo e
+ * recomendacións) só se cargan ao arrancar coa súa propiedade PROPIEDADE_INDICE_* = "true": cargalos leva
+ * tempo e memoria, e os seus listeners traballan en cada commit.
+ */
+public class BaseDatos implements AutoCloseable {
+
+    // Índices en memoria que se cargan ao arrancar con "true"; sen cargar, o getter devolve null
+    public static final String PROPIEDADE_INDICE_DISPONIBILIDAD = "biblioteca.indice_disponibilidad";
+    public static final String PROPIEDADE_INDICE_CATALOGO = "biblioteca.indice_catalogo";
+    public static final String PROPIEDADE_INDICE_PREFIXOS = "biblioteca.indice_prefixos";
+    public static final String PROPIEDADE_INDICE_RECOMENDACIONS = "biblioteca.indice_recomendacions";
+    // Minutos entre reconstrucións do índice de recomendacións (0: ningunha)
+    public static final String PROPIEDADE_RECONSTRUIR_RECOMENDACIONS_MIN = "biblioteca.reconstruir_recomendacions_min";
+    private static final String RECONSTRUIR_RECOMENDACIONS_MIN_DEFECTO = "60";
+
+    private final HikariDataSource dataSource;
+    private final MetricasPool metricasPool;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ProveedorEntityManager proveedor;
+    private final EstadisticasCache estadisticasCache;
+    private final MetricasDAO metricasDAO = new MetricasDAO();
+    private final ConsultasLentas consultasLentas;
+    private final IndiceDisponibilidad indiceDisponibilidad;
+    private final IndiceCatalogo indiceCatalogo;
+    private final IndicePrefixos indicePrefixos;
+    private final IndiceRecomendacions indiceRecomendacions;
+
+    public BaseDatos(String url, String usuario, String contrasinal, int tamPool) {
+        this(url, usuario, contrasinal, tamPool, Map.of());
+    }
+
+    public BaseDatos(String url, String usuario, String contrasinal, int tamPool, Map<String, Object> propiedades) {
+        this(url, usuario, contrasinal, tamPool, propiedades, UnaryOperator.identity());
+    }
+
+    /**
+     * @param envoltorio envolve o DataSource que recibe Hibernate (p.ex. para rexistrar as sentencias);
+     *                   o pool e as súas métricas seguen sendo os de HikariCP
+     */
+    public BaseDatos(String url, String usuario, String contrasinal, int tamPool, Map<String, Object> propiedades,
+                     UnaryOperator<DataSource> envoltorio) {
+        if (!"false".equals(String.valueOf(propiedades.get(Migraciones.PROPIEDADE_MIGRAR)))) {
+            new Migraciones(url, usuario, contrasinal).migrar();
+        }
+        metricasPool = new MetricasPool();
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("biblioteca");
+        config.setJdbcUrl(url);
+        config.setUsername(usuario);
+        config.setPassword(contrasinal);
+        // Pool de tamaño fixo, como recomenda HikariCP
+        config.setMaximumPoolSize(tamPool);
+        config.setMinimumIdle(tamPool);
+        config.setConnectionTimeout(10_000);
+        // Hibernate xa non ten que consultar nin cambiar o autocommit en cada transacción
+        config.setAutoCommit(false);
+        // Os lotes de INSERT van como sentencias encadeadas e non co protocolo bulk de MariaDB: en bulk, un
+        // trigger que cambia unha columna indexada (favoritos_alta e usuario.num_favoritos) falla sen mensaxe
+        config.addDataSourceProperty("useBulkStmtsForInserts", "false");
+        config.setRegisterMbeans(true);
+        config.setMetricsTrackerFactory(metricasPool);
+        dataSource = new HikariDataSource(config);
+
+        long umbralLentas = Long.parseLong(String.valueOf(propiedades.getOrDefault(ConsultasLentas.PROPIEDADE_UMBRAL_MS, "0")));
+        consultasLentas = umbralLentas > 0
+                ? new ConsultasLentas(umbralLentas,
+                        Boolean.parseBoolean(String.valueOf(propiedades.get(ConsultasLentas.PROPIEDADE_EXPLAIN))), dataSource)
+                : null;
+        DataSource paraHibernate = consultasLentas == null ? dataSource : consultasLentas.envolver(dataSource);
+
+        Map<String, Object> todas = new HashMap<>(propiedades);
+        todas.put("hibernate.connection.datasource", envoltorio.apply(paraHibernate));
+        todas.put("hibernate.connection.provider_disables_autocommit", "true");
+        // En locais ata o final: se algo falla, o catch pecha o que xa se creou, como close()
+        IndiceDisponibilidad disponibilidad = null;
+        IndiceCatalogo catalogo = null;
+        IndicePrefixos prefixos = null;
+        IndiceRecomendacions recomendacions = null;
+        EntityManagerFactory emf = null;
+        try {
+            disponibilidad = cargarIndice(propiedades, PROPIEDADE_INDICE_DISPONIBILIDAD, IndiceDisponibilidad::cargar);
+            catalogo = cargarIndice(propiedades, PROPIEDADE_INDICE_CATALOGO, IndiceCatalogo::cargar);
+            prefixos = cargarIndice(propiedades, PROPIEDADE_INDICE_PREFIXOS, IndicePrefixos::cargar);
+            recomendacions = cargarIndice(propiedades, PROPIEDADE_INDICE_RECOMENDACIONS, IndiceRecomendacions::cargar);
+            emf = Persistence.createEntityManagerFactory("biblioteca", todas);
+            // Aínda ninguén ten a EntityManagerFactory: ningún commit pode quedar entre a carga e os listeners
+            if (disponibilidad != null) {
+                new ListenerDisponibilidad(disponibilidad).rexistrar(emf);
+            }
+            if (catalogo != null) {
+                new ListenerCatalogo(catalogo).rexistrar(emf);
+            }
+            if (prefixos != null) {
+                new ListenerPrefixos(prefixos).rexistrar(emf);
+            }
+            if (recomendacions != null) {
+                new ListenerRecomendacions(recomendacions).rexistrar(emf);
+                long minutos = Long.parseLong(String.valueOf(propiedades.getOrDefault(
+                        PROPIEDADE_RECONSTRUIR_RECOMENDACIONS_MIN, RECONSTRUIR_RECOMENDACIONS_MIN_DEFECTO)));
+                if (minutos > 0) {
+                    recomendacions.programar(Duration.ofMinutes(minutos));
+                }
+            }
+        } catch (RuntimeException e) {
+            try {
+                if (recomendacions != null) {
+                    recomendacions.close();
+                }
+                if (emf != null) {
+                    emf.close();
+                }
+            } finally {
+                if (consultasLentas != null) {
+                    consultasLentas.close();
+                }
+                dataSource.close();
+            }
+            throw e;
+        }
+        indiceDisponibilidad = disponibilidad;
+        indiceCatalogo = catalogo;
+        indicePrefixos = prefixos;
+        indiceRecomendacions = recomendacions;
+        entityManagerFactory = emf;
+        proveedor = new ProveedorEntityManager(entityManagerFactory);
+        estadisticasCache = new EstadisticasCache(entityManagerFactory);
+    }
+
+    /** O índice cargado do DataSource se a propiedade é "true"; null se non. */
+    private <T> T cargarIndice(Map<String, Object> propiedades, String propiedade, Function<DataSource, T> cargar) {
+        return Boolean.parseBoolean(String.valueOf(propiedades.get(propiedade))) ? cargar.apply(dataSource) : null;
+    }
+
+    /**
+     * Conexión a partir de DB_URL, DB_USER, DB_PASS e DB_POOL_SIZE (as mesmas variables do docker-compose).
+     * DB_MIGRAR=false desactiva as migracións ao arrancar; DB_CONSULTAS_LENTAS_MS e DB_CONSULTAS_LENTAS_EXPLAIN
+     * activan o rexistro de consultas lentas; DB_INDICE_DISPONIBILIDAD=true, DB_INDICE_CATALOGO=true,
+     * DB_INDICE_PREFIXOS=true e DB_INDICE_RECOMENDACIONS=true cargan os índices en memoria;
+     * DB_RECONSTRUIR_RECOMENDACIONS_MIN cambia cada cantos minutos se reconstrúe o de recomendacións.
+     */
+    public static BaseDatos desdeEntorno() {
+        return desdeEntorno(UnaryOperator.identity());
+    }
+
+    public static BaseDatos desdeEntorno(UnaryOperator<DataSource> envoltorio) {
+        return desdeEntorno(envoltorio, true);
+    }
+
+    /** @param indices false: sen índices en memoria aínda que o entorno os pida (ferramentas de liña de comandos) */
+    public static BaseDatos desdeEntorno(UnaryOperator<DataSource> envoltorio, boolean indices) {
+        Map<String, String> entorno = System.getenv();
+        Map<String, Object> propiedades = new HashMap<>();
+        propiedades.put(Migraciones.PROPIEDADE_MIGRAR, entorno.getOrDefault("DB_MIGRAR", "true"));
+        propiedades.put(ConsultasLentas.PROPIEDADE_UMBRAL_MS, entorno.getOrDefault("DB_CONSULTAS_LENTAS_MS", "0"));
+        propiedades.put(ConsultasLentas.PROPIEDADE_EXPLAIN, entorno.getOrDefault("DB_CONSULTAS_LENTAS_EXPLAIN", "false"));
+        if (indices) {
+            propiedades.put(PROPIEDADE_INDICE_DISPONIBILIDAD, entorno.getOrDefault("DB_INDICE_DISPONIBILIDAD", "false"));
+            propiedades.put(PROPIEDADE_INDICE_CATALOGO, entorno.getOrDefault("DB_INDICE_CATALOGO", "false"));
+            propiedades.put(PROPIEDADE_INDICE_PREFIXOS, entorno.getOrDefault("DB_INDICE_PREFIXOS", "false"));
+            propiedades.put(PROPIEDADE_INDICE_RECOMENDACIONS, entorno.getOrDefault("DB_INDICE_RECOMENDACIONS", "false"));
+            propiedades.put(PROPIEDADE_RECONSTRUIR_RECOMENDACIONS_MIN,
+                    entorno.getOrDefault("DB_RECONSTRUIR_RECOMENDACIONS_MIN", RECONSTRUIR_RECOMENDACIONS_MIN_DEFECTO));
+        }
+        return new BaseDatos(
+                entorno.getOrDefault("DB_URL", "jdbc:mariadb://localhost:3306/biblioteca"),
+                entorno.getOrDefault("DB_USER", "testuser"),
+                entorno.getOrDefault("DB_PASS", "testpass"),
+                Integer.parseInt(entorno.getOrDefault("DB_POOL_SIZE", "10")),
+                propiedades,
+                envoltorio);
+    }
+
+    public EntityManagerFactory getEntityManagerFactory() {
+        return entityManagerFactory;
+    }
+
+    public ProveedorEntityManager getProveedor() {
+        return proveedor;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public MetricasPool getMetricasPool() {
+        return metricasPool;
+    }
+
+    public EstadisticasCache getEstadisticasCache() {
+        return estadisticasCache;
+    }
+
+    /** Os DAO envoltos con metricasDAO.instrumentar(...) rexistran aquí as súas chamadas. */
+    public MetricasDAO getMetricasDAO() {
+        return metricasDAO;
+    }
+
+    /** Exemplares de cada libro por estado, en memoria e ao día cos commits desta EntityManagerFactory; null se non se cargou. */
+    public IndiceDisponibilidad getIndiceDisponibilidad() {
+        return indiceDisponibilidad;
+    }
+
+    /** Busca de texto en títulos, ISBN, editoriais, autores e categorías; null se non se cargou. */
+    public IndiceCatalogo getIndiceCatalogo() {
+        return indiceCatalogo;
+    }
+
+    /** Títulos, ISBN e códigos de exemplar que empezan por un texto; null se non se cargou. */
+    public IndicePrefixos getIndicePrefixos() {
+        return indicePrefixos;
+    }
+
+    /** Libros similares segundo favoritos e puntuacións; null se non se cargou. */
+    public IndiceRecomendacions getIndiceRecomendacions() {
+        return indiceRecomendacions;
+    }
+
+    /** Métricas de DAO, pool e caché nun só texto de Prometheus (o que serve ServidorMetricas). */
+    public String informeMetricas() {
+        return metricasDAO.informe() + metricasPool.informe() + estadisticasCache.informe()
+                + (consultasLentas == null ? "" : consultasLentas.informe());
+    }
+
+    public int getTamPool() {
+        return dataSource.getMaximumPoolSize();
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (indiceRecomendacions != null) {
+                indiceRecomendacions.close();
+            }
+            entityManagerFactory.close();
+        } finally {
+            metricasDAO.close();
+            if (consultasLentas != null) {
+                consultasLentas.close();
+            }
+            dataSource.close();
+        }
+    }
+}
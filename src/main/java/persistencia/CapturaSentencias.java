@@ -0,0 +1,64 @@
+package persistencia;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Envoltorio de DataSource que garda cada SELECT preparado que se executa, cos seus parámetros,
+ * para poder repetilo despois (p.ex. con EXPLAIN diante) sobre outra conexión.
+ */
+class CapturaSentencias {
+
+    /** SELECT executado e os parámetros cos que se executou. */
+    record Sentencia(String sql, ParametrosJdbc parametros) {
+
+        /** Prepara sql con prefixo diante (p.ex. "EXPLAIN ") e volve pór os mesmos parámetros. */
+        PreparedStatement preparar(Connection con, String prefixo) throws SQLException {
+            return parametros.preparar(con, prefixo + sql);
+        }
+    }
+
+    private final List<Sentencia> sentencias = new ArrayList<>();
+
+    DataSource envolver(DataSource dataSource) {
+        return ProxyJdbc.envolver(DataSource.class, dataSource, (metodo, resultado, args) ->
+                resultado instanceof Connection con ? envolverConexion(con) : resultado);
+    }
+
+    /** Devolve as sentencias capturadas dende a chamada anterior e baleira a lista. */
+    synchronized List<Sentencia> recoller() {
+        List<Sentencia> recollidas = List.copyOf(sentencias);
+        sentencias.clear();
+        return recollidas;
+    }
+
+    private synchronized void engadir(Sentencia s) {
+        sentencias.add(s);
+    }
+
+    private Connection envolverConexion(Connection con) {
+        return ProxyJdbc.envolver(Connection.class, con, (metodo, resultado, args) ->
+                resultado instanceof PreparedStatement ps && metodo.getName().equals("prepareStatement")
+                        ? envolverSentencia(ps, (String) args[0])
+                        : resultado);
+    }
+
+    private PreparedStatement envolverSentencia(PreparedStatement ps, String sql) {
+        ParametrosJdbc parametros = new ParametrosJdbc();
+        boolean select = sql.stripLeading().regionMatches(true, 0, "select", 0, 6);
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, metodo, args) -> {
+                    String nome = metodo.getName();
+                    if (!parametros.rexistrar(metodo, args) && select && args == null
+                            && (nome.equals("executeQuery") || nome.equals("execute"))) {
+                        engadir(new Sentencia(sql, parametros.copia()));
+                    }
+                    return ProxyJdbc.invocar(metodo, ps, args);
+                });
+    }
+}
@@ -0,0 +1,240 @@
+package persistencia;
+
+import criteria.CursorPrestamo;
+import criteria.PrestamoCriteria;
+import dao.LibroDAO;
+import dao.LibroDAOHib;
+import dao.PlanCargaPrestamo;
+import dao.PrestamoDAO;
+import dao.PrestamoDAOHib;
+import dao.UsuarioDAO;
+import dao.UsuarioDAOHib;
+import modelo.Prestamo;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Executa as consultas dos DAO, captura o SQL que xera Hibernate e pásao por EXPLAIN cos mesmos parámetros.
+ * Falla se algunha táboa se le enteira (type = ALL), é dicir, se a consulta non ten índice que a soporte.
+ * Ten sentido contra unha base con datos de tamaño real (GeneradorDatos): con poucas filas
+ * o optimizador prefire ler a táboa enteira aínda que haxa índice, por iso se ignoran as táboas pequenas.
+ * Non se inclúen recuperarTodos nin favoritosPorUsario, que len todas as filas por definición.
+ */
+public class ComprobacionIndices implements AutoCloseable {
+
+    /** Por debaixo destas filas estimadas un percorrido completo non se considera fallo. */
+    private static final long FILAS_MINIMAS = 1000;
+
+    /** Unha fila de EXPLAIN con type = ALL sobre unha táboa grande. */
+    public record Fallo(String consulta, String taboa, long filas, String sql) {
+        @Override
+        public String toString() {
+            return consulta + ": percorrido completo de " + taboa + " (" + filas + " filas)\n    " + sql;
+        }
+    }
+
+    private final BaseDatos baseDatos;
+    private final CapturaSentencias captura;
+
+    private ComprobacionIndices(BaseDatos baseDatos, CapturaSentencias captura) {
+        this.baseDatos = baseDatos;
+        this.captura = captura;
+    }
+
+    /** Abre a súa propia BaseDatos, co DataSource de Hibernate envolto para capturar as sentencias. */
+    public static ComprobacionIndices desdeEntorno() {
+        CapturaSentencias captura = new CapturaSentencias();
+        return new ComprobacionIndices(BaseDatos.desdeEntorno(captura::envolver, false), captura);
+    }
+
+    public static ComprobacionIndices crear(String url, String usuario, String contrasinal, Map<String, Object> propiedades) {
+        CapturaSentencias captura = new CapturaSentencias();
+        return new ComprobacionIndices(new BaseDatos(url, usuario, contrasinal, 2, propiedades, captura::envolver), captura);
+    }
+
+    /** Executa todas as consultas e devolve os percorridos completos atopados (baleiro se todo usa índices). */
+    public List<Fallo> comprobar() {
+        List<Fallo> fallos = new ArrayList<>();
+        for (Map.Entry<String, Runnable> consulta : consultas().entrySet()) {
+            captura.recoller();
+            baseDatos.getProveedor().enUnidadDeTrabajo(consulta.getValue());
+            for (CapturaSentencias.Sentencia sentencia : captura.recoller()) {
+                fallos.addAll(explicar(consulta.getKey(), sentencia));
+            }
+        }
+        return fallos;
+    }
+
+    private Map<String, Runnable> consultas() {
+        ProveedorEntityManager proveedor = baseDatos.getProveedor();
+        PrestamoDAO prestamoDAO = new PrestamoDAOHib(proveedor);
+        UsuarioDAO usuarioDAO = new UsuarioDAOHib(proveedor);
+        LibroDAO libroDAO = new LibroDAOHib(proveedor);
+
+        // Valores que existen na base: o préstamo máis recente, o seu usuario, exemplar e libro
+        Map<String, Object> datos = valoresExistentes();
+        int idPrestamo = (Integer) datos.get("prestamo");
+        int idUsuario = (Integer) datos.get("usuario");
+        int idEjemplar = (Integer) datos.get("ejemplar");
+        int idLibro = (Integer) datos.get("libro");
+        String dni = (String) datos.get("dni");
+        String email = (String) datos.get("email");
+        LocalDate hoxe = LocalDate.now();
+
+        Map<String, Runnable> consultas = new LinkedHashMap<>();
+        consultas.put("PrestamoDAO.buscarPorId", () -> prestamoDAO.buscarPorId(idPrestamo));
+        consultas.put("PrestamoDAO.getPrestamoEstado", () ->
+                prestamoDAO.getPrestamoEstado(Prestamo.EstadoPrestamo.RETRASADO));
+        consultas.put("PrestamoDAO.getPrestamoEstadoPagina", () ->
+                prestamoDAO.getPrestamoEstadoPagina(Prestamo.EstadoPrestamo.DEVUELTO, 50,
+                        CursorPrestamo.porFecha(hoxe.minusYears(1), 0), PlanCargaPrestamo.COMPLETO));
+        consultas.put("PrestamoDAO.recuperarPagina", () ->
+                prestamoDAO.recuperarPagina(50, CursorPrestamo.porId(idPrestamo / 2), PlanCargaPrestamo.COMPLETO));
+
+        consultas.put("PrestamoDAO.getPrestamosCriteria (estado e fecha_inicio)", () -> {
+            PrestamoCriteria c = new PrestamoCriteria();
+            c.setEstadoPrestamo(Prestamo.EstadoPrestamo.ACTIVO);
+            c.setIniFechaInicio(hoxe.minusMonths(1));
+            c.setFinFechaInicio(hoxe);
+            prestamoDAO.getPrestamosCriteria(c);
+        });
+        consultas.put("PrestamoDAO.getPrestamosCriteria (vencidos)", () -> {
+            PrestamoCriteria c = new PrestamoCriteria();
+            c.setEstadoPrestamo(Prestamo.EstadoPrestamo.ACTIVO);
+            c.setFinFechaFin(hoxe.minusDays(1));
+            c.setOrden(PrestamoCriteria.Orden.FECHA_FIN);
+            c.setLimite(100);
+            prestamoDAO.getPrestamosCriteria(c);
+        });
+        consultas.put("PrestamoDAO.getPrestamosCriteria (usuario)", () -> {
+            PrestamoCriteria c = new PrestamoCriteria();
+            c.setIdUsuario(idUsuario);
+            c.setOrden(PrestamoCriteria.Orden.FECHA_INICIO);
+            c.setDescendente(true);
+            c.setLimite(20);
+            prestamoDAO.getPrestamosCriteria(c, PlanCargaPrestamo.COMPLETO);
+        });
+        consultas.put("PrestamoDAO.getPrestamosCriteria (ejemplar)", () -> {
+            PrestamoCriteria c = new PrestamoCriteria();
+            c.setIdEjemplar(idEjemplar);
+            c.setOrden(PrestamoCriteria.Orden.FECHA_INICIO);
+            c.setDescendente(true);
+            prestamoDAO.getPrestamosCriteria(c, PlanCargaPrestamo.CON_USUARIO);
+        });
+        consultas.put("PrestamoDAO.getPrestamosCriteria (libro)", () -> {
+            PrestamoCriteria c = new PrestamoCriteria();
+            c.setIdLibro(idLibro);
+            c.setLimite(50);
+            prestamoDAO.getPrestamosCriteria(c);
+        });
+        consultas.put("PrestamoDAO.getPrestamosCriteria (fecha_devolucion)", () -> {
+            PrestamoCriteria c = new PrestamoCriteria();
+            c.setIniFechaDevolucion(hoxe.minusDays(7));
+            c.setFinFechaDevolucion(hoxe);
+            prestamoDAO.getPrestamosCriteria(c);
+        });
+        consultas.put("PrestamoDAO.getPrestamosCriteriaPagina (fecha_fin)", () -> {
+            PrestamoCriteria c = new PrestamoCriteria();
+            c.setOrden(PrestamoCriteria.Orden.FECHA_FIN);
+            c.setDescendente(true);
+            prestamoDAO.getPrestamosCriteriaPagina(c, 50, null, PlanCargaPrestamo.SOLO_PRESTAMO);
+        });
+        consultas.put("PrestamoDAO.getResumenPrestamos", () -> {
+            PrestamoCriteria c = new PrestamoCriteria();
+            c.setEstadoPrestamo(Prestamo.EstadoPrestamo.DEVUELTO);
+            c.setOrden(PrestamoCriteria.Orden.FECHA_INICIO);
+            c.setDescendente(true);
+            c.setLimite(500);
+            prestamoDAO.getResumenPrestamos(c);
+        });
+
+        consultas.put("LibroDAO.getResumenLibros", () -> libroDAO.getResumenLibros(20, 0));
+        consultas.put("UsuarioDAO.findByDni", () -> usuarioDAO.findByDni(dni));
+        consultas.put("UsuarioDAO.findByDnis", () -> usuarioDAO.findByDnis(List.of(dni, "00000000X")));
+        consultas.put("UsuarioDAO.findByEmail", () -> usuarioDAO.findByEmail(email));
+        consultas.put("UsuarioDAO.favoritosPorUsuario", () -> usuarioDAO.favoritosPorUsuario(50, idUsuario / 2));
+        consultas.put("UsuarioDAO.topFavoritos (contador)", () -> usuarioDAO.topFavoritos(20, true));
+        consultas.put("UsuarioDAO.topFavoritos (calculado)", () -> usuarioDAO.topFavoritos(20, false));
+        return consultas;
+    }
+
+    private Map<String, Object> valoresExistentes() {
+        String sql = "SELECT p.id, p.usuario_id, p.ejemplar_id, e.libro_id, u.dni, u.email "
+                + "FROM prestamo p JOIN ejemplar e ON e.id = p.ejemplar_id JOIN usuario u ON u.id = p.usuario_id "
+                + "ORDER BY p.id DESC LIMIT 1";
+        try (Connection con = baseDatos.getDataSource().getConnection();
+             Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            if (!rs.next()) {
+                throw new IllegalStateException("Non hai préstamos na base de datos");
+            }
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("prestamo", rs.getInt(1));
+            datos.put("usuario", rs.getInt(2));
+            datos.put("ejemplar", rs.getInt(3));
+            datos.put("libro", rs.getInt(4));
+            datos.put("dni", rs.getString(5));
+            datos.put("email", rs.getString(6));
+            return datos;
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al leer los datos de la comprobación" + e);
+        }
+    }
+
+    private List<Fallo> explicar(String consulta, CapturaSentencias.Sentencia sentencia) {
+        List<Fallo> fallos = new ArrayList<>();
+        try (Connection con = baseDatos.getDataSource().getConnection();
+             PreparedStatement ps = sentencia.preparar(con, "EXPLAIN ");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String taboa = rs.getString("table");
+                long filas = filas(rs.getString("rows"));
+                // <derivedN> e <subqueryN> son resultados intermedios, non táboas
+                boolean intermedia = taboa == null || taboa.startsWith("<");
+                if ("ALL".equals(rs.getString("type")) && !intermedia && filas >= FILAS_MINIMAS) {
+                    fallos.add(new Fallo(consulta, taboa, filas, sentencia.sql()));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error al explicar " + consulta + e);
+        }
+        return fallos;
+    }
+
+    /** A columna rows pode levar a porcentaxe do filtro por rowid: "235 (2%)". */
+    private static long filas(String rows) {
+        if (rows == null) {
+            return 0;
+        }
+        int fin = 0;
+        while (fin < rows.length() && Character.isDigit(rows.charAt(fin))) {
+            fin++;
+        }
+        return fin == 0 ? 0 : Long.parseLong(rows.substring(0, fin));
+    }
+
+    @Override
+    public void close() {
+        baseDatos.close();
+    }
+
+    /** Uso: ComprobacionIndices. Conexión tomada de DB_URL, DB_USER e DB_PASS; sae con 1 se hai percorridos completos. */
+    public static void main(String[] args) {
+        List<Fallo> fallos;
+        try (ComprobacionIndices comprobacion = desdeEntorno()) {
+            fallos = comprobacion.comprobar();
+        }
+        fallos.forEach(System.out::println);
+        System.out.println(fallos.isEmpty() ? "Todas as consultas usan índices" : fallos.size() + " percorridos completos");
+        System.exit(fallos.isEmpty() ? 0 : 1);
+    }
+}
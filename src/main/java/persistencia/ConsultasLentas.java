@@ -0,0 +1,236 @@
+package persistencia;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rexistro de consultas lentas. Envolve o DataSource de Hibernate e mide cada sentencia desde
+ * o execute ata que se pecha o ResultSet (lectura das filas incluída). As que pasan do umbral
+ * escríbense no log (WARN de persistencia.ConsultasLentas) co SQL, os parámetros, as filas,
+ * o tempo e o método *DAOHib que as lanzou; opcionalmente tamén co EXPLAIN de MariaDB.
+ * O log e o EXPLAIN fanse nun fío aparte, así que a consulta só paga a medición.
+ * Actívase en BaseDatos con {@value #PROPIEDADE_UMBRAL_MS} maior que 0.
+ */
+class ConsultasLentas implements AutoCloseable {
+
+    static final String PROPIEDADE_UMBRAL_MS = "biblioteca.consultas_lentas.umbral_ms";
+    static final String PROPIEDADE_EXPLAIN = "biblioteca.consultas_lentas.explain";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConsultasLentas.class);
+    private static final int TAM_COLA = 1000;
+    private static final Set<String> EXECUCIONS = Set.of("executeQuery", "executeUpdate", "executeLargeUpdate",
+            "execute", "executeBatch", "executeLargeBatch");
+
+    /** Unha sentencia lenta pendente de escribir. */
+    private record Entrada(String sql, ParametrosJdbc parametros, long filas, long micros, String metodoDao) {
+    }
+
+    private static final Entrada FIN = new Entrada("", null, 0, 0, "");
+
+    private final long umbralNanos;
+    private final boolean explain;
+    private final DataSource dataSourceExplain;
+    private final BlockingQueue<Entrada> cola = new ArrayBlockingQueue<>(TAM_COLA);
+    private final LongAdder lentas = new LongAdder();
+    private final LongAdder descartadas = new LongAdder();
+    private final Thread escritor;
+
+    /**
+     * @param dataSourceExplain conexións para o EXPLAIN; sen envolver, para que o EXPLAIN non se rexistre a si mesmo
+     */
+    ConsultasLentas(long umbralMillis, boolean explain, DataSource dataSourceExplain) {
+        this.umbralNanos = umbralMillis * 1_000_000;
+        this.explain = explain;
+        this.dataSourceExplain = dataSourceExplain;
+        escritor = Thread.ofPlatform().name("consultas-lentas").daemon().start(this::escribir);
+    }
+
+    DataSource envolver(DataSource dataSource) {
+        return ProxyJdbc.envolver(DataSource.class, dataSource, (metodo, resultado, args) ->
+                resultado instanceof Connection con ? envolverConexion(con) : resultado);
+    }
+
+    /** Formato de texto de Prometheus. */
+    String informe() {
+        return "# TYPE biblioteca_consultas_lentas_total counter\n"
+                + "biblioteca_consultas_lentas_total " + lentas.sum() + '\n'
+                + "# TYPE biblioteca_consultas_lentas_descartadas_total counter\n"
+                + "biblioteca_consultas_lentas_descartadas_total " + descartadas.sum() + '\n';
+    }
+
+    /** Escribe o que quede na cola e para o fío escritor. */
+    @Override
+    public void close() {
+        try {
+            cola.put(FIN);
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Connection envolverConexion(Connection con) {
+        return ProxyJdbc.envolver(Connection.class, con, (metodo, resultado, args) -> {
+            // O proxy ten que ter a interface do que devolve o método: un CallableStatement envolto como
+            // PreparedStatement fallaría no cast de quen o pediu
+            if (resultado instanceof CallableStatement cs && metodo.getName().equals("prepareCall")) {
+                return envolverSentencia(CallableStatement.class, cs, (String) args[0]);
+            }
+            if (resultado instanceof PreparedStatement ps && metodo.getName().equals("prepareStatement")) {
+                return envolverSentencia(PreparedStatement.class, ps, (String) args[0]);
+            }
+            if (resultado instanceof Statement st && metodo.getName().equals("createStatement")) {
+                return envolverSentencia(Statement.class, st, null);
+            }
+            return resultado;
+        });
+    }
+
+    /** sqlPreparado é null nun Statement simple: o SQL chega entón no execute. */
+    private <S extends Statement> S envolverSentencia(Class<S> tipo, S sentencia, String sqlPreparado) {
+        ParametrosJdbc parametros = new ParametrosJdbc();
+        Object proxy = Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, (p, metodo, args) -> {
+            if (parametros.rexistrar(metodo, args) || !EXECUCIONS.contains(metodo.getName())) {
+                return ProxyJdbc.invocar(metodo, sentencia, args);
+            }
+            // executeBatch dun Statement simple non leva argumentos: o SQL foi chegando nos addBatch
+            String sql = sqlPreparado != null ? sqlPreparado : args != null ? (String) args[0] : "(lote de Statement)";
+            long inicio = System.nanoTime();
+            Object resultado = ProxyJdbc.invocar(metodo, sentencia, args);
+            if (resultado instanceof ResultSet rs) {
+                // Queda medir ata que Hibernate remate de ler as filas
+                return envolverResultado(rs, sql, parametros, inicio);
+            }
+            medir(sql, parametros, filas(resultado), inicio);
+            return resultado;
+        });
+        return tipo.cast(proxy);
+    }
+
+    private ResultSet envolverResultado(ResultSet rs, String sql, ParametrosJdbc parametros, long inicio) {
+        long[] filas = {0};
+        boolean[] pechado = {false};
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (p, metodo, args) -> {
+                    Object resultado = ProxyJdbc.invocar(metodo, rs, args);
+                    String nome = metodo.getName();
+                    if (nome.equals("next") && Boolean.TRUE.equals(resultado)) {
+                        filas[0]++;
+                    } else if (nome.equals("close") && !pechado[0]) {
+                        pechado[0] = true;
+                        medir(sql, parametros, filas[0], inicio);
+                    }
+                    return resultado;
+                });
+    }
+
+    private static long filas(Object resultado) {
+        if (resultado instanceof Number n) {
+            return n.longValue();
+        }
+        long total = 0;
+        if (resultado instanceof int[] lote) {
+            for (int n : lote) {
+                total += Math.max(n, 0);
+            }
+        } else if (resultado instanceof long[] lote) {
+            for (long n : lote) {
+                total += Math.max(n, 0);
+            }
+        } else {
+            return -1;
+        }
+        return total;
+    }
+
+    private void medir(String sql, ParametrosJdbc parametros, long filas, long inicio) {
+        long nanos = System.nanoTime() - inicio;
+        if (nanos < umbralNanos) {
+            return;
+        }
+        lentas.increment();
+        // O método DAO búscase aquí, no fío que fixo a consulta; o resto faino o escritor
+        Entrada entrada = new Entrada(sql, parametros.copia(), filas, nanos / 1000, metodoDao());
+        if (!cola.offer(entrada)) {
+            descartadas.increment();
+        }
+    }
+
+    /**
+     * Método *DAOHib máis externo da pila, p.ex. PrestamoDAOHib.recuperarPagina: o que chamou
+     * a aplicación, aínda que delegue noutro método do DAO.
+     */
+    private static String metodoDao() {
+        return StackWalker.getInstance().walk(pila -> pila
+                .filter(f -> f.getClassName().endsWith("DAOHib"))
+                .reduce((interno, externo) -> externo)
+                .map(f -> f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1) + "." + f.getMethodName())
+                .orElse("(fóra dos DAO)"));
+    }
+
+    private void escribir() {
+        while (true) {
+            Entrada e;
+            try {
+                e = cola.take();
+            } catch (InterruptedException ex) {
+                return;
+            }
+            if (e == FIN) {
+                return;
+            }
+            StringBuilder sb = new StringBuilder()
+                    .append("Consulta lenta: ").append(e.micros() / 1000).append(" ms, ")
+                    .append(e.filas()).append(" filas, ").append(e.metodoDao())
+                    .append("\n  SQL: ").append(e.sql())
+                    .append("\n  Parámetros: ").append(e.parametros().valores());
+            if (explain && explicable(e.sql())) {
+                sb.append("\n  EXPLAIN:").append(explicar(e));
+            }
+            LOG.warn(sb.toString());
+        }
+    }
+
+    private static boolean explicable(String sql) {
+        String inicio = sql.stripLeading();
+        return inicio.regionMatches(true, 0, "select", 0, 6)
+                || inicio.regionMatches(true, 0, "update", 0, 6)
+                || inicio.regionMatches(true, 0, "delete", 0, 6);
+    }
+
+    private String explicar(Entrada e) {
+        StringBuilder sb = new StringBuilder();
+        try (Connection con = dataSourceExplain.getConnection();
+             PreparedStatement ps = e.parametros().preparar(con, "EXPLAIN " + e.sql());
+             ResultSet rs = ps.executeQuery()) {
+            ResultSetMetaData meta = rs.getMetaData();
+            sb.append("\n    ");
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                sb.append(i == 1 ? "" : " | ").append(meta.getColumnLabel(i));
+            }
+            while (rs.next()) {
+                sb.append("\n    ");
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    sb.append(i == 1 ? "" : " | ").append(rs.getString(i));
+                }
+            }
+        } catch (SQLException ex) {
+            sb.append(" non dispoñible (").append(ex.getMessage()).append(')');
+        }
+        return sb.toString();
+    }
+}
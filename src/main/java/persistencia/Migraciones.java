@@ -0,0 +1,79 @@
+package persistencia;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.output.MigrateResult;
+
+import java.util.Map;
+
+/**
+ * Migracións versionadas do esquema con Flyway (scripts en db/migracion, V2__..., V3__...).
+ * A versión 1 é docker/scripts/init.sql: unha base xa creada con el márcase como versión 1
+ * a primeira vez (baseline) e só se lle aplican as migracións seguintes.
+ * Hibernate segue en hbm2ddl.auto=validate, así que as migracións teñen que ir antes da EntityManagerFactory.
+ */
+public class Migraciones {
+
+    /** Propiedade de BaseDatos para non migrar ao arrancar ("false"). Por defecto migra. */
+    public static final String PROPIEDADE_MIGRAR = "biblioteca.migrar";
+
+    private static final String UBICACION = "classpath:db/migracion";
+
+    private final Flyway flyway;
+
+    public Migraciones(String url, String usuario, String contrasinal) {
+        flyway = Flyway.configure()
+                .dataSource(url, usuario, contrasinal)
+                .locations(UBICACION)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .baselineDescription("init.sql")
+                .load();
+    }
+
+    /** Aplica as migracións pendentes e devolve cantas se aplicaron. */
+    public int migrar() {
+        MigrateResult resultado = flyway.migrate();
+        return resultado.migrationsExecuted;
+    }
+
+    /** Versión actual do esquema, ou null se a base aínda non está versionada. */
+    public String versionActual() {
+        MigrationInfo actual = flyway.info().current();
+        return actual == null ? null : actual.getVersion().getVersion();
+    }
+
+    /** Migracións coñecidas co seu estado (Success, Pending, Baseline...). */
+    public String informe() {
+        StringBuilder sb = new StringBuilder();
+        for (MigrationInfo m : flyway.info().all()) {
+            sb.append(m.getVersion()).append('\t')
+                    .append(m.getDescription()).append('\t')
+                    .append(m.getState().getDisplayName()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Uso: Migraciones [migrar|info]. A conexión tómase de DB_URL, DB_USER e DB_PASS, como en BaseDatos.desdeEntorno().
+     */
+    public static void main(String[] args) {
+        Map<String, String> entorno = System.getenv();
+        Migraciones migraciones = new Migraciones(
+                entorno.getOrDefault("DB_URL", "jdbc:mariadb://localhost:3306/biblioteca"),
+                entorno.getOrDefault("DB_USER", "testuser"),
+                entorno.getOrDefault("DB_PASS", "testpass"));
+        String orde = args.length > 0 ? args[0] : "migrar";
+        switch (orde) {
+            case "migrar" -> {
+                int aplicadas = migraciones.migrar();
+                System.out.println("Migracións aplicadas: " + aplicadas + ", versión " + migraciones.versionActual());
+            }
+            case "info" -> System.out.print(migraciones.informe());
+            default -> {
+                System.err.println("Uso: Migraciones [migrar|info]");
+                System.exit(2);
+            }
+        }
+    }
+}
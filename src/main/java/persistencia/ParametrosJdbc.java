@@ -0,0 +1,73 @@
+package persistencia;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Parámetros dun PreparedStatement tal como os puxo Hibernate (as chamadas set*(índice, valor...)),
+ * para amosalos ou repetilos noutra sentencia, p.ex. con EXPLAIN diante.
+ */
+final class ParametrosJdbc {
+
+    private record Chamada(Method metodo, Object[] argumentos) {
+    }
+
+    private final TreeMap<Integer, Chamada> porIndice;
+
+    ParametrosJdbc() {
+        this(new TreeMap<>());
+    }
+
+    private ParametrosJdbc(TreeMap<Integer, Chamada> porIndice) {
+        this.porIndice = porIndice;
+    }
+
+    /** Anota set*(índice, ...) e clearParameters; devolve false para calquera outro método. */
+    boolean rexistrar(Method metodo, Object[] args) {
+        String nome = metodo.getName();
+        if (nome.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer indice) {
+            porIndice.put(indice, new Chamada(metodo, args.clone()));
+            return true;
+        }
+        if (nome.equals("clearParameters")) {
+            porIndice.clear();
+            return true;
+        }
+        return false;
+    }
+
+    /** Copia dos valores actuais: o PreparedStatement pode reutilizarse con outros. */
+    ParametrosJdbc copia() {
+        return new ParametrosJdbc(new TreeMap<>(porIndice));
+    }
+
+    /** Valores na orde dos ?, como texto (setNull amósase como NULL). */
+    List<String> valores() {
+        List<String> valores = new ArrayList<>(porIndice.size());
+        for (Chamada c : porIndice.values()) {
+            Object valor = c.metodo().getName().equals("setNull") ? null : c.argumentos()[1];
+            valores.add(valor == null ? "NULL" : valor instanceof CharSequence ? "'" + valor + "'" : valor.toString());
+        }
+        return valores;
+    }
+
+    /** Prepara sql na conexión e volve pór estes parámetros. */
+    PreparedStatement preparar(Connection con, String sql) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql);
+        try {
+            for (Chamada c : porIndice.values()) {
+                c.metodo().invoke(ps, c.argumentos());
+            }
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            ps.close();
+            throw new SQLException("Error al repetir los parámetros de " + sql, e);
+        }
+        return ps;
+    }
+}
@@ -0,0 +1,80 @@
+package persistencia;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import metricas.DetectorCargasLazy;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Entrega a cada fío o seu propio EntityManager, creado a partir dunha única EntityManagerFactory.
+ * O EntityManager dura o que a unidade de traballo (enUnidadDeTrabajo). Fóra dunha, cada chamada a un DAO
+ * (conEntityManager) abre o seu e péchao ao volver: o contexto de persistencia non medra nin garda entidades
+ * vellas entre chamadas, e as entidades devoltas quedan desligadas. Así a mesma instancia de DAO pode usarse
+ * desde moitos fíos (de plataforma ou virtuais) á vez.
+ */
+public class ProveedorEntityManager {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ThreadLocal<EntityManager> actual = new ThreadLocal<>();
+
+    public ProveedorEntityManager(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /** EntityManager da unidade de traballo do fío actual. */
+    public EntityManager get() {
+        EntityManager em = actual.get();
+        if (em == null) {
+            throw new IllegalStateException("Sen unidade de traballo aberta no fío (enUnidadDeTrabajo)");
+        }
+        return em;
+    }
+
+    /**
+     * Executa o traballo cun EntityManager novo que se pecha ao rematar.
+     * Se o fío xa ten un aberto, reutilízase e non se pecha.
+     */
+    public <T> T enUnidadDeTrabajo(Supplier<T> trabajo) {
+        if (actual.get() != null) {
+            return trabajo.get();
+        }
+        actual.set(entityManagerFactory.createEntityManager());
+        DetectorCargasLazy.iniciarUnidad();
+        try {
+            return trabajo.get();
+        } finally {
+            cerrar();
+        }
+    }
+
+    public void enUnidadDeTrabajo(Runnable trabajo) {
+        enUnidadDeTrabajo(() -> {
+            trabajo.run();
+            return null;
+        });
+    }
+
+    /** Un método DAO: na unidade de traballo do fío se a hai; se non, nunha só para esta chamada. */
+    public <T> T conEntityManager(Function<EntityManager, T> trabajo) {
+        return enUnidadDeTrabajo(() -> trabajo.apply(get()));
+    }
+
+    public EntityManagerFactory getEntityManagerFactory() {
+        return entityManagerFactory;
+    }
+
+    private void cerrar() {
+        EntityManager em = actual.get();
+        actual.remove();
+        DetectorCargasLazy.finalizarUnidad();
+        if (em.isOpen()) {
+            // Unha transacción que quedou aberta non pasa ao seguinte uso da conexión
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+    }
+}
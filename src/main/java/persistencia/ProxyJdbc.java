@@ -0,0 +1,31 @@
+package persistencia;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/** Axuda para os envoltorios JDBC (CapturaSentencias, ConsultasLentas) feitos con proxies dinámicos. */
+final class ProxyJdbc {
+
+    /** Que facer co resultado dun método do obxecto envolto (p.ex. envolver a Connection que devolve). */
+    interface Transformacion {
+        Object aplicar(Method metodo, Object resultado, Object[] args) throws Throwable;
+    }
+
+    private ProxyJdbc() {
+    }
+
+    static <T> T envolver(Class<T> tipo, T destino, Transformacion transformacion) {
+        return tipo.cast(Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo},
+                (proxy, metodo, args) -> transformacion.aplicar(metodo, invocar(metodo, destino, args), args)));
+    }
+
+    /** Invoca o método no obxecto real e relanza a excepción orixinal, non a InvocationTargetException. */
+    static Object invocar(Method metodo, Object destino, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
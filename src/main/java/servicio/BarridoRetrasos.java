@@ -0,0 +1,226 @@
+package servicio;
+
+import criteria.CursorPrestamo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import modelo.Prestamo;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import persistencia.BaseDatos;
+import persistencia.ProveedorEntityManager;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Pasa a RETRASADO os préstamos ACTIVO con fecha_fin anterior a hoxe, por bloques e sen cargar entidades.
+ * Cada bloque é unha transacción: un SELECT ... FOR UPDATE SKIP LOCKED escolle ata tamBloque ids
+ * (polo índice idx_prestamo_estado_fin) e un UPDATE por id cámbialles o estado. Varios fíos, ou
+ * varios procesos, poden barrer á vez: cada un salta as filas que outro xa ten bloqueadas.
+ * Cada fío continúa desde o último (fecha_fin, id) do seu bloque anterior: as entradas ACTIVO que
+ * InnoDB aínda non purgou do índice non se volven percorrer (nin bloquear) en cada bloque.
+ * Os Prestamo que xa estean cargados nalgún EntityManager non se enteran do cambio.
+ */
+public class BarridoRetrasos implements AutoCloseable {
+
+    // Potencia de 2: co in_clause_parameter_padding un IN de 5000 ids levaría 8192 parámetros
+    public static final int TAM_BLOQUE_DEFECTO = 4096;
+    private static final int MAX_INTENTOS = 5;
+
+    private static final Logger LOG = LoggerFactory.getLogger(BarridoRetrasos.class);
+
+    private static final String SELECCIONAR = "SELECT id, fecha_fin FROM prestamo"
+            + " WHERE estado = 'ACTIVO' AND fecha_fin < :hoy%s"
+            + " ORDER BY fecha_fin, id LIMIT :tamBloque FOR UPDATE SKIP LOCKED";
+    private static final String DESPOIS_DO_CURSOR =
+            " AND (fecha_fin > :fechaCursor OR (fecha_fin = :fechaCursor AND id > :idCursor))";
+    // A condición de estado repítese por se o préstamo se devolveu entre a selección e o UPDATE noutro camiño
+    private static final String MARCAR = "UPDATE prestamo SET estado = 'RETRASADO'"
+            + " WHERE id IN (:ids) AND estado = 'ACTIVO'";
+
+    private final ProveedorEntityManager proveedor;
+    private final int tamBloque;
+    private final int fios;
+    private ScheduledExecutorService programador;
+
+    public BarridoRetrasos(ProveedorEntityManager proveedor) {
+        this(proveedor, TAM_BLOQUE_DEFECTO, 1);
+    }
+
+    /**
+     * @param tamBloque préstamos por transacción
+     * @param fios      transaccións en paralelo; como moito as conexións libres do pool
+     */
+    public BarridoRetrasos(ProveedorEntityManager proveedor, int tamBloque, int fios) {
+        if (tamBloque < 1 || fios < 1) {
+            throw new IllegalArgumentException("tamBloque e fios deben ser positivos: " + tamBloque + ", " + fios);
+        }
+        this.proveedor = proveedor;
+        this.tamBloque = tamBloque;
+        this.fios = fios;
+    }
+
+    /** Barrido con data de hoxe. Devolve o número de préstamos que pasaron a RETRASADO. */
+    public long barrer() {
+        return barrer(LocalDate.now());
+    }
+
+    public long barrer(LocalDate hoy) {
+        if (fios == 1) {
+            return proveedor.enUnidadDeTrabajo(() -> barrerBloques(hoy));
+        }
+        try (ExecutorService executor = Executors.newFixedThreadPool(fios)) {
+            List<Future<Long>> traballos = new ArrayList<>();
+            for (int i = 0; i < fios; i++) {
+                traballos.add(executor.submit(() -> proveedor.enUnidadDeTrabajo(() -> barrerBloques(hoy))));
+            }
+            long total = 0;
+            for (Future<Long> traballo : traballos) {
+                total += traballo.get();
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Error al marcar prestamos retrasados" + e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error al marcar prestamos retrasados" + e.getCause());
+        }
+    }
+
+    /**
+     * Repite o barrido cada periodo nun fío de fondo, a primeira vez xa. O resultado vai ao log (INFO).
+     * Un erro nun barrido rexístrase e non cancela os seguintes.
+     */
+    public synchronized void programar(Duration periodo) {
+        if (programador != null) {
+            throw new IllegalStateException("O barrido xa está programado");
+        }
+        programador = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("barrido-retrasos").daemon().factory());
+        programador.scheduleWithFixedDelay(() -> {
+            try {
+                long inicio = System.nanoTime();
+                long marcados = barrer();
+                LOG.info("Barrido de retrasos: " + marcados + " préstamos pasan a RETRASADO en "
+                        + (System.nanoTime() - inicio) / 1_000_000 + " ms");
+            } catch (RuntimeException e) {
+                LOG.error("Barrido de retrasos fallido", e);
+            }
+        }, 0, periodo.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /** Para o barrido programado, esperando polo que estea en marcha. */
+    @Override
+    public synchronized void close() {
+        if (programador != null) {
+            programador.close();
+            programador = null;
+        }
+    }
+
+    /** Bloques ata que a selección volva baleira: non quedan atrasados despois do cursor ou os que quedan tenos outro fío. */
+    private long barrerBloques(LocalDate hoy) {
+        EntityManager entityManager = proveedor.get();
+        long total = 0;
+        CursorPrestamo cursor = null;
+        while (true) {
+            List<Object[]> filas = new ArrayList<>();
+            total += marcarBloque(entityManager, hoy, cursor, filas);
+            if (filas.isEmpty()) {
+                return total;
+            }
+            Object[] ultima = filas.get(filas.size() - 1);
+            cursor = CursorPrestamo.porFecha((LocalDate) ultima[1], (Integer) ultima[0]);
+        }
+    }
+
+    /**
+     * Marca un bloque despois do cursor (null no primeiro) e deixa en seleccionadas as filas (id, fecha_fin)
+     * escollidas. Se MariaDB escolle a transacción como vítima dun interbloqueo, o bloque repítese.
+     */
+    private int marcarBloque(EntityManager entityManager, LocalDate hoy, CursorPrestamo cursor, List<Object[]> seleccionadas) {
+        for (int intento = 1; ; intento++) {
+            EntityTransaction tran = entityManager.getTransaction();
+            try {
+                tran.begin();
+                // Sen bloqueos de intervalo (gap locks) de REPEATABLE READ: só quedan bloqueadas as filas do bloque
+                // Por JDBC: un SET nativo sen táboas sería para Hibernate un cambio en todas e baleiraría a caché.
+                // Hikari devolve a conexión ao pool co illamento de sempre
+                entityManager.unwrap(Session.class)
+                        .doWork(con -> con.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED));
+                seleccionadas.clear();
+                seleccionadas.addAll(seleccionar(entityManager, hoy, cursor));
+                int marcados = 0;
+                if (!seleccionadas.isEmpty()) {
+                    List<Integer> ids = new ArrayList<>(seleccionadas.size());
+                    for (Object[] fila : seleccionadas) {
+                        ids.add((Integer) fila[0]);
+                    }
+                    marcados = entityManager.createNativeQuery(MARCAR)
+                            // Só se invalida o que dependa de prestamo, non toda a caché de consultas
+                            .unwrap(NativeQuery.class)
+                            .addSynchronizedEntityClass(Prestamo.class)
+                            .setParameter("ids", ids)
+                            .executeUpdate();
+                }
+                tran.commit();
+                return marcados;
+            } catch (OptimisticLockException | PessimisticLockException e) {
+                if (tran.isActive()) {
+                    tran.rollback();
+                }
+                if (intento == MAX_INTENTOS) {
+                    throw new RuntimeException("Error al marcar prestamos retrasados" + e);
+                }
+            } catch (Exception e) {
+                if (tran.isActive()) {
+                    tran.rollback();
+                }
+                throw new RuntimeException("Error al marcar prestamos retrasados" + e);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> seleccionar(EntityManager entityManager, LocalDate hoy, CursorPrestamo cursor) {
+        NativeQuery<Object[]> seleccion = entityManager
+                .createNativeQuery(SELECCIONAR.formatted(cursor == null ? "" : DESPOIS_DO_CURSOR))
+                .unwrap(NativeQuery.class)
+                .addScalar("id", StandardBasicTypes.INTEGER)
+                .addScalar("fecha_fin", StandardBasicTypes.LOCAL_DATE)
+                .setParameter("hoy", hoy)
+                .setParameter("tamBloque", tamBloque);
+        if (cursor != null) {
+            seleccion.setParameter("fechaCursor", cursor.fecha()).setParameter("idCursor", cursor.id());
+        }
+        return seleccion.getResultList();
+    }
+
+    /** Un barrido contra DB_URL. Argumentos opcionais: tamaño de bloque e número de fíos. */
+    public static void main(String[] args) {
+        int tamBloque = args.length > 0 ? Integer.parseInt(args[0]) : TAM_BLOQUE_DEFECTO;
+        int fios = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        // O barrido non usa os índices en memoria: sen cargalos nin os seus listeners
+        try (BaseDatos baseDatos = BaseDatos.desdeEntorno(UnaryOperator.identity(), false)) {
+            long inicio = System.nanoTime();
+            long marcados = new BarridoRetrasos(baseDatos.getProveedor(), tamBloque, fios).barrer();
+            System.out.println(marcados + " préstamos pasan a RETRASADO en "
+                    + (System.nanoTime() - inicio) / 1_000_000 + " ms");
+        }
+    }
+}
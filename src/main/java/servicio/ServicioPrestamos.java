@@ -0,0 +1,247 @@
+package servicio;
+
+import indice.IndiceDisponibilidad;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import modelo.Ejemplar;
+import modelo.Prestamo;
+import modelo.Usuario;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import persistencia.ProveedorEntityManager;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Préstamo e devolución de exemplares nunha soa transacción cada un.
+ * O cambio de estado do exemplar vai protexido polo @Version de Ejemplar: se dous mostradores
+ * prestan o mesmo exemplar á vez, o UPDATE do segundo non atopa a versión que leu e a súa
+ * transacción desfaise enteira (tamén o INSERT do préstamo). Entón vólvese ler o exemplar,
+ * que xa non está DISPONIBLE, e o préstamo rexéitase. Só se bloquea a fila do exemplar, nunca a táboa.
+ */
+public class ServicioPrestamos {
+
+    public static final int DIAS_PRESTAMO = 15;
+    // Códigos por transacción en devolverPorCodigos; potencia de 2 polo in_clause_parameter_padding
+    public static final int TAM_BLOQUE_DEVOLUCIONS = 1024;
+    private static final int MAX_INTENTOS = 5;
+
+    // O préstamo aberto de cada código (se o ten), bloqueando exemplar e préstamo ata o commit
+    private static final String RESOLVER_CODIGOS = "SELECT e.codigo, e.id AS ejemplar_id, e.libro_id, e.estado,"
+            + " p.id AS prestamo_id"
+            + " FROM ejemplar e LEFT JOIN prestamo p ON p.ejemplar_id = e.id AND p.estado IN ('ACTIVO', 'RETRASADO')"
+            + " WHERE e.codigo IN (:codigos) FOR UPDATE";
+    private static final String PECHAR_PRESTAMOS = "UPDATE prestamo SET estado = 'DEVUELTO', fecha_devolucion = :hoy"
+            + " WHERE id IN (:ids)";
+    // A versión súbese a man: un prestar() que lera o exemplar antes fallará e volverá lelo
+    private static final String LIBERAR_EJEMPLARES = "UPDATE ejemplar SET estado = 'DISPONIBLE', version = version + 1"
+            + " WHERE id IN (:ids)";
+
+    /** Resultado de cada código en devolverPorCodigos. */
+    public enum ResultadoDevolucion {
+        DEVUELTO,       // pechouse o préstamo e o exemplar quedou DISPONIBLE
+        SIN_PRESTAMO,   // o exemplar non tiña ningún préstamo ACTIVO nin RETRASADO
+        NO_EXISTE       // ningún exemplar ten ese código
+    }
+
+    /** Resultado dun bloque e os exemplares que liberou (libro e estado no que estaban), para o índice. */
+    private record BloqueDevolto(Map<String, ResultadoDevolucion> resultados, List<Object[]> liberados) {
+    }
+
+    private final ProveedorEntityManager proveedor;
+    private final IndiceDisponibilidad indiceDisponibilidad;
+
+    /** Sen índice de dispoñibilidade que manter. */
+    public ServicioPrestamos(ProveedorEntityManager proveedor) {
+        this(proveedor, null);
+    }
+
+    /**
+     * @param indiceDisponibilidad o de BaseDatos: prestar e devolver chegan a el polo listener de Hibernate,
+     *                             pero devolverPorCodigos non usa entidades e ten que avisalo el mesmo
+     */
+    public ServicioPrestamos(ProveedorEntityManager proveedor, IndiceDisponibilidad indiceDisponibilidad) {
+        this.proveedor = proveedor;
+        this.indiceDisponibilidad = indiceDisponibilidad;
+    }
+
+    /** Préstamo de DIAS_PRESTAMO días desde hoxe. */
+    public Optional<Prestamo> prestar(int idUsuario, int idEjemplar) {
+        LocalDate hoy = LocalDate.now();
+        return prestar(idUsuario, idEjemplar, hoy, hoy.plusDays(DIAS_PRESTAMO));
+    }
+
+    /**
+     * Presta o exemplar se está DISPONIBLE.
+     * Baleiro se o exemplar non está dispoñible ou se o usuario ou o exemplar non existen.
+     */
+    public Optional<Prestamo> prestar(int idUsuario, int idEjemplar, LocalDate fechaInicio, LocalDate fechaFin) {
+        return conReintentos("prestar ejemplar " + idEjemplar, entityManager -> {
+            Ejemplar ejemplar = entityManager.find(Ejemplar.class, idEjemplar);
+            if (ejemplar == null || ejemplar.getEstado() != Ejemplar.EstadoEjemplar.DISPONIBLE) {
+                return Optional.empty();
+            }
+            Usuario usuario = entityManager.find(Usuario.class, idUsuario);
+            if (usuario == null) {
+                return Optional.empty();
+            }
+            ejemplar.setEstado(Ejemplar.EstadoEjemplar.PRESTADO);
+            // Primeiro o UPDATE do exemplar e despois o INSERT: Hibernate faría o INSERT antes, e a
+            // clave foránea deixaría dúas transaccións co bloqueo compartido da fila esperando unha pola outra
+            entityManager.flush();
+            Prestamo prestamo = new Prestamo();
+            prestamo.setFechaInicio(fechaInicio);
+            prestamo.setFechaFin(fechaFin);
+            prestamo.setEstado(Prestamo.EstadoPrestamo.ACTIVO);
+            prestamo.setUsuario(usuario);
+            prestamo.setEjemplar(ejemplar);
+            entityManager.persist(prestamo);
+            return Optional.of(prestamo);
+        });
+    }
+
+    /** Marca o préstamo como devolto hoxe e deixa o exemplar DISPONIBLE. false se non existe ou xa estaba devolto. */
+    public boolean devolver(int idPrestamo) {
+        return conReintentos("devolver prestamo " + idPrestamo, entityManager -> {
+            Prestamo prestamo = entityManager.find(Prestamo.class, idPrestamo);
+            if (prestamo == null || prestamo.getEstado() == Prestamo.EstadoPrestamo.DEVUELTO) {
+                return false;
+            }
+            prestamo.setEstado(Prestamo.EstadoPrestamo.DEVUELTO);
+            prestamo.setFechaDevolucion(LocalDate.now());
+            prestamo.getEjemplar().setEstado(Ejemplar.EstadoEjemplar.DISPONIBLE);
+            return true;
+        });
+    }
+
+    /**
+     * Devolución en bloque (buzón de devolucións) a partir dos códigos dos exemplares.
+     * Por cada TAM_BLOQUE_DEVOLUCIONS códigos hai unha transacción con tres sentencias: a que resolve
+     * os códigos e os seus préstamos abertos, o UPDATE dos préstamos e o UPDATE dos exemplares.
+     * Sen entidades: os Prestamo e Ejemplar xa cargados na unidade de traballo do fío non ven o cambio.
+     *
+     * @return o resultado de cada código distinto, na orde de entrada
+     */
+    public Map<String, ResultadoDevolucion> devolverPorCodigos(Collection<String> codigos) {
+        List<String> distintos = List.copyOf(new LinkedHashSet<>(codigos));
+        LocalDate hoy = LocalDate.now();
+        Map<String, ResultadoDevolucion> resultados = new LinkedHashMap<>();
+        for (int i = 0; i < distintos.size(); i += TAM_BLOQUE_DEVOLUCIONS) {
+            List<String> bloque = distintos.subList(i, Math.min(i + TAM_BLOQUE_DEVOLUCIONS, distintos.size()));
+            BloqueDevolto devolto = conReintentos("devolver ejemplares " + bloque.get(0) + "...",
+                    entityManager -> devolverBloque(entityManager, bloque, hoy));
+            resultados.putAll(devolto.resultados());
+            if (indiceDisponibilidad != null) {
+                for (Object[] liberado : devolto.liberados()) {
+                    indiceDisponibilidad.mover((Integer) liberado[0], (Ejemplar.EstadoEjemplar) liberado[1],
+                            Ejemplar.EstadoEjemplar.DISPONIBLE);
+                }
+            }
+        }
+        return resultados;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BloqueDevolto devolverBloque(EntityManager entityManager, List<String> codigos,
+                                                                   LocalDate hoy) {
+        // Sen bloqueos de intervalo: dous bloques con códigos distintos non se esperan entre si.
+        // Por JDBC, como en BarridoRetrasos: un SET nativo baleiraría a caché de segundo nivel
+        entityManager.unwrap(Session.class)
+                .doWork(con -> con.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED));
+        List<Object[]> filas = entityManager.createNativeQuery(RESOLVER_CODIGOS)
+                .unwrap(NativeQuery.class)
+                .addScalar("codigo", StandardBasicTypes.STRING)
+                .addScalar("ejemplar_id", StandardBasicTypes.INTEGER)
+                .addScalar("libro_id", StandardBasicTypes.INTEGER)
+                .addScalar("estado", StandardBasicTypes.STRING)
+                .addScalar("prestamo_id", StandardBasicTypes.INTEGER)
+                .setParameter("codigos", codigos)
+                .getResultList();
+
+        Map<String, ResultadoDevolucion> resultados = new LinkedHashMap<>();
+        for (String codigo : codigos) {
+            resultados.put(codigo, ResultadoDevolucion.NO_EXISTE);
+        }
+        List<Integer> prestamos = new ArrayList<>();
+        Set<Integer> ejemplares = new HashSet<>();
+        List<Object[]> liberados = new ArrayList<>();
+        for (Object[] fila : filas) {
+            String codigo = (String) fila[0];
+            Integer idPrestamo = (Integer) fila[4];
+            if (idPrestamo != null) {
+                prestamos.add(idPrestamo);
+                if (ejemplares.add((Integer) fila[1])) {
+                    liberados.add(new Object[]{fila[2], Ejemplar.EstadoEjemplar.valueOf((String) fila[3])});
+                }
+                resultados.put(codigo, ResultadoDevolucion.DEVUELTO);
+            } else {
+                resultados.put(codigo, ResultadoDevolucion.SIN_PRESTAMO);
+            }
+        }
+        if (!prestamos.isEmpty()) {
+            entityManager.createNativeQuery(PECHAR_PRESTAMOS)
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedEntityClass(Prestamo.class)
+                    .setParameter("hoy", hoy)
+                    .setParameter("ids", prestamos)
+                    .executeUpdate();
+            entityManager.createNativeQuery(LIBERAR_EJEMPLARES)
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedEntityClass(Ejemplar.class)
+                    .setParameter("ids", ejemplares)
+                    .executeUpdate();
+        }
+        return new BloqueDevolto(resultados, liberados);
+    }
+
+    /**
+     * Executa a transacción e, se choca con outra (versión cambiada ou interbloqueo), desfaina e repítea
+     * ata MAX_INTENTOS veces. Cada intento vai no seu propio EntityManager, que se pecha ao rematar: empeza
+     * cun contexto de persistencia baleiro (un Ejemplar vello non evitaría o conflito de versión que o corrixe)
+     * e non toca o EntityManager nin a transacción da unidade de traballo do fío, se a hai.
+     * As entidades devoltas quedan desligadas.
+     */
+    private <T> T conReintentos(String operacion, Function<EntityManager, T> transaccion) {
+        for (int intento = 1; intento <= MAX_INTENTOS; intento++) {
+            EntityManager entityManager = proveedor.getEntityManagerFactory().createEntityManager();
+            EntityTransaction tran = entityManager.getTransaction();
+            try {
+                tran.begin();
+                T resultado = transaccion.apply(entityManager);
+                // O flush lanza aquí o conflito de versión, antes do commit
+                entityManager.flush();
+                tran.commit();
+                return resultado;
+            } catch (OptimisticLockException | PessimisticLockException e) {
+                // PessimisticLockException: MariaDB escolleu esta transacción como vítima dun interbloqueo
+                desfacer(tran);
+            } catch (Exception e) {
+                desfacer(tran);
+                throw new RuntimeException("Error al " + operacion + e);
+            } finally {
+                entityManager.close();
+            }
+        }
+        throw new RuntimeException("Error al " + operacion + ": conflicto de concurrencia tras " + MAX_INTENTOS + " intentos");
+    }
+
+    private static void desfacer(EntityTransaction tran) {
+        if (tran.isActive()) {
+            tran.rollback();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+-- Secuencias para os ids: Hibernate reserva bloques de 50 (allocationSize) e así pode agrupar os INSERT
+-- en lotes JDBC, cousa que AUTO_INCREMENT (IDENTITY) non permite. Cada valor da secuencia reserva os 50 ids
+-- anteriores (optimizador pooled), así que a secuencia empeza 50 por riba do maior id que xa haxa.
+-- Os INSERT sen id (fóra de Hibernate) tamén toman o seu da secuencia.
+-- IF NOT EXISTS: as bases creadas cun init.sql anterior xa teñen as secuencias; SETVAL nunca as fai retroceder.
+CREATE PROCEDURE IF NOT EXISTS ids_con_secuencia(tabla VARCHAR(64))
+BEGIN
+    EXECUTE IMMEDIATE CONCAT('CREATE SEQUENCE IF NOT EXISTS ', tabla, '_seq INCREMENT BY 50');
+    EXECUTE IMMEDIATE CONCAT('SELECT COALESCE(MAX(id), 0) + 50 INTO @maximo FROM ', tabla);
+    EXECUTE IMMEDIATE CONCAT('DO SETVAL(', tabla, '_seq, ', @maximo, ')');
+    EXECUTE IMMEDIATE CONCAT('ALTER TABLE ', tabla, ' MODIFY id INT NOT NULL DEFAULT NEXT VALUE FOR ', tabla, '_seq');
+END;
+
+CALL ids_con_secuencia('usuario');
+CALL ids_con_secuencia('autor');
+CALL ids_con_secuencia('categoria');
+CALL ids_con_secuencia('libro');
+CALL ids_con_secuencia('ejemplar');
+CALL ids_con_secuencia('prestamo');
+
+DROP PROCEDURE ids_con_secuencia;
+
+-- Contador de favoritos por usuario (topFavoritos), mantido polos triggers de favoritos.
+-- Os triggers van antes do reconto: unha alta entre os dous queda contada no reconto, que pon o valor enteiro.
+ALTER TABLE usuario ADD COLUMN IF NOT EXISTS num_favoritos INT NOT NULL DEFAULT 0;
+
+CREATE TRIGGER IF NOT EXISTS favoritos_alta AFTER INSERT ON favoritos FOR EACH ROW
+    UPDATE usuario SET num_favoritos = num_favoritos + 1 WHERE id = NEW.usuario_id;
+CREATE TRIGGER IF NOT EXISTS favoritos_baixa AFTER DELETE ON favoritos FOR EACH ROW
+    UPDATE usuario SET num_favoritos = num_favoritos - 1 WHERE id = OLD.usuario_id;
+
+UPDATE usuario u SET num_favoritos = (SELECT COUNT(*) FROM favoritos f WHERE f.usuario_id = u.id);
@@ -0,0 +1,23 @@
+-- Índices para as consultas dos DAO. init.sql (versión 1) só define claves primarias, únicas e foráneas.
+-- IF NOT EXISTS: as bases creadas cun init.sql anterior xa teñen parte destes índices.
+
+-- PrestamoCriteria: estado co rango ou a orde de fecha_inicio; getPrestamoEstadoPagina
+CREATE INDEX IF NOT EXISTS idx_prestamo_estado_inicio ON prestamo (estado, fecha_inicio);
+-- Préstamos vencidos: estado = 'ACTIVO' AND fecha_fin < hoxe
+CREATE INDEX IF NOT EXISTS idx_prestamo_estado_fin ON prestamo (estado, fecha_fin);
+-- Rangos e ordes de data sen filtro de estado
+CREATE INDEX IF NOT EXISTS idx_prestamo_fecha_inicio ON prestamo (fecha_inicio);
+CREATE INDEX IF NOT EXISTS idx_prestamo_fecha_fin ON prestamo (fecha_fin);
+CREATE INDEX IF NOT EXISTS idx_prestamo_fecha_devolucion ON prestamo (fecha_devolucion);
+-- Historial dun usuario ou dun exemplar, os máis recentes primeiro. Tamén serven ás claves foráneas.
+CREATE INDEX IF NOT EXISTS idx_prestamo_usuario_inicio ON prestamo (usuario_id, fecha_inicio);
+CREATE INDEX IF NOT EXISTS idx_prestamo_ejemplar_inicio ON prestamo (ejemplar_id, fecha_inicio);
+
+-- Exemplares dun libro por estado (disponibilidade)
+CREATE INDEX IF NOT EXISTS idx_ejemplar_libro_estado ON ejemplar (libro_id, estado);
+
+-- Catálogo ordenado por título (getResumenLibros)
+CREATE INDEX IF NOT EXISTS idx_libro_titulo ON libro (titulo);
+
+-- topFavoritos co contador
+CREATE INDEX IF NOT EXISTS idx_usuario_num_favoritos ON usuario (num_favoritos, id);
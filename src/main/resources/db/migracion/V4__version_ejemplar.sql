@@ -0,0 +1,2 @@
+-- Bloqueo optimista de ejemplar (@Version): dous mostradores non poden prestar o mesmo exemplar
+ALTER TABLE ejemplar ADD COLUMN IF NOT EXISTS version INT NOT NULL DEFAULT 0;
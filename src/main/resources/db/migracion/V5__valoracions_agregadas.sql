@@ -0,0 +1,158 @@
+-- Agregados das valoracións (libro_categoria.puntuacion, de 0 a 10) por libro e por libro e categoría:
+-- cantas hai, a súa suma (media = suma / cantas) e cantas de cada puntuación (p0..p10).
+-- Mantéñenos os triggers de libro_categoria na mesma transacción ca cada valoración, como usuario.num_favoritos.
+-- As puntuacións NULL (a columna admite NULL) non contan. Os agregados van co libro e a categoría (ON DELETE CASCADE).
+-- Ollo co UPDATE IGNORE sobre a clave de libro_categoria: MariaDB lanza o trigger tamén nas filas que salta por
+-- clave duplicada. Despois dun cambio así, baleirar as dúas táboas e repetir os INSERT ... SELECT do final.
+
+CREATE TABLE IF NOT EXISTS valoracion_libro (
+    libro_id INT NOT NULL,
+    num_valoraciones INT NOT NULL DEFAULT 0,
+    suma_puntuaciones INT NOT NULL DEFAULT 0,
+    p0 INT NOT NULL DEFAULT 0,
+    p1 INT NOT NULL DEFAULT 0,
+    p2 INT NOT NULL DEFAULT 0,
+    p3 INT NOT NULL DEFAULT 0,
+    p4 INT NOT NULL DEFAULT 0,
+    p5 INT NOT NULL DEFAULT 0,
+    p6 INT NOT NULL DEFAULT 0,
+    p7 INT NOT NULL DEFAULT 0,
+    p8 INT NOT NULL DEFAULT 0,
+    p9 INT NOT NULL DEFAULT 0,
+    p10 INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (libro_id),
+    FOREIGN KEY (libro_id) REFERENCES libro(id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS valoracion_libro_categoria (
+    libro_id INT NOT NULL,
+    categoria_id INT NOT NULL,
+    num_valoraciones INT NOT NULL DEFAULT 0,
+    suma_puntuaciones INT NOT NULL DEFAULT 0,
+    p0 INT NOT NULL DEFAULT 0,
+    p1 INT NOT NULL DEFAULT 0,
+    p2 INT NOT NULL DEFAULT 0,
+    p3 INT NOT NULL DEFAULT 0,
+    p4 INT NOT NULL DEFAULT 0,
+    p5 INT NOT NULL DEFAULT 0,
+    p6 INT NOT NULL DEFAULT 0,
+    p7 INT NOT NULL DEFAULT 0,
+    p8 INT NOT NULL DEFAULT 0,
+    p9 INT NOT NULL DEFAULT 0,
+    p10 INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (libro_id, categoria_id),
+    FOREIGN KEY (libro_id) REFERENCES libro(id) ON DELETE CASCADE,
+    FOREIGN KEY (categoria_id) REFERENCES categoria(id) ON DELETE CASCADE
+);
+
+-- Suma (signo 1) ou resta (signo -1) unha valoración nos dous agregados
+CREATE PROCEDURE IF NOT EXISTS sumar_valoracion(libro INT, categoria INT, puntuacion INT, signo INT)
+BEGIN
+    INSERT INTO valoracion_libro (libro_id, num_valoraciones, suma_puntuaciones, p0, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10)
+    VALUES (libro, signo * (puntuacion IS NOT NULL), signo * IFNULL(puntuacion, 0),
+            signo * (puntuacion <=> 0), signo * (puntuacion <=> 1), signo * (puntuacion <=> 2), signo * (puntuacion <=> 3), signo * (puntuacion <=> 4), signo * (puntuacion <=> 5), signo * (puntuacion <=> 6), signo * (puntuacion <=> 7), signo * (puntuacion <=> 8), signo * (puntuacion <=> 9), signo * (puntuacion <=> 10))
+    ON DUPLICATE KEY UPDATE
+        num_valoraciones = num_valoraciones + VALUES(num_valoraciones),
+        suma_puntuaciones = suma_puntuaciones + VALUES(suma_puntuaciones),
+        p0 = p0 + VALUES(p0),
+        p1 = p1 + VALUES(p1),
+        p2 = p2 + VALUES(p2),
+        p3 = p3 + VALUES(p3),
+        p4 = p4 + VALUES(p4),
+        p5 = p5 + VALUES(p5),
+        p6 = p6 + VALUES(p6),
+        p7 = p7 + VALUES(p7),
+        p8 = p8 + VALUES(p8),
+        p9 = p9 + VALUES(p9),
+        p10 = p10 + VALUES(p10);
+    INSERT INTO valoracion_libro_categoria (libro_id, categoria_id, num_valoraciones, suma_puntuaciones, p0, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10)
+    VALUES (libro, categoria, signo * (puntuacion IS NOT NULL), signo * IFNULL(puntuacion, 0),
+            signo * (puntuacion <=> 0), signo * (puntuacion <=> 1), signo * (puntuacion <=> 2), signo * (puntuacion <=> 3), signo * (puntuacion <=> 4), signo * (puntuacion <=> 5), signo * (puntuacion <=> 6), signo * (puntuacion <=> 7), signo * (puntuacion <=> 8), signo * (puntuacion <=> 9), signo * (puntuacion <=> 10))
+    ON DUPLICATE KEY UPDATE
+        num_valoraciones = num_valoraciones + VALUES(num_valoraciones),
+        suma_puntuaciones = suma_puntuaciones + VALUES(suma_puntuaciones),
+        p0 = p0 + VALUES(p0),
+        p1 = p1 + VALUES(p1),
+        p2 = p2 + VALUES(p2),
+        p3 = p3 + VALUES(p3),
+        p4 = p4 + VALUES(p4),
+        p5 = p5 + VALUES(p5),
+        p6 = p6 + VALUES(p6),
+        p7 = p7 + VALUES(p7),
+        p8 = p8 + VALUES(p8),
+        p9 = p9 + VALUES(p9),
+        p10 = p10 + VALUES(p10);
+END;
+
+CREATE TRIGGER IF NOT EXISTS valoracion_alta AFTER INSERT ON libro_categoria FOR EACH ROW
+    CALL sumar_valoracion(NEW.libro_id, NEW.categoria_id, NEW.puntuacion, 1);
+CREATE TRIGGER IF NOT EXISTS valoracion_baixa AFTER DELETE ON libro_categoria FOR EACH ROW
+    CALL sumar_valoracion(OLD.libro_id, OLD.categoria_id, OLD.puntuacion, -1);
+-- Tamén serve se cambia o libro ou a categoría: réstase a fila vella e súmase a nova
+CREATE TRIGGER IF NOT EXISTS valoracion_cambio AFTER UPDATE ON libro_categoria FOR EACH ROW
+BEGIN
+    CALL sumar_valoracion(OLD.libro_id, OLD.categoria_id, OLD.puntuacion, -1);
+    CALL sumar_valoracion(NEW.libro_id, NEW.categoria_id, NEW.puntuacion, 1);
+END;
+
+-- Valoracións que xa había. Despois dos triggers e substituíndo os valores: unha valoración
+-- escrita entre a creación dos triggers e esta consulta queda contada unha soa vez.
+INSERT INTO valoracion_libro (libro_id, num_valoraciones, suma_puntuaciones, p0, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10)
+SELECT libro_id, COUNT(puntuacion), IFNULL(SUM(puntuacion), 0),
+       SUM(puntuacion <=> 0),
+       SUM(puntuacion <=> 1),
+       SUM(puntuacion <=> 2),
+       SUM(puntuacion <=> 3),
+       SUM(puntuacion <=> 4),
+       SUM(puntuacion <=> 5),
+       SUM(puntuacion <=> 6),
+       SUM(puntuacion <=> 7),
+       SUM(puntuacion <=> 8),
+       SUM(puntuacion <=> 9),
+       SUM(puntuacion <=> 10)
+FROM libro_categoria
+GROUP BY libro_id
+ON DUPLICATE KEY UPDATE
+    num_valoraciones = VALUES(num_valoraciones),
+    suma_puntuaciones = VALUES(suma_puntuaciones),
+    p0 = VALUES(p0),
+    p1 = VALUES(p1),
+    p2 = VALUES(p2),
+    p3 = VALUES(p3),
+    p4 = VALUES(p4),
+    p5 = VALUES(p5),
+    p6 = VALUES(p6),
+    p7 = VALUES(p7),
+    p8 = VALUES(p8),
+    p9 = VALUES(p9),
+    p10 = VALUES(p10);
+
+INSERT INTO valoracion_libro_categoria (libro_id, categoria_id, num_valoraciones, suma_puntuaciones, p0, p1, p2, p3, p4, p5, p6, p7, p8, p9, p10)
+SELECT libro_id, categoria_id, COUNT(puntuacion), IFNULL(SUM(puntuacion), 0),
+       SUM(puntuacion <=> 0),
+       SUM(puntuacion <=> 1),
+       SUM(puntuacion <=> 2),
+       SUM(puntuacion <=> 3),
+       SUM(puntuacion <=> 4),
+       SUM(puntuacion <=> 5),
+       SUM(puntuacion <=> 6),
+       SUM(puntuacion <=> 7),
+       SUM(puntuacion <=> 8),
+       SUM(puntuacion <=> 9),
+       SUM(puntuacion <=> 10)
+FROM libro_categoria
+GROUP BY libro_id, categoria_id
+ON DUPLICATE KEY UPDATE
+    num_valoraciones = VALUES(num_valoraciones),
+    suma_puntuaciones = VALUES(suma_puntuaciones),
+    p0 = VALUES(p0),
+    p1 = VALUES(p1),
+    p2 = VALUES(p2),
+    p3 = VALUES(p3),
+    p4 = VALUES(p4),
+    p5 = VALUES(p5),
+    p6 = VALUES(p6),
+    p7 = VALUES(p7),
+    p8 = VALUES(p8),
+    p9 = VALUES(p9),
+    p10 = VALUES(p10);
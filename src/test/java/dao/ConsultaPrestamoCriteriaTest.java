@@ -0,0 +1,265 @@
+package dao;
+
+import criteria.CursorPrestamo;
+import criteria.PrestamoCriteria;
+import dto.Pagina;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import modelo.Prestamo;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** O JPQL e os parámetros de cada forma de PrestamoCriteria, sen base de datos: o EntityManager só os anota. */
+class ConsultaPrestamoCriteriaTest {
+
+    private static final LocalDate XANEIRO = LocalDate.of(2024, 1, 1);
+    private static final LocalDate FEBREIRO = LocalDate.of(2024, 2, 1);
+    private static final String SELECT = "SELECT p FROM Prestamo p";
+
+    /** O que recibiu a consulta creada. */
+    private static final class Anotada {
+        String jpql;
+        final Map<String, Object> parametros = new HashMap<>();
+        Integer maxResults;
+        Integer firstResult;
+    }
+
+    private final Anotada anotada = new Anotada();
+
+    private final EntityManager entityManager = (EntityManager) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[]{EntityManager.class}, (em, metodo, args) -> {
+                if (!metodo.getName().equals("createQuery")) {
+                    throw new UnsupportedOperationException(metodo.getName());
+                }
+                anotada.jpql = (String) args[0];
+                return query();
+            });
+
+    private TypedQuery<?> query() {
+        return (TypedQuery<?>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{TypedQuery.class},
+                (query, metodo, args) -> {
+                    switch (metodo.getName()) {
+                        case "setParameter" -> anotada.parametros.put((String) args[0], args[1]);
+                        case "setMaxResults" -> anotada.maxResults = (Integer) args[0];
+                        case "setFirstResult" -> anotada.firstResult = (Integer) args[0];
+                        case "setFlushMode", "setHint" -> {
+                        }
+                        default -> throw new UnsupportedOperationException(metodo.getName());
+                    }
+                    return query;
+                });
+    }
+
+    @Test
+    void senFiltrosNinOrde() {
+        ConsultaPrestamoCriteria.crear(entityManager, new PrestamoCriteria());
+        assertEquals(SELECT, anotada.jpql);
+        assertEquals(Map.of(), anotada.parametros);
+        assertNull(anotada.maxResults);
+        assertNull(anotada.firstResult);
+    }
+
+    @Test
+    void todosOsFiltrosNaOrdeDosBits() {
+        PrestamoCriteria criteria = new PrestamoCriteria();
+        criteria.setEstadoPrestamo(Prestamo.EstadoPrestamo.ACTIVO);
+        criteria.setIdUsuario(1);
+        criteria.setIdEjemplar(2);
+        criteria.setIdLibro(3);
+        criteria.setIniFechaInicio(XANEIRO);
+        criteria.setFinFechaInicio(FEBREIRO);
+        criteria.setIniFechaFin(XANEIRO);
+        criteria.setFinFechaFin(FEBREIRO);
+        criteria.setIniFechaDevolucion(XANEIRO);
+        criteria.setFinFechaDevolucion(FEBREIRO);
+
+        ConsultaPrestamoCriteria.crear(entityManager, criteria);
+
+        assertEquals(SELECT + " WHERE p.estado = :estadoPrestamo AND p.usuario.id = :idUsuario"
+                + " AND p.ejemplar.id = :idEjemplar AND p.ejemplar.libro.id = :idLibro"
+                + " AND p.fechaInicio >= :iniFechaInicio AND p.fechaInicio <= :finFechaInicio"
+                + " AND p.fechaFin >= :iniFechaFin AND p.fechaFin <= :finFechaFin"
+                + " AND p.fechaDevolucion >= :iniFechaDevolucion AND p.fechaDevolucion <= :finFechaDevolucion",
+                anotada.jpql);
+        assertEquals(10, anotada.parametros.size());
+        assertEquals(Prestamo.EstadoPrestamo.ACTIVO, anotada.parametros.get("estadoPrestamo"));
+        assertEquals(3, anotada.parametros.get("idLibro"));
+        assertEquals(FEBREIRO, anotada.parametros.get("finFechaDevolucion"));
+    }
+
+    @Test
+    void cadaLimiteDeDataVaiSo() {
+        PrestamoCriteria desde = new PrestamoCriteria();
+        desde.setIniFechaInicio(XANEIRO);
+        ConsultaPrestamoCriteria.crear(entityManager, desde);
+        assertEquals(SELECT + " WHERE p.fechaInicio >= :iniFechaInicio", anotada.jpql);
+        assertEquals(Map.of("iniFechaInicio", XANEIRO), anotada.parametros);
+
+        anotada.parametros.clear();
+        PrestamoCriteria ata = new PrestamoCriteria();
+        ata.setFinFechaInicio(FEBREIRO);
+        ConsultaPrestamoCriteria.crear(entityManager, ata);
+        assertEquals(SELECT + " WHERE p.fechaInicio <= :finFechaInicio", anotada.jpql);
+        assertEquals(Map.of("finFechaInicio", FEBREIRO), anotada.parametros);
+    }
+
+    @Test
+    void oResumenFiltraOLibroSenOutroJoin() {
+        PrestamoCriteria criteria = new PrestamoCriteria();
+        criteria.setIdLibro(3);
+        ConsultaPrestamoCriteria.crearResumen(entityManager, criteria);
+        assertEquals("SELECT new dto.ResumenPrestamo(p.id, p.fechaInicio, p.fechaFin, p.fechaDevolucion, p.estado,"
+                + " u.id, u.nombre, u.apellidos, e.codigo, l.titulo)"
+                + " FROM Prestamo p LEFT JOIN p.usuario u LEFT JOIN p.ejemplar e LEFT JOIN e.libro l"
+                + " WHERE e.libro.id = :idLibro", anotada.jpql);
+    }
+
+    @Test
+    void ordeLimiteEDesprazamento() {
+        PrestamoCriteria criteria = new PrestamoCriteria();
+        criteria.setOrden(PrestamoCriteria.Orden.FECHA_FIN);
+        criteria.setDescendente(true);
+        criteria.setLimite(20);
+        criteria.setDesplazamiento(40);
+
+        ConsultaPrestamoCriteria.crear(entityManager, criteria);
+
+        assertEquals(SELECT + " ORDER BY p.fechaFin DESC, p.id DESC", anotada.jpql);
+        assertEquals(20, anotada.maxResults);
+        assertEquals(40, anotada.firstResult);
+    }
+
+    @Test
+    void aFormaDependeDosCamposNonDosValores() {
+        PrestamoCriteria a = new PrestamoCriteria();
+        a.setIdUsuario(1);
+        a.setOrden(PrestamoCriteria.Orden.ID);
+        PrestamoCriteria b = new PrestamoCriteria();
+        b.setIdUsuario(99);
+        b.setOrden(PrestamoCriteria.Orden.ID);
+        b.setLimite(5);
+        assertEquals(ConsultaPrestamoCriteria.forma(a, a.getOrden()), ConsultaPrestamoCriteria.forma(b, b.getOrden()));
+
+        b.setDescendente(true);
+        assertNotEquals(ConsultaPrestamoCriteria.forma(a, a.getOrden()), ConsultaPrestamoCriteria.forma(b, b.getOrden()));
+        assertNotEquals(ConsultaPrestamoCriteria.forma(a, PrestamoCriteria.Orden.ID),
+                ConsultaPrestamoCriteria.forma(a, PrestamoCriteria.Orden.FECHA_INICIO));
+        assertNotEquals(ConsultaPrestamoCriteria.forma(a, PrestamoCriteria.Orden.ID), ConsultaPrestamoCriteria.forma(a, null));
+    }
+
+    @Test
+    void aMesmaFormaReutilizaOTextoDaConsulta() {
+        PrestamoCriteria a = new PrestamoCriteria();
+        a.setEstadoPrestamo(Prestamo.EstadoPrestamo.ACTIVO);
+        ConsultaPrestamoCriteria.crear(entityManager, a);
+        String primeiro = anotada.jpql;
+        PrestamoCriteria b = new PrestamoCriteria();
+        b.setEstadoPrestamo(Prestamo.EstadoPrestamo.DEVUELTO);
+        ConsultaPrestamoCriteria.crear(entityManager, b);
+        assertSame(primeiro, anotada.jpql);
+    }
+
+    @Test
+    void primeiraPaxinaPorId() {
+        ConsultaPrestamoCriteria.crearPagina(entityManager, new PrestamoCriteria(), null, 50);
+        assertEquals(SELECT + " ORDER BY p.id ASC", anotada.jpql);
+        assertEquals(51, anotada.maxResults);
+        assertEquals(Map.of(), anotada.parametros);
+    }
+
+    @Test
+    void cursorPorId() {
+        PrestamoCriteria criteria = new PrestamoCriteria();
+        criteria.setEstadoPrestamo(Prestamo.EstadoPrestamo.ACTIVO);
+        criteria.setDescendente(true);
+        criteria.setLimite(5);
+        criteria.setDesplazamiento(10);
+
+        ConsultaPrestamoCriteria.crearPagina(entityManager, criteria, CursorPrestamo.porId(70), 20);
+
+        assertEquals(SELECT + " WHERE p.estado = :estadoPrestamo AND p.id < :cursorId ORDER BY p.id DESC", anotada.jpql);
+        assertEquals(70, anotada.parametros.get("cursorId"));
+        // O límite e o desprazamento do criteria non contan nas páxinas
+        assertEquals(21, anotada.maxResults);
+        assertNull(anotada.firstResult);
+    }
+
+    @Test
+    void cursorPorData() {
+        PrestamoCriteria criteria = new PrestamoCriteria();
+        criteria.setOrden(PrestamoCriteria.Orden.FECHA_INICIO);
+
+        ConsultaPrestamoCriteria.crearPagina(entityManager, criteria, CursorPrestamo.porFecha(XANEIRO, 7), 10);
+
+        assertEquals(SELECT + " WHERE p.fechaInicio >= :cursorFecha"
+                + " AND (p.fechaInicio > :cursorFecha OR p.id > :cursorId)"
+                + " ORDER BY p.fechaInicio ASC, p.id ASC", anotada.jpql);
+        assertEquals(Map.of("cursorFecha", XANEIRO, "cursorId", 7), anotada.parametros);
+    }
+
+    @Test
+    void cursorPorDataDescendente() {
+        PrestamoCriteria criteria = new PrestamoCriteria();
+        criteria.setOrden(PrestamoCriteria.Orden.FECHA_FIN);
+        criteria.setDescendente(true);
+        criteria.setIdUsuario(4);
+
+        ConsultaPrestamoCriteria.crearResumenPagina(entityManager, criteria, CursorPrestamo.porFecha(FEBREIRO, 9), 10);
+
+        assertEquals(" WHERE p.usuario.id = :idUsuario AND p.fechaFin <= :cursorFecha"
+                + " AND (p.fechaFin < :cursorFecha OR p.id < :cursorId)"
+                + " ORDER BY p.fechaFin DESC, p.id DESC", anotada.jpql.substring(anotada.jpql.indexOf(" WHERE")));
+    }
+
+    @Test
+    void paxinasNonValidas() {
+        PrestamoCriteria porData = new PrestamoCriteria();
+        porData.setOrden(PrestamoCriteria.Orden.FECHA_INICIO);
+        assertThrows(IllegalArgumentException.class, () ->
+                ConsultaPrestamoCriteria.crearPagina(entityManager, porData, CursorPrestamo.porId(1), 10));
+
+        PrestamoCriteria porDevolucion = new PrestamoCriteria();
+        porDevolucion.setOrden(PrestamoCriteria.Orden.FECHA_DEVOLUCION);
+        assertThrows(IllegalArgumentException.class, () ->
+                ConsultaPrestamoCriteria.crearPagina(entityManager, porDevolucion, null, 10));
+
+        assertThrows(IllegalArgumentException.class, () ->
+                ConsultaPrestamoCriteria.crearPagina(entityManager, new PrestamoCriteria(), null, 0));
+    }
+
+    @Test
+    void paginarCortaAFilaDeMaisECalculaOCursor() {
+        record Fila(int id, LocalDate inicio, LocalDate fin) {
+        }
+        List<Fila> filas = List.of(
+                new Fila(1, XANEIRO, FEBREIRO),
+                new Fila(2, XANEIRO, FEBREIRO.plusDays(1)),
+                new Fila(3, FEBREIRO, FEBREIRO.plusDays(2)));
+        Function<Fila, Integer> id = Fila::id;
+        PrestamoCriteria porFin = new PrestamoCriteria();
+        porFin.setOrden(PrestamoCriteria.Orden.FECHA_FIN);
+
+        Pagina<Fila> pagina = ConsultaPrestamoCriteria.paginar(filas, 2, porFin, id, Fila::inicio, Fila::fin);
+        assertEquals(filas.subList(0, 2), pagina.elementos());
+        assertEquals(CursorPrestamo.porFecha(FEBREIRO.plusDays(1), 2), pagina.siguiente());
+
+        Pagina<Fila> porId = ConsultaPrestamoCriteria.paginar(filas, 2, new PrestamoCriteria(), id, Fila::inicio, Fila::fin);
+        assertEquals(CursorPrestamo.porId(2), porId.siguiente());
+
+        Pagina<Fila> ultima = ConsultaPrestamoCriteria.paginar(filas, 3, porFin, id, Fila::inicio, Fila::fin);
+        assertEquals(filas, ultima.elementos());
+        assertNull(ultima.siguiente());
+    }
+}
@@ -0,0 +1,123 @@
+package dao;
+
+import criteria.CursorPrestamo;
+import criteria.PrestamoCriteria;
+import dto.Pagina;
+import dto.ResumenPrestamo;
+import modelo.Prestamo;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import persistencia.BaseDatosEmbebida;
+import persistencia.ProveedorEntityManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static metricas.ContadorSentencias.comprobarMaximo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Cantas sentencias SQL emiten os listados de PrestamoDAOHib: cada un, unha, por moitas filas que devolva. */
+class PrestamoDAOHibTest {
+
+    private static final int PRESTAMOS = 300;
+    private static final int TAM_PAGINA = 50;
+
+    private static BaseDatosEmbebida baseDatos;
+    private static ProveedorEntityManager proveedor;
+    private static PrestamoDAO dao;
+
+    @BeforeAll
+    static void arrancar() {
+        baseDatos = new BaseDatosEmbebida(PRESTAMOS, Map.of());
+        proveedor = baseDatos.getBaseDatos().getProveedor();
+        dao = new PrestamoDAOHib(proveedor);
+    }
+
+    @AfterAll
+    static void parar() {
+        baseDatos.close();
+    }
+
+    @Test
+    void listadoSenPlanNunhaConsulta() {
+        List<Prestamo> prestamos = comprobarMaximo(1, () -> dao.recuperarTodos());
+        assertTrue(prestamos.size() >= PRESTAMOS);
+    }
+
+    @Test
+    void percorrerAsociacionsSenPlanEsUnNmais1() {
+        AssertionError erro = assertThrows(AssertionError.class, () -> proveedor.enUnidadDeTrabajo(() ->
+                comprobarMaximo(1, () -> {
+                    for (Prestamo p : dao.recuperarTodos(PlanCargaPrestamo.SOLO_PRESTAMO)) {
+                        p.getEjemplar().getCodigo();
+                    }
+                })));
+        assertTrue(erro.getMessage().contains("ejemplar"), erro.getMessage());
+    }
+
+    @Test
+    void planCompletoCargaAsociacionsNaMesmaConsulta() {
+        proveedor.enUnidadDeTrabajo(() -> comprobarMaximo(1, () -> {
+            List<Prestamo> prestamos = dao.recuperarTodos(PlanCargaPrestamo.COMPLETO);
+            assertTrue(prestamos.size() >= PRESTAMOS);
+            for (Prestamo p : prestamos) {
+                assertNotNull(p.getUsuario().getNombre());
+                assertNotNull(p.getEjemplar().getLibro().getTitulo());
+            }
+        }));
+    }
+
+    @Test
+    void planDoEstadoCargaUsuarioNaMesmaConsulta() {
+        proveedor.enUnidadDeTrabajo(() -> comprobarMaximo(1, () -> {
+            for (Prestamo p : dao.getPrestamoEstado(Prestamo.EstadoPrestamo.DEVUELTO, PlanCargaPrestamo.CON_USUARIO)) {
+                assertNotNull(p.getUsuario().getNombre());
+            }
+        }));
+    }
+
+    @Test
+    void criteriaConPlanNunhaConsulta() {
+        PrestamoCriteria criteria = new PrestamoCriteria();
+        criteria.setEstadoPrestamo(Prestamo.EstadoPrestamo.DEVUELTO);
+        criteria.setOrden(PrestamoCriteria.Orden.FECHA_INICIO);
+        criteria.setLimite(TAM_PAGINA);
+        proveedor.enUnidadDeTrabajo(() -> comprobarMaximo(1, () -> {
+            List<Prestamo> prestamos = dao.getPrestamosCriteria(criteria, PlanCargaPrestamo.CON_EJEMPLAR);
+            assertEquals(TAM_PAGINA, prestamos.size());
+            for (Prestamo p : prestamos) {
+                assertNotNull(p.getEjemplar().getLibro().getTitulo());
+            }
+        }));
+    }
+
+    @Test
+    void resumenNunhaConsulta() {
+        List<ResumenPrestamo> resumen = comprobarMaximo(1, () -> dao.getResumenPrestamos(new PrestamoCriteria()));
+        assertTrue(resumen.size() >= PRESTAMOS);
+        for (ResumenPrestamo r : resumen) {
+            assertNotNull(r.nombreUsuario());
+            assertNotNull(r.tituloLibro());
+        }
+    }
+
+    @Test
+    void cadaPaxinaNunhaConsulta() {
+        Pagina<Prestamo> primeira = comprobarMaximo(1, () ->
+                dao.recuperarPagina(TAM_PAGINA, null, PlanCargaPrestamo.COMPLETO));
+        assertEquals(TAM_PAGINA, primeira.elementos().size());
+        CursorPrestamo cursor = primeira.siguiente();
+        assertNotNull(cursor);
+        Pagina<Prestamo> segunda = comprobarMaximo(1, () ->
+                dao.recuperarPagina(TAM_PAGINA, cursor, PlanCargaPrestamo.COMPLETO));
+        assertTrue(segunda.elementos().get(0).getId() > primeira.elementos().get(TAM_PAGINA - 1).getId());
+
+        Pagina<ResumenPrestamo> resumen = comprobarMaximo(1, () ->
+                dao.getResumenPrestamosPagina(new PrestamoCriteria(), TAM_PAGINA, null));
+        assertEquals(TAM_PAGINA, resumen.elementos().size());
+    }
+}
@@ -0,0 +1,106 @@
+package indice;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * DataSource sen base de datos para as probas dos índices: cada consulta devolve as filas que diga
+ * respostas segundo o SQL e os parámetros. Só implementa o que usan os índices (prepareStatement,
+ * setInt, executeQuery e next, getInt, getString e getObject por posición); o resto lanza
+ * UnsupportedOperationException.
+ */
+final class DataSourceFalso {
+
+    /** SQL e parámetros dunha consulta executada, na orde dos ?. */
+    record Consulta(String sql, List<Object> parametros) {
+    }
+
+    private final Function<Consulta, List<Object[]>> respostas;
+    private final List<Consulta> executadas = new CopyOnWriteArrayList<>();
+
+    DataSourceFalso(Function<Consulta, List<Object[]>> respostas) {
+        this.respostas = respostas;
+    }
+
+    /** Devolve as filas da táboa que corresponda ao SQL; as consultas que non están no mapa, ningunha. */
+    static DataSourceFalso porSql(Map<String, List<Object[]>> filasPorSql) {
+        return new DataSourceFalso(consulta -> filasPorSql.getOrDefault(consulta.sql(), List.of()));
+    }
+
+    DataSource dataSource() {
+        return proxy(DataSource.class, (obx, metodo, args) -> switch (metodo.getName()) {
+            case "getConnection" -> conexion();
+            default -> obxecto(obx, metodo.getName(), args);
+        });
+    }
+
+    /** As consultas executadas ata agora, en orde. */
+    List<Consulta> getExecutadas() {
+        return List.copyOf(executadas);
+    }
+
+    private Connection conexion() {
+        return proxy(Connection.class, (obx, metodo, args) -> switch (metodo.getName()) {
+            case "prepareStatement" -> sentencia((String) args[0]);
+            case "close" -> null;
+            case "isClosed" -> false;
+            default -> obxecto(obx, metodo.getName(), args);
+        });
+    }
+
+    private PreparedStatement sentencia(String sql) {
+        Map<Integer, Object> parametros = new TreeMap<>();
+        return proxy(PreparedStatement.class, (obx, metodo, args) -> switch (metodo.getName()) {
+            case "setInt", "setString", "setObject" -> {
+                parametros.put((Integer) args[0], args[1]);
+                yield null;
+            }
+            case "executeQuery" -> {
+                Consulta consulta = new Consulta(sql, new ArrayList<>(parametros.values()));
+                executadas.add(consulta);
+                yield resultado(respostas.apply(consulta));
+            }
+            case "close" -> null;
+            default -> obxecto(obx, metodo.getName(), args);
+        });
+    }
+
+    private static ResultSet resultado(List<Object[]> filas) {
+        int[] actual = {-1};
+        return proxy(ResultSet.class, (obx, metodo, args) -> switch (metodo.getName()) {
+            case "next" -> ++actual[0] < filas.size();
+            case "getInt" -> {
+                Object valor = filas.get(actual[0])[(Integer) args[0] - 1];
+                yield valor == null ? 0 : ((Number) valor).intValue();
+            }
+            case "getString" -> (String) filas.get(actual[0])[(Integer) args[0] - 1];
+            case "getObject" -> filas.get(actual[0])[(Integer) args[0] - 1];
+            case "close" -> null;
+            default -> obxecto(obx, metodo.getName(), args);
+        });
+    }
+
+    private static Object obxecto(Object obx, String metodo, Object[] args) {
+        return switch (metodo) {
+            case "toString" -> "DataSourceFalso";
+            case "hashCode" -> System.identityHashCode(obx);
+            case "equals" -> obx == args[0];
+            default -> throw new UnsupportedOperationException(metodo);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> tipo, InvocationHandler manexador) {
+        return (T) Proxy.newProxyInstance(DataSourceFalso.class.getClassLoader(), new Class<?>[]{tipo}, manexador);
+    }
+}
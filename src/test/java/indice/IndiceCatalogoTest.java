@@ -0,0 +1,124 @@
+package indice;
+
+import indice.IndiceCatalogo.Acerto;
+import indice.IndiceCatalogo.CamposLibro;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndiceCatalogoTest {
+
+    private static final Map<String, List<Object[]>> CATALOGO = Map.of(
+            "SELECT id, nombre FROM autor", List.of(
+                    new Object[]{1, "Robert C. Martin"},
+                    new Object[]{2, "Gabriel García Márquez"}),
+            "SELECT id, nombre FROM categoria", List.of(
+                    new Object[]{1, "Programación"},
+                    new Object[]{2, "Novela"}),
+            "SELECT id, titulo, isbn, editorial, autor_id, categoria_id FROM libro ORDER BY id", List.of(
+                    new Object[]{1, "Código Limpio", "978-0132350884", "Prentice Hall", 1, 1},
+                    new Object[]{2, "Arquitectura Limpia", "978-0134494166", "Prentice Hall", 1, 1},
+                    new Object[]{3, "Cien años de soledad", "978-8497592208", "Debolsillo", 2, 2},
+                    new Object[]{4, "Limpio y claro", null, "Editorial Martin", null, null}));
+
+    private static IndiceCatalogo cargar() {
+        return IndiceCatalogo.cargar(DataSourceFalso.porSql(CATALOGO).dataSource());
+    }
+
+    private static List<Integer> ids(List<Acerto> acertos) {
+        return acertos.stream().map(Acerto::idLibro).toList();
+    }
+
+    @Test
+    void atopaOsLibrosConTodosOsTermos() {
+        IndiceCatalogo indice = cargar();
+        assertEquals(4, indice.getLibros());
+        assertEquals(List.of(1), ids(indice.buscar("codigo limpio", 10)));
+        assertEquals(List.of(3), ids(indice.buscar("GARCÍA soledad", 10)));
+        assertEquals(List.of(), ids(indice.buscar("limpio soledad", 10)));
+        assertEquals(List.of(), ids(indice.buscar("inexistente", 10)));
+        assertEquals(List.of(), ids(indice.buscar("  ", 10)));
+    }
+
+    @Test
+    void oIsbnAtopaseConESenGuions() {
+        IndiceCatalogo indice = cargar();
+        assertEquals(List.of(1), ids(indice.buscar("9780132350884", 10)));
+        assertEquals(List.of(1), ids(indice.buscar("978-0132350884", 10)));
+    }
+
+    @Test
+    void ordenaPolaRelevanciaDoCampo() {
+        IndiceCatalogo indice = cargar();
+        // "martin" é o autor dos libros 1 e 2 (peso 2) e só a editorial do 4 (peso 1)
+        List<Acerto> acertos = indice.buscar("martin", 10);
+        assertEquals(List.of(1, 2, 4), ids(acertos));
+        assertTrue(acertos.get(1).puntuacion() > acertos.get(2).puntuacion());
+        // A igual puntuación, o id menor primeiro; o límite corta os peores
+        assertEquals(List.of(1), ids(indice.buscar("martin", 1)));
+    }
+
+    @Test
+    void reindexarSubstitueOsCamposAnteriores() {
+        IndiceCatalogo indice = cargar();
+        indice.indexar(new CamposLibro(1, "Código Sucio", "978-0132350884", "Prentice Hall", 1, 1));
+
+        assertEquals(List.of(4), ids(indice.buscar("limpio", 10)));
+        assertEquals(List.of(1), ids(indice.buscar("sucio", 10)));
+        assertEquals(4, indice.getLibros());
+    }
+
+    @Test
+    void eliminarQuitaOLibroDeTodosOsTermos() {
+        IndiceCatalogo indice = cargar();
+        indice.eliminar(2);
+        indice.eliminar(99);
+
+        assertEquals(List.of(), ids(indice.buscar("arquitectura", 10)));
+        assertEquals(List.of(1), ids(indice.buscar("martin prentice", 10)));
+        assertEquals(3, indice.getLibros());
+    }
+
+    @Test
+    void renomearOAutorReindexaOsSeusLibros() {
+        IndiceCatalogo indice = cargar();
+        indice.ponerAutor(1, "Tío Bob");
+
+        assertEquals(List.of(1, 2), ids(indice.buscar("bob", 10)));
+        assertEquals(List.of(4), ids(indice.buscar("martin", 10)));
+        assertEquals(List.of(3), ids(indice.buscar("garcia", 10)));
+    }
+
+    @Test
+    void renomearAsCategoriasUsaOsCamposIndexados() {
+        IndiceCatalogo indice = cargar();
+        // O título cambiou despois da carga: o renome non pode volver ao título vello
+        indice.indexar(new CamposLibro(3, "Cen anos de soidade", "978-8497592208", "Debolsillo", 2, 2));
+        indice.ponerCategoria(2, "Realismo máxico");
+
+        assertEquals(List.of(3), ids(indice.buscar("soidade realismo", 10)));
+        assertEquals(List.of(), ids(indice.buscar("soledad", 10)));
+        assertEquals(List.of(), ids(indice.buscar("novela", 10)));
+    }
+
+    @Test
+    void leUnhaVezONomeDunAutorNovo() {
+        DataSourceFalso datos = new DataSourceFalso(consulta -> consulta.sql().contains("WHERE")
+                ? List.<Object[]>of(new Object[]{"Rosalía de Castro"})
+                : CATALOGO.getOrDefault(consulta.sql(), List.of()));
+        IndiceCatalogo indice = IndiceCatalogo.cargar(datos.dataSource());
+        int consultasCarga = datos.getExecutadas().size();
+
+        indice.indexar(new CamposLibro(5, "Follas novas", null, null, 3, null));
+        indice.indexar(new CamposLibro(6, "Cantares gallegos", null, null, 3, null));
+
+        assertEquals(List.of(5, 6), ids(indice.buscar("rosalia", 10)));
+        List<DataSourceFalso.Consulta> novas = datos.getExecutadas().subList(consultasCarga, datos.getExecutadas().size());
+        assertEquals(1, novas.size());
+        assertEquals(List.of(3), novas.get(0).parametros());
+    }
+}
@@ -0,0 +1,146 @@
+package indice;
+
+import dto.Disponibilidad;
+import modelo.Ejemplar.EstadoEjemplar;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndiceDisponibilidadTest {
+
+    /** Índice cargado destas filas (libro_id, estado, conta); recontar le as de recontas. */
+    private static IndiceDisponibilidad cargar(List<Object[]> filas, List<Object[]> recontas) {
+        DataSourceFalso datos = new DataSourceFalso(consulta ->
+                consulta.parametros().isEmpty() ? filas : recontas);
+        return IndiceDisponibilidad.cargar(datos.dataSource());
+    }
+
+    private static IndiceDisponibilidad baleiro() {
+        return cargar(List.of(), List.of());
+    }
+
+    @Test
+    void cargaAsContasAgregadas() {
+        IndiceDisponibilidad indice = cargar(List.of(
+                new Object[]{1, "DISPONIBLE", 2},
+                new Object[]{1, "PRESTADO", 3},
+                new Object[]{2, "MANTENIMIENTO", 1}), List.of());
+
+        assertEquals(new Disponibilidad(2, 3, 0), indice.consultar(1));
+        assertEquals(new Disponibilidad(0, 0, 1), indice.consultar(2));
+        assertTrue(indice.hayDisponible(1));
+        assertFalse(indice.hayDisponible(2));
+        assertEquals(2, indice.getLibros());
+    }
+
+    @Test
+    void libroSenExemplaresNonTenNingun() {
+        IndiceDisponibilidad indice = baleiro();
+        assertEquals(Disponibilidad.NINGUNA, indice.consultar(7));
+        assertEquals(Disponibilidad.NINGUNA, indice.consultar(0));
+        assertEquals(0, indice.getLibros());
+    }
+
+    @Test
+    void moverPasaUnExemplarDunEstadoAOutro() {
+        IndiceDisponibilidad indice = baleiro();
+        indice.sumar(5, EstadoEjemplar.DISPONIBLE, 2);
+
+        indice.mover(5, EstadoEjemplar.DISPONIBLE, EstadoEjemplar.PRESTADO);
+        assertEquals(new Disponibilidad(1, 1, 0), indice.consultar(5));
+
+        indice.mover(5, EstadoEjemplar.PRESTADO, EstadoEjemplar.PRESTADO);
+        assertEquals(new Disponibilidad(1, 1, 0), indice.consultar(5));
+    }
+
+    @Test
+    void sumarAltasEBaixas() {
+        IndiceDisponibilidad indice = baleiro();
+        indice.sumar(3, EstadoEjemplar.DISPONIBLE, 4);
+        indice.sumar(3, EstadoEjemplar.DISPONIBLE, -1);
+        indice.sumar(3, EstadoEjemplar.MANTENIMIENTO, 1);
+
+        assertEquals(new Disponibilidad(3, 0, 1), indice.consultar(3));
+        assertEquals(1, indice.getLibros());
+    }
+
+    @Test
+    void oIdCeroNonEValido() {
+        IndiceDisponibilidad indice = baleiro();
+        assertThrows(IllegalArgumentException.class, () -> indice.sumar(0, EstadoEjemplar.DISPONIBLE, 1));
+    }
+
+    @Test
+    void medraSenPerderContas() {
+        IndiceDisponibilidad indice = baleiro();
+        // Moitos máis libros ca a capacidade inicial, e ids que comparten os bits baixos
+        int libros = 5000;
+        for (int i = 1; i <= libros; i++) {
+            indice.sumar(i * 1024, EstadoEjemplar.DISPONIBLE, i % 7 + 1);
+            indice.sumar(i * 1024, EstadoEjemplar.PRESTADO, i % 3);
+        }
+        assertEquals(libros, indice.getLibros());
+        for (int i = 1; i <= libros; i++) {
+            assertEquals(new Disponibilidad(i % 7 + 1, i % 3, 0), indice.consultar(i * 1024), "libro " + i * 1024);
+        }
+        assertEquals(Disponibilidad.NINGUNA, indice.consultar(1023));
+    }
+
+    @Test
+    void recontarSubstitueAsContasDoLibro() {
+        DataSourceFalso datos = new DataSourceFalso(consulta -> consulta.parametros().isEmpty()
+                ? List.of(new Object[]{9, "DISPONIBLE", 5}, new Object[]{10, "DISPONIBLE", 1})
+                : List.of(new Object[]{"PRESTADO", 2}, new Object[]{"MANTENIMIENTO", 1}));
+        IndiceDisponibilidad indice = IndiceDisponibilidad.cargar(datos.dataSource());
+
+        indice.recontar(9);
+
+        assertEquals(new Disponibilidad(0, 2, 1), indice.consultar(9));
+        assertEquals(new Disponibilidad(1, 0, 0), indice.consultar(10));
+        assertEquals(List.of(9), datos.getExecutadas().get(1).parametros());
+    }
+
+    @Test
+    void recontarUnLibroNovoCreao() {
+        IndiceDisponibilidad indice = cargar(List.of(), List.<Object[]>of(new Object[]{"DISPONIBLE", 3}));
+        indice.recontar(42);
+        assertEquals(new Disponibilidad(3, 0, 0), indice.consultar(42));
+        assertEquals(1, indice.getLibros());
+    }
+
+    @Test
+    void asLecturasNonVenEscriturasAMedias() throws InterruptedException {
+        IndiceDisponibilidad indice = baleiro();
+        indice.sumar(1, EstadoEjemplar.DISPONIBLE, 10);
+        AtomicBoolean parar = new AtomicBoolean();
+        List<String> erros = new ArrayList<>();
+        Thread lector = Thread.ofPlatform().start(() -> {
+            while (!parar.get()) {
+                int total = indice.consultar(1).total();
+                if (total != 10) {
+                    synchronized (erros) {
+                        erros.add("total " + total);
+                    }
+                }
+            }
+        });
+        // Os préstamos e devolucións non cambian o total; os libros novos fan medrar os arrays
+        for (int i = 0; i < 20_000; i++) {
+            indice.mover(1, EstadoEjemplar.DISPONIBLE, EstadoEjemplar.PRESTADO);
+            indice.mover(1, EstadoEjemplar.PRESTADO, EstadoEjemplar.DISPONIBLE);
+            if (i % 10 == 0) {
+                indice.sumar(i + 2, EstadoEjemplar.DISPONIBLE, 1);
+            }
+        }
+        parar.set(true);
+        lector.join();
+        assertEquals(List.of(), erros);
+    }
+}
@@ -0,0 +1,101 @@
+package indice;
+
+import indice.IndicePrefixos.Campo;
+import indice.IndicePrefixos.Suxestion;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IndicePrefixosTest {
+
+    private static final Map<String, List<Object[]>> CATALOGO = Map.of(
+            "SELECT id, titulo FROM libro", List.of(
+                    new Object[]{1, "Código Limpio"},
+                    new Object[]{2, "Cien años de soledad"},
+                    new Object[]{3, "codigo da vinci"},
+                    new Object[]{4, "Clean Code"}),
+            "SELECT id, isbn FROM libro", List.of(
+                    new Object[]{1, "978-0132350884"},
+                    new Object[]{2, "978-8497592208"},
+                    new Object[]{3, null}),
+            "SELECT id, codigo FROM ejemplar", List.of(
+                    new Object[]{10, "EJ-001"},
+                    new Object[]{11, "EJ-002"},
+                    new Object[]{12, "EX-001"}));
+
+    private static IndicePrefixos cargar() {
+        return IndicePrefixos.cargar(DataSourceFalso.porSql(CATALOGO).dataSource());
+    }
+
+    private static List<Integer> ids(List<Suxestion> suxestions) {
+        return suxestions.stream().map(Suxestion::id).toList();
+    }
+
+    @Test
+    void suxireEnOrdeSenMaiusculasNinAcentos() {
+        IndicePrefixos indice = cargar();
+        assertEquals(List.of(new Suxestion(3, "codigo da vinci"), new Suxestion(1, "Código Limpio")),
+                indice.suxerir(Campo.TITULO, "CÓDIGO", 10));
+        assertEquals(List.of(2, 4), ids(indice.suxerir(Campo.TITULO, "c", 10).subList(0, 2)));
+        assertEquals(List.of(), indice.suxerir(Campo.TITULO, "z", 10));
+    }
+
+    @Test
+    void oLimiteEOPrefixoBaleiro() {
+        IndicePrefixos indice = cargar();
+        assertEquals(List.of(2, 4), ids(indice.suxerir(Campo.TITULO, "c", 2)));
+        assertEquals(List.of(), indice.suxerir(Campo.TITULO, "", 10));
+        assertEquals(List.of(), indice.suxerir(Campo.TITULO, null, 10));
+        assertEquals(List.of(), indice.suxerir(Campo.TITULO, "c", 0));
+    }
+
+    @Test
+    void isbnECodigosSenGuions() {
+        IndicePrefixos indice = cargar();
+        assertEquals(List.of(1), ids(indice.suxerir(Campo.ISBN, "9780", 10)));
+        assertEquals(List.of(1), ids(indice.suxerir(Campo.ISBN, "978-01", 10)));
+        assertEquals(List.of(1, 2), ids(indice.suxerir(Campo.ISBN, "978", 10)));
+        assertEquals(List.of(10, 11), ids(indice.suxerir(Campo.CODIGO, "ej0", 10)));
+        assertEquals(List.of(10, 11, 12), ids(indice.suxerir(Campo.CODIGO, "e", 10)));
+    }
+
+    @Test
+    void osCambiosMesturanseCoaCarga() {
+        IndicePrefixos indice = cargar();
+        indice.poner(Campo.TITULO, 5, "Codicia");
+        indice.poner(Campo.TITULO, 3, "Ensaio sobre a cegueira");
+        indice.quitar(Campo.TITULO, 1);
+
+        assertEquals(List.of(new Suxestion(5, "Codicia")), indice.suxerir(Campo.TITULO, "codi", 10));
+        assertEquals(List.of(3), ids(indice.suxerir(Campo.TITULO, "ensaio", 10)));
+
+        indice.poner(Campo.TITULO, 5, "Codicia e poder");
+        assertEquals(List.of(new Suxestion(5, "Codicia e poder")), indice.suxerir(Campo.TITULO, "codi", 10));
+        indice.quitar(Campo.TITULO, 5);
+        assertEquals(List.of(), indice.suxerir(Campo.TITULO, "codi", 10));
+    }
+
+    @Test
+    void moitosCambiosRefanOArraySenPerderNada() {
+        IndicePrefixos indice = cargar();
+        // Máis cambios ca o mínimo pendente: mestúranse co array polo medio
+        List<Integer> esperados = new ArrayList<>();
+        for (int i = 100; i < 3100; i++) {
+            indice.poner(Campo.CODIGO, i, String.format("Z-%05d", i));
+            if (i % 2 == 0) {
+                indice.quitar(Campo.CODIGO, i);
+            } else {
+                esperados.add(i);
+            }
+        }
+        indice.quitar(Campo.CODIGO, 11);
+
+        assertEquals(esperados, ids(indice.suxerir(Campo.CODIGO, "z", 10_000)));
+        assertEquals(List.of(10, 12), ids(indice.suxerir(Campo.CODIGO, "e", 10)));
+        assertEquals(List.of(101, 103, 105, 107, 109), ids(indice.suxerir(Campo.CODIGO, "z0010", 10)));
+    }
+}
@@ -0,0 +1,104 @@
+package metricas;
+
+import dao.PlanCargaPrestamo;
+import dao.PrestamoDAO;
+import dao.PrestamoDAOHib;
+import modelo.Prestamo;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import persistencia.BaseDatosEmbebida;
+import persistencia.ProveedorEntityManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/** Os avisos de DetectorCargasLazy, que slf4j-simple escribe en System.err. */
+class DetectorCargasLazyTest {
+
+    private static final int UMBRAL = 5;
+    private static final String AVISO_EJEMPLAR = "Posible N+1: modelo.Ejemplar";
+
+    private static BaseDatosEmbebida baseDatos;
+    private static ProveedorEntityManager proveedor;
+    private static PrestamoDAO dao;
+
+    @BeforeAll
+    static void arrancar() {
+        baseDatos = new BaseDatosEmbebida(100, Map.of(DetectorCargasLazy.PROPIEDADE_UMBRAL, String.valueOf(UMBRAL)));
+        proveedor = baseDatos.getBaseDatos().getProveedor();
+        dao = new PrestamoDAOHib(proveedor);
+    }
+
+    @AfterAll
+    static void parar() {
+        baseDatos.close();
+        DetectorCargasLazy.configurar(0);
+    }
+
+    @Test
+    void avisaUnhaVezCandoSePasaDoUmbral() {
+        String avisos = capturarAvisos(() -> proveedor.enUnidadDeTrabajo(() -> {
+            for (Prestamo p : dao.recuperarTodos(PlanCargaPrestamo.SOLO_PRESTAMO)) {
+                p.getEjemplar().getCodigo();
+            }
+        }));
+        assertEquals(1, avisos.split(Pattern.quote(AVISO_EJEMPLAR), -1).length - 1, avisos);
+    }
+
+    @Test
+    void senAvisoAtaOUmbral() {
+        String avisos = capturarAvisos(() -> proveedor.enUnidadDeTrabajo(() -> {
+            List<Prestamo> prestamos = dao.recuperarTodos(PlanCargaPrestamo.SOLO_PRESTAMO);
+            for (Prestamo p : prestamos.subList(0, UMBRAL)) {
+                p.getEjemplar().getCodigo();
+            }
+        }));
+        assertFalse(avisos.contains(AVISO_EJEMPLAR), avisos);
+    }
+
+    @Test
+    void cadaUnidadeDeTraballoContaDesdeCero() {
+        List<Integer> ids = dao.recuperarTodos().stream().map(Prestamo::getId).limit(UMBRAL).toList();
+        // UMBRAL cargas en cada unidade: xuntas pasarían do umbral, pero ningunha o pasa soa
+        String avisos = capturarAvisos(() -> {
+            for (int vez = 0; vez < 2; vez++) {
+                proveedor.enUnidadDeTrabajo(() -> {
+                    for (Integer id : ids) {
+                        dao.buscarPorId(id).orElseThrow().getEjemplar().getCodigo();
+                    }
+                });
+            }
+        });
+        assertFalse(avisos.contains(AVISO_EJEMPLAR), avisos);
+    }
+
+    @Test
+    void oPlanEvitaAsCargasLazy() {
+        String avisos = capturarAvisos(() -> proveedor.enUnidadDeTrabajo(() -> {
+            for (Prestamo p : dao.recuperarTodos(PlanCargaPrestamo.CON_EJEMPLAR)) {
+                p.getEjemplar().getCodigo();
+            }
+        }));
+        assertFalse(avisos.contains("Posible N+1"), avisos);
+    }
+
+    private static String capturarAvisos(Runnable bloque) {
+        PrintStream orixinal = System.err;
+        ByteArrayOutputStream capturado = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(capturado, true, StandardCharsets.UTF_8));
+        try {
+            bloque.run();
+        } finally {
+            System.setErr(orixinal);
+        }
+        return capturado.toString(StandardCharsets.UTF_8);
+    }
+}
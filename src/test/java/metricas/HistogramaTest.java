@@ -0,0 +1,107 @@
+package metricas;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramaTest {
+
+    @Test
+    void baleiro() {
+        Histograma h = new Histograma();
+        assertEquals(0, h.getCantidad());
+        assertEquals(0, h.getMedia());
+        assertEquals(0, h.percentil(0.99));
+    }
+
+    @Test
+    void osValoresPequenosSonExactos() {
+        Histograma h = new Histograma();
+        for (int v = 0; v < 8; v++) {
+            h.registrar(v);
+        }
+        assertEquals(3, h.percentil(0.5));
+        assertEquals(7, h.percentil(1));
+        assertEquals(0, h.percentil(0));
+    }
+
+    @Test
+    void cantidadeSumaMediaEMaximo() {
+        Histograma h = new Histograma();
+        h.registrar(10);
+        h.registrar(30);
+        h.registrar(-5);
+        assertEquals(3, h.getCantidad());
+        assertEquals(40, h.getSuma());
+        assertEquals(40 / 3.0, h.getMedia(), 1e-9);
+        assertEquals(30, h.getMaximo());
+        // O negativo cóntase como 0
+        assertEquals(0, h.percentil(0.1));
+    }
+
+    @Test
+    void oPercentilNonPasaDoMaximo() {
+        Histograma h = new Histograma();
+        h.registrar(1000);
+        assertEquals(1000, h.percentil(0.5));
+    }
+
+    @Test
+    void erroRelativoPorDebaixoDo12e5PorCento() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            long valor = 8 + (random.nextLong() >>> (1 + random.nextInt(62)));
+            Histograma h = new Histograma();
+            h.registrar(valor);
+            // Un valor moito maior para que o percentil devolva o límite do cubo e non o máximo
+            h.registrar(Long.MAX_VALUE);
+            long p = h.percentil(0.5);
+            assertTrue(p >= valor && p - valor <= valor / 8, valor + " -> " + p);
+        }
+    }
+
+    @Test
+    void escribeUnSummaryDePrometheus() {
+        Histograma h = new Histograma();
+        h.registrar(5);
+        StringBuilder sb = new StringBuilder();
+        h.escribir(sb, "latencia_us", "metodo=\"buscar\"");
+        assertEquals("""
+                latencia_us{metodo="buscar",quantile="0.5"} 5
+                latencia_us{metodo="buscar",quantile="0.9"} 5
+                latencia_us{metodo="buscar",quantile="0.99"} 5
+                latencia_us{metodo="buscar",quantile="0.999"} 5
+                latencia_us_count{metodo="buscar"} 1
+                latencia_us_sum{metodo="buscar"} 5
+                """, sb.toString());
+
+        StringBuilder senEtiquetas = new StringBuilder();
+        h.escribir(senEtiquetas, "x", "");
+        assertTrue(senEtiquetas.toString().startsWith("x{quantile=\"0.5\"} 5\n"), senEtiquetas.toString());
+        assertTrue(senEtiquetas.toString().contains("x_count 1\n"), senEtiquetas.toString());
+    }
+
+    @Test
+    void rexistrosDesdeVariosFios() {
+        Histograma h = new Histograma();
+        int fios = 8;
+        int porFio = 100_000;
+        try (ExecutorService executor = Executors.newFixedThreadPool(fios)) {
+            for (int f = 0; f < fios; f++) {
+                executor.submit(() -> {
+                    for (int i = 1; i <= porFio; i++) {
+                        h.registrar(i);
+                    }
+                });
+            }
+        }
+        assertEquals((long) fios * porFio, h.getCantidad());
+        assertEquals((long) fios * porFio * (porFio + 1) / 2, h.getSuma());
+        assertEquals(porFio, h.getMaximo());
+    }
+}
@@ -0,0 +1,84 @@
+package persistencia;
+
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import generador.ConfiguracionGenerador;
+import generador.GeneradorDatos;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Para as probas que necesitan base de datos: un MariaDB embebido (MariaDB4j) nun porto libre, co
+ * esquema de docker/scripts/init.sql, os datos de GeneradorDatos e unha BaseDatos que aplica as migracións.
+ * close() pecha a BaseDatos e para o servidor.
+ */
+public class BaseDatosEmbebida implements AutoCloseable {
+
+    private static final String INIT_SQL = "docker/scripts/init.sql";
+
+    private final DB servidor;
+    private final BaseDatos baseDatos;
+
+    /**
+     * @param prestamos   tamaño dos datos xerados (ConfiguracionGenerador.paraPrestamos)
+     * @param propiedades as de BaseDatos; hibernate.show_sql vai a false se non se di outra cousa
+     */
+    public BaseDatosEmbebida(int prestamos, Map<String, Object> propiedades) {
+        DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+        config.setPort(0);
+        // mariadbd négase a arrancar como root se non se lle di explicitamente
+        config.addArg("--user=root");
+        try {
+            servidor = DB.newEmbeddedDB(config.build());
+            servidor.start();
+        } catch (ManagedProcessException e) {
+            throw new RuntimeException("Error al arrancar MariaDB embebida", e);
+        }
+        String url = config.getURL("biblioteca");
+        try {
+            try (InputStream init = Files.newInputStream(Path.of(INIT_SQL))) {
+                servidor.source(init, "root", "", null);
+            }
+            try (Connection con = DriverManager.getConnection(url, "root", "")) {
+                new GeneradorDatos(ConfiguracionGenerador.paraPrestamos(prestamos)).generar(con);
+            }
+            Map<String, Object> todas = new HashMap<>(propiedades);
+            // O SQL xa o ven as probas con ContadorSentencias; na saída só taparía os fallos
+            todas.putIfAbsent("hibernate.show_sql", "false");
+            baseDatos = new BaseDatos(url, "root", "", 4, todas);
+        } catch (IOException | SQLException | RuntimeException e) {
+            parar();
+            throw new RuntimeException("Error al preparar la base de datos de prueba", e);
+        }
+    }
+
+    public BaseDatos getBaseDatos() {
+        return baseDatos;
+    }
+
+    @Override
+    public void close() {
+        try {
+            baseDatos.close();
+        } finally {
+            parar();
+        }
+    }
+
+    private void parar() {
+        try {
+            servidor.stop();
+        } catch (ManagedProcessException e) {
+            throw new RuntimeException("Error al parar MariaDB embebida", e);
+        }
+    }
+}